@@ -0,0 +1,199 @@
+package slatepowered.reco.multicast;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Reassembles frames from the datagram fragments sent by
+ * {@link MulticastPublishTransport}s and detects lost frames
+ * through gaps in the per-sender sequence numbers.
+ *
+ * Datagram layout: magic (short), sender ID (long), frame
+ * sequence (int), fragment index (short), fragment count (short)
+ * followed by the fragment bytes.
+ *
+ * Instances are not thread-safe, they are meant to be used
+ * by a single receiving thread.
+ */
+public class FragmentAssembler {
+
+    // logger
+    static final Logger LOGGER = Logger.getLogger("FragmentAssembler");
+
+    /** The magic value at the start of every datagram. */
+    public static final short MAGIC = 0x5243;
+
+    /** The length of the datagram header. */
+    public static final int HEADER_LENGTH = 2 + 8 + 4 + 2 + 2;
+
+    /** The maximum amount of incomplete frames kept per sender. */
+    static final int MAX_PENDING_FRAMES = 64;
+
+    /**
+     * Writes a datagram header into the given buffer.
+     *
+     * @param buffer The buffer.
+     * @param senderId The ID of the sender.
+     * @param sequence The sequence number of the frame.
+     * @param index The index of the fragment.
+     * @param count The total amount of fragments.
+     */
+    public static void writeHeader(ByteBuffer buffer, long senderId, int sequence, int index, int count) {
+        buffer.putShort(MAGIC);
+        buffer.putLong(senderId);
+        buffer.putInt(sequence);
+        buffer.putShort((short) index);
+        buffer.putShort((short) count);
+    }
+
+    /**
+     * An incomplete frame.
+     */
+    static final class PendingFrame {
+        // the fragment count of the first datagram received
+        final int count;
+
+        final byte[][] fragments;
+        int received;
+        int length;
+
+        PendingFrame(int count) {
+            this.count = count;
+            this.fragments = new byte[count][];
+        }
+
+        // adds a fragment, returns whether the frame is complete
+        boolean add(int index, byte[] fragment) {
+            if (index >= count || fragments[index] != null)
+                return false; // duplicate
+            fragments[index] = fragment;
+            received++;
+            length += fragment.length;
+            return received == fragments.length;
+        }
+
+        // joins all fragments into the frame
+        byte[] join() {
+            byte[] frame = new byte[length];
+            int offset = 0;
+            for (byte[] fragment : fragments) {
+                System.arraycopy(fragment, 0, frame, offset, fragment.length);
+                offset += fragment.length;
+            }
+
+            return frame;
+        }
+    }
+
+    /**
+     * The receiving state for one sender.
+     */
+    static final class SenderState {
+        // the sequence number of the next expected frame
+        int nextSequence;
+
+        // the incomplete frames by sequence number, in insertion order
+        final LinkedHashMap<Integer, PendingFrame> pendingFrames = new LinkedHashMap<>();
+    }
+
+    ////////////////////////////////////////
+
+    // the ID of the local sender whose datagrams are ignored
+    final long ignoredSenderId;
+
+    // the state by sender ID
+    final Map<Long, SenderState> senders = new HashMap<>();
+
+    // the total amount of frames detected as lost
+    long lostFrames;
+
+    public FragmentAssembler(long ignoredSenderId) {
+        this.ignoredSenderId = ignoredSenderId;
+    }
+
+    /**
+     * Get the total amount of frames which were detected
+     * as lost through sequence gaps.
+     */
+    public long getLostFrames() {
+        return lostFrames;
+    }
+
+    /**
+     * Accept the given datagram.
+     *
+     * @param datagram The datagram buffer.
+     * @return The complete frame if this datagram completed one, null otherwise.
+     */
+    public byte[] accept(ByteBuffer datagram) {
+        if (datagram.remaining() < HEADER_LENGTH || datagram.getShort() != MAGIC)
+            return null;
+
+        long senderId = datagram.getLong();
+        int sequence = datagram.getInt();
+        int index = datagram.getShort() & 0xFFFF;
+        int count = datagram.getShort() & 0xFFFF;
+        if (senderId == ignoredSenderId || count == 0 || index >= count)
+            return null;
+
+        SenderState state = senders.get(senderId);
+        if (state == null) {
+            // start receiving from the first frame seen
+            state = new SenderState();
+            state.nextSequence = sequence;
+            senders.put(senderId, state);
+        }
+
+        if (sequence - state.nextSequence < 0)
+            return null; // late or duplicate frame
+
+        // drop datagrams conflicting with the
+        // fragment count of the pending frame
+        PendingFrame pendingFrame = state.pendingFrames.get(sequence);
+        if (pendingFrame != null && pendingFrame.count != count)
+            return null;
+
+        byte[] fragment = new byte[datagram.remaining()];
+        datagram.get(fragment);
+
+        byte[] frame;
+        if (count == 1) {
+            frame = fragment;
+        } else {
+            if (pendingFrame == null) {
+                pendingFrame = new PendingFrame(count);
+                state.pendingFrames.put(sequence, pendingFrame);
+                if (state.pendingFrames.size() > MAX_PENDING_FRAMES) {
+                    Iterator<Integer> iterator = state.pendingFrames.keySet().iterator();
+                    iterator.next();
+                    iterator.remove();
+                }
+            }
+
+            if (!pendingFrame.add(index, fragment))
+                return null;
+
+            state.pendingFrames.remove(sequence);
+            frame = pendingFrame.join();
+        }
+
+        // check for skipped frames
+        int gap = sequence - state.nextSequence;
+        if (gap > 0) {
+            lostFrames += gap;
+            LOGGER.warning("Detected " + gap + " lost published frame(s) from sender " + Long.toHexString(senderId));
+        }
+
+        // drop incomplete frames which were skipped
+        state.nextSequence = sequence + 1;
+        final int nextSequence = state.nextSequence;
+        state.pendingFrames.keySet().removeIf(s -> s - nextSequence < 0);
+
+        return frame;
+    }
+
+}
@@ -0,0 +1,174 @@
+package slatepowered.reco.multicast;
+
+import slatepowered.reco.PublishTransport;
+import slatepowered.veru.misc.Throwables;
+
+import java.io.IOException;
+import java.net.Inet6Address;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.MembershipKey;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Publishes frames over IP multicast, so the cost of publishing a
+ * message does not depend on the amount of nodes listening.
+ *
+ * Frames larger than a datagram are split into fragments, and every
+ * frame carries a per-sender sequence number so receivers can detect
+ * lost frames. Delivery is best effort like the underlying UDP.
+ */
+public class MulticastPublishTransport implements PublishTransport {
+
+    // logger
+    static final Logger LOGGER = Logger.getLogger("MulticastPublishTransport");
+
+    // the maximum size of a received datagram
+    static final int MAX_RECEIVE_SIZE = 64 * 1024;
+
+    ////////////////////////////////////////
+
+    // the multicast group address and port
+    final InetSocketAddress group;
+
+    // the network interface to use
+    final NetworkInterface networkInterface;
+
+    // the maximum size of a sent datagram,
+    // including the fragment header
+    int maxDatagramSize = 1400;
+
+    // the random ID of this sender
+    final long senderId = ThreadLocalRandom.current().nextLong();
+
+    // the sequence number of the next frame
+    int sequence;
+
+    // the datagram channel and group membership
+    DatagramChannel channel;
+    MembershipKey membershipKey;
+
+    // the receiving thread
+    Thread receiveThread;
+    volatile boolean open;
+
+    // the fragment assembler, only
+    // used by the receiving thread
+    final FragmentAssembler assembler = new FragmentAssembler(senderId);
+
+    public MulticastPublishTransport(InetSocketAddress group, NetworkInterface networkInterface) {
+        this.group = group;
+        this.networkInterface = networkInterface;
+    }
+
+    public MulticastPublishTransport maxDatagramSize(int maxDatagramSize) {
+        if (maxDatagramSize <= FragmentAssembler.HEADER_LENGTH)
+            throw new IllegalArgumentException("Datagram size must be larger than the header");
+        this.maxDatagramSize = maxDatagramSize;
+        return this;
+    }
+
+    /**
+     * Get the total amount of frames from other senders
+     * which were detected as lost.
+     */
+    public long getLostFrames() {
+        return assembler.getLostFrames();
+    }
+
+    @Override
+    public void open(Consumer<byte[]> receiver) {
+        try {
+            channel = DatagramChannel.open(group.getAddress() instanceof Inet6Address ?
+                    StandardProtocolFamily.INET6 : StandardProtocolFamily.INET);
+            channel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            channel.bind(new InetSocketAddress(group.getPort()));
+            channel.setOption(StandardSocketOptions.IP_MULTICAST_IF, networkInterface);
+            channel.setOption(StandardSocketOptions.IP_MULTICAST_LOOP, true);
+            membershipKey = channel.join(group.getAddress(), networkInterface);
+
+            open = true;
+            receiveThread = new Thread(() -> runReceiver(receiver), "MulticastPublishTransport-" + group);
+            receiveThread.setDaemon(true);
+            receiveThread.start();
+        } catch (Exception e) {
+            // rethrow error
+            Throwables.sneakyThrow(e);
+        }
+    }
+
+    // the main loop of the receiving thread
+    private void runReceiver(Consumer<byte[]> receiver) {
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_RECEIVE_SIZE);
+        while (open) {
+            try {
+                buffer.clear();
+                channel.receive(buffer);
+                buffer.flip();
+
+                byte[] frame = assembler.accept(buffer);
+                if (frame != null) {
+                    receiver.accept(frame);
+                }
+            } catch (IOException e) {
+                if (!open)
+                    break;
+
+                LOGGER.warning("Failed to receive multicast datagram: " + e);
+            } catch (Throwable t) {
+                LOGGER.warning("Failed to handle multicast frame");
+                t.printStackTrace();
+            }
+        }
+    }
+
+    @Override
+    public void publish(byte[] frame) {
+        final int fragmentLength = maxDatagramSize - FragmentAssembler.HEADER_LENGTH;
+        final int count = Math.max(1, (frame.length + fragmentLength - 1) / fragmentLength);
+        if (count > 0xFFFF)
+            throw new IllegalArgumentException("Frame of " + frame.length + " bytes is too large to publish");
+
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(Math.min(maxDatagramSize, FragmentAssembler.HEADER_LENGTH + frame.length));
+
+            // keep the fragments of a frame together
+            // and the frames in sequence order
+            synchronized (this) {
+                int sequence = this.sequence++;
+                for (int i = 0; i < count; i++) {
+                    int offset = i * fragmentLength;
+                    buffer.clear();
+                    FragmentAssembler.writeHeader(buffer, senderId, sequence, i, count);
+                    buffer.put(frame, offset, Math.min(fragmentLength, frame.length - offset));
+                    buffer.flip();
+                    channel.send(buffer, group);
+                }
+            }
+        } catch (Exception e) {
+            // rethrow error
+            Throwables.sneakyThrow(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        open = false;
+
+        try {
+            if (membershipKey != null)
+                membershipKey.drop();
+            if (channel != null)
+                channel.close();
+        } catch (Throwable t) {
+            Throwables.sneakyThrow(t);
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+package test.slatepowered.reco;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import slatepowered.reco.multicast.FragmentAssembler;
+import slatepowered.reco.multicast.MulticastPublishTransport;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+public class MulticastPublishTransportTest {
+
+    // creates a datagram for the given fragment
+    static ByteBuffer datagram(long sender, int sequence, int index, int count, byte... bytes) {
+        ByteBuffer buffer = ByteBuffer.allocate(FragmentAssembler.HEADER_LENGTH + bytes.length);
+        FragmentAssembler.writeHeader(buffer, sender, sequence, index, count);
+        buffer.put(bytes);
+        buffer.flip();
+        return buffer;
+    }
+
+    @Test
+    void test_ReassemblyAndGaps() {
+        FragmentAssembler assembler = new FragmentAssembler(0);
+
+        // fragments are joined in index order
+        Assertions.assertNull(assembler.accept(datagram(1, 10, 1, 2, (byte) 3, (byte) 4)));
+        Assertions.assertArrayEquals(new byte[] { 1, 2, 3, 4 }, assembler.accept(datagram(1, 10, 0, 2, (byte) 1, (byte) 2)));
+        Assertions.assertEquals(0, assembler.getLostFrames());
+
+        // frames 11 and 12 are skipped
+        Assertions.assertArrayEquals(new byte[] { 5 }, assembler.accept(datagram(1, 13, 0, 1, (byte) 5)));
+        Assertions.assertEquals(2, assembler.getLostFrames());
+
+        // late and own frames are ignored
+        Assertions.assertNull(assembler.accept(datagram(1, 12, 0, 1, (byte) 6)));
+        Assertions.assertNull(new FragmentAssembler(1).accept(datagram(1, 14, 0, 1, (byte) 7)));
+    }
+
+    @Test
+    void test_ConflictingFragmentCount() {
+        FragmentAssembler assembler = new FragmentAssembler(0);
+
+        // datagrams disagreeing with the fragment count
+        // of the pending frame are dropped
+        Assertions.assertNull(assembler.accept(datagram(1, 10, 0, 2, (byte) 1, (byte) 2)));
+        Assertions.assertNull(assembler.accept(datagram(1, 10, 2, 3, (byte) 9)));
+        Assertions.assertNull(assembler.accept(datagram(1, 10, 0, 1, (byte) 9)));
+        Assertions.assertEquals(0, assembler.getLostFrames());
+
+        // the pending frame still completes
+        Assertions.assertArrayEquals(new byte[] { 1, 2, 3, 4 }, assembler.accept(datagram(1, 10, 1, 2, (byte) 3, (byte) 4)));
+    }
+
+    @Test
+    void test_LoopbackPublish() throws Exception {
+        NetworkInterface loopback = NetworkInterface.getByInetAddress(InetAddress.getLoopbackAddress());
+        InetSocketAddress group = new InetSocketAddress("239.255.42.99", 20000 + ThreadLocalRandom.current().nextInt(10000));
+
+        MulticastPublishTransport transportA = new MulticastPublishTransport(group, loopback);
+        MulticastPublishTransport transportB = new MulticastPublishTransport(group, loopback);
+
+        CompletableFuture<byte[]> received = new CompletableFuture<>();
+        List<byte[]> receivedByB = new CopyOnWriteArrayList<>();
+        CompletableFuture<Void> replyReceived = new CompletableFuture<>();
+        transportA.open(received::complete);
+        transportB.open(frame -> {
+            receivedByB.add(frame);
+            if (frame.length == 1)
+                replyReceived.complete(null);
+        });
+
+        try {
+            // large enough to be fragmented
+            byte[] frame = new byte[20000];
+            ThreadLocalRandom.current().nextBytes(frame);
+            transportB.publish(frame);
+
+            Assertions.assertTrue(Arrays.equals(frame, received.get(5, TimeUnit.SECONDS)));
+
+            // once a later frame of A arrives, B would have
+            // received its own frame if it was looped back
+            transportA.publish(new byte[] { 42 });
+            replyReceived.get(5, TimeUnit.SECONDS);
+            Assertions.assertEquals(1, receivedByB.size());
+            Assertions.assertArrayEquals(new byte[] { 42 }, receivedByB.get(0));
+        } finally {
+            transportA.close();
+            transportB.close();
+        }
+    }
+
+}
@@ -1,15 +1,13 @@
 package slatepowered.reco.rmq;
 
 import com.rabbitmq.client.*;
-import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import slatepowered.reco.BinaryCommunicationProvider;
 import slatepowered.reco.Message;
-import slatepowered.reco.ReceivedMessage;
 import slatepowered.reco.Serializer;
 import slatepowered.veru.misc.Throwables;
 
-import java.io.*;
+import java.io.IOException;
 import java.util.concurrent.TimeoutException;
 import java.util.logging.Logger;
 
@@ -32,6 +30,9 @@ public class RMQProvider extends BinaryCommunicationProvider<RMQChannel> {
     String exchangeName;
     String publishExchangeName;
 
+    // the maximum amount of unacknowledged deliveries
+    int prefetch = 256;
+
     public RMQProvider(String localName, Serializer serializer) {
         super(localName, serializer);
     }
@@ -40,6 +41,39 @@ public class RMQProvider extends BinaryCommunicationProvider<RMQChannel> {
         return exchangeName;
     }
 
+    /**
+     * Compact envelopes are not supported, RabbitMQ does not tell
+     * when a receiver restarted and lost the announced definitions,
+     * so it would drop compact envelopes until they are announced again.
+     *
+     * @param enabled Must be false.
+     * @return This.
+     * @throws UnsupportedOperationException If enabled.
+     */
+    @Override
+    public RMQProvider compactEnvelopes(boolean enabled) {
+        if (enabled)
+            throw new UnsupportedOperationException("Compact envelopes are not supported over RabbitMQ");
+        super.compactEnvelopes(false);
+        return this;
+    }
+
+    /**
+     * Set the maximum amount of deliveries the broker sends before
+     * they are acknowledged. Deliveries are acknowledged once they
+     * are queued for handling, so a full inbound queue with the
+     * {@link slatepowered.reco.dispatch.OverflowPolicy#BLOCK} policy
+     * stops the broker from delivering more. Must be called before
+     * {@link #bind(String)}.
+     *
+     * @param prefetch The prefetch count, 0 for unlimited.
+     * @return This.
+     */
+    public RMQProvider prefetch(int prefetch) {
+        this.prefetch = Math.max(0, prefetch);
+        return this;
+    }
+
     /**
      * Connect this communication provider to the given
      * RabbitMQ channel.
@@ -101,19 +135,22 @@ public class RMQProvider extends BinaryCommunicationProvider<RMQChannel> {
             rmqChannel.exchangeDeclare(exchangeName, "topic");
             rmqChannel.exchangeDeclare(publishExchangeName, "fanout");
 
+            // limit the unacknowledged deliveries
+            rmqChannel.basicQos(prefetch);
+
             // declare and bind local queue
             rmqChannel.queueDeclare(localName, false, false, true, null);
             rmqChannel.queueBind(localName, exchangeName, localName);
 
             // create listener on local queue
-            rmqChannel.basicConsume(localName, true, (consumerTag, message) -> receiveRMQ(message, localName), consumerTag -> { });
+            rmqChannel.basicConsume(localName, false, (consumerTag, message) -> receiveRMQ(message, localName), consumerTag -> { });
 
             // declare and bind pub queue
             rmqChannel.queueDeclare(localName, false, false, true, null);
             rmqChannel.queueBind(localName, publishExchangeName, localName);
 
             // create listener on pub queue
-            rmqChannel.basicConsume(localName, true, (consumerTag, message) -> receiveRMQ(message, publishExchangeName), consumerTag -> { });
+            rmqChannel.basicConsume(localName, false, (consumerTag, message) -> receiveRMQ(message, publishExchangeName), consumerTag -> { });
         } catch (Exception e) {
             LOGGER.warning("Failed to bind to local and pub queue");
             e.printStackTrace();
@@ -122,91 +159,13 @@ public class RMQProvider extends BinaryCommunicationProvider<RMQChannel> {
         return this;
     }
 
-    // handles received RMQ deliveries
-    private void receiveRMQ(Delivery delivery, String queueName) {
+    // handles received RMQ deliveries, acknowledging
+    // them once they have been queued for handling
+    private void receiveRMQ(Delivery delivery, String queueName) throws IOException {
         try {
-            // decode message body and properties
-            DecodeResult decodeResult = decodeReceivedMessage(delivery.getBody());
-            assert decodeResult != null;
-            ReceivedMessage<?> message = decodeResult.message;
-
-            // call communication provider
-            received(
-                    message,
-                    decodeResult.domain,
-                    queueName,
-                    decodeResult.sourceName
-            );
-        } catch (Exception e) {
-            logger.warning("Failed to handle received msg cause(UncaughtError)");
-            e.printStackTrace();
-        }
-    }
-
-    // result record
-    @Data
-    static class DecodeResult {
-        final Domain domain;
-        final String sourceName;
-        final ReceivedMessage<?> message;
-    }
-
-    // packs a message and its content
-    // into a byte array with the appropriate
-    // headers and identifier/name
-    private byte[] packSendingMessage(Message message,
-                                      Domain domain) {
-        try {
-            // create stream
-            ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
-            DataOutputStream dataStream = new DataOutputStream(byteStream);
-
-            // write message name
-            dataStream.writeUTF(message.getName());
-
-            // write type and headers
-            dataStream.writeByte(domain.getEncoded());
-            dataStream.writeUTF(localName); // write source node
-
-            // serialize message content
-            serializer.write(dataStream, message.payload());
-
-            byte[] bytes = byteStream.toByteArray();
-
-            // return bytes
-            return bytes;
-        } catch (Exception e) {
-            // rethrow error
-            Throwables.sneakyThrow(e);
-            return null;
-        }
-    }
-
-    // decodes a message from
-    // the packed data
-    private DecodeResult decodeReceivedMessage(byte[] bytes) {
-        try {
-            // create stream
-            ByteArrayInputStream byteStream = new ByteArrayInputStream(bytes);
-            DataInputStream dataStream = new DataInputStream(byteStream);
-
-            // read message name
-            String name = dataStream.readUTF();
-
-            // read type and headers
-            byte type = dataStream.readByte();
-            String sourceName = dataStream.readUTF();
-
-            // deserialize message content
-            ReceivedMessage<Object> message = new ReceivedMessage<>(name);
-            message.payload(serializer.read(dataStream));
-
-            // return result
-            return new DecodeResult(Domain.getByEncoded(type), sourceName, message);
-        } catch (Exception e) {
-            // rethrow error
-            Throwables.sneakyThrow(e);
-            return null;
+            receivedFrame(delivery.getBody(), queueName);
+        } finally {
+            rmqChannel.basicAck(delivery.getEnvelope().getDeliveryTag(), false);
         }
     }
 
@@ -221,16 +180,7 @@ public class RMQProvider extends BinaryCommunicationProvider<RMQChannel> {
      * @param target The target.
      */
     public void send(Message message, String target) {
-        try {
-            // pack bytes
-            byte[] bytes = packSendingMessage(message, Domain.DIRECT);
-
-            // publish with routing key
-            rmqChannel.basicPublish(exchangeName, target, C_BASIC_PROPERTIES, bytes);
-        } catch (Exception e) {
-            // rethrow error
-            Throwables.sneakyThrow(e);
-        }
+        sendMessage(message, Domain.DIRECT, target);
     }
 
     /**
@@ -241,16 +191,7 @@ public class RMQProvider extends BinaryCommunicationProvider<RMQChannel> {
      * @param target The aux target.
      */
     public void sendAux(Message message, String target) {
-        try {
-            // pack bytes
-            byte[] bytes = packSendingMessage(message, Domain.AUX);
-
-            // publish with routing key
-            rmqChannel.basicPublish(exchangeName + "." + target, localName, C_BASIC_PROPERTIES, bytes);
-        } catch (Exception e) {
-            // rethrow error
-            Throwables.sneakyThrow(e);
-        }
+        sendMessage(message, Domain.AUX, target);
     }
 
     /**
@@ -261,12 +202,27 @@ public class RMQProvider extends BinaryCommunicationProvider<RMQChannel> {
      */
     @Override
     public void publish(Message<?> message) {
-        try {
-            // pack bytes
-            byte[] bytes = packSendingMessage(message, Domain.PUBLISH);
+        if (publishThroughTransport(message))
+            return;
+
+        sendMessage(message, Domain.PUBLISH, null);
+    }
 
+    @Override
+    protected void transmitFrame(byte[] frame, Domain domain, String target) {
+        try {
             // publish with routing key
-            rmqChannel.basicPublish(publishExchangeName, localName, C_BASIC_PROPERTIES, bytes);
+            switch (domain) {
+                case DIRECT:
+                    rmqChannel.basicPublish(exchangeName, target, C_BASIC_PROPERTIES, frame);
+                    break;
+                case AUX:
+                    rmqChannel.basicPublish(exchangeName + "." + target, localName, C_BASIC_PROPERTIES, frame);
+                    break;
+                case PUBLISH:
+                    rmqChannel.basicPublish(publishExchangeName, localName, C_BASIC_PROPERTIES, frame);
+                    break;
+            }
         } catch (Exception e) {
             // rethrow error
             Throwables.sneakyThrow(e);
@@ -286,7 +242,7 @@ public class RMQProvider extends BinaryCommunicationProvider<RMQChannel> {
                 rmqChannel.queueDeclare(localName, false, false, true, null);
                 rmqChannel.queueBind(localName, exchangeName + "." + remote, localName);
 
-                rmqChannel.basicConsume(localName, true, (consumerTag, message) -> receiveRMQ(message, remote), consumerTag -> { });
+                rmqChannel.basicConsume(localName, false, (consumerTag, message) -> receiveRMQ(message, remote), consumerTag -> { });
             } catch (Exception e) {
                 // rethrow error
                 Throwables.sneakyThrow(e);
@@ -313,6 +269,9 @@ public class RMQProvider extends BinaryCommunicationProvider<RMQChannel> {
 
     @Override
     public void close() {
+        closeBatcher();
+        closePublishTransport();
+
         try {
             rmqChannel.close();
             rmqConnection.close();
@@ -339,6 +298,8 @@ public class RMQProvider extends BinaryCommunicationProvider<RMQChannel> {
 
         protected String exchangeName;
 
+        protected int prefetch = 256;
+
         public Builder serializer(Serializer serializer) {
             this.serializer = serializer;
             return this;
@@ -374,9 +335,15 @@ public class RMQProvider extends BinaryCommunicationProvider<RMQChannel> {
             return this;
         }
 
+        public Builder prefetch(int prefetch) {
+            this.prefetch = prefetch;
+            return this;
+        }
+
         public RMQProvider build() {
             return new RMQProvider(localName, serializer)
                     .connect(host, port, username, password, virtualHost)
+                    .prefetch(prefetch)
                     .bind(exchangeName);
         }
     }
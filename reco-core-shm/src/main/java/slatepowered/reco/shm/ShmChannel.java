@@ -0,0 +1,52 @@
+package slatepowered.reco.shm;
+
+import slatepowered.reco.AbstractChannel;
+import slatepowered.reco.CommunicationProvider;
+import slatepowered.reco.Message;
+
+public class ShmChannel extends AbstractChannel {
+
+    // the shared memory provider
+    final ShmProvider provider;
+
+    // the remote node name
+    final String remote;
+
+    // whether this channel is auxiliary
+    final boolean isAux;
+
+    public ShmChannel(ShmProvider provider, String remote, boolean isAux) {
+        this.provider = provider;
+        this.remote = remote;
+        this.isAux = isAux;
+    }
+
+    @Override
+    public String remote() {
+        return remote;
+    }
+
+    @Override
+    public void send(Message<?> message) {
+        if (!isAux) {
+            provider.send(message, remote);
+        } else {
+            provider.sendAux(message, remote);
+        }
+    }
+
+    @Override
+    public void publish(Message<?> message) {
+        provider.publish(message);
+    }
+
+    public boolean isAux() {
+        return isAux;
+    }
+
+    @Override
+    public CommunicationProvider<?> provider() {
+        return provider;
+    }
+
+}
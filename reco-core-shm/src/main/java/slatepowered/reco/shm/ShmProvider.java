@@ -0,0 +1,417 @@
+package slatepowered.reco.shm;
+
+import lombok.RequiredArgsConstructor;
+import slatepowered.reco.BinaryCommunicationProvider;
+import slatepowered.reco.Message;
+import slatepowered.reco.Serializer;
+import slatepowered.veru.misc.Throwables;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * A communication provider for processes on the same host, which
+ * exchanges messages through memory mapped ring buffers in a shared
+ * directory, by default under {@code /dev/shm}.
+ *
+ * Every node produces into its own ring buffer file and consumes the
+ * ring buffers of all other nodes in the directory, skipping records
+ * which are not addressed to it. Records carry the domain and target
+ * followed by the standard message envelope.
+ *
+ * The consumer thread busy-spins while messages are flowing and backs
+ * off to yielding and then parking when idle.
+ */
+@SuppressWarnings({ "rawtypes" })
+public class ShmProvider extends BinaryCommunicationProvider<ShmChannel> {
+
+    // logger
+    static final Logger LOGGER = Logger.getLogger("ShmProvider");
+
+    // the suffix of ring buffer files
+    static final String FILE_SUFFIX = ".ring";
+
+    // the maximum amount of records read from one
+    // ring buffer before moving on to the next
+    static final int RECEIVE_BATCH = 64;
+
+    public static Builder builder(String localName) {
+        return new Builder(localName);
+    }
+
+    /**
+     * A mapped ring buffer of another node.
+     */
+    static final class Peer {
+        final String remote;
+        final Object fileKey;
+        final ShmRingBuffer.Receiver receiver;
+        long reportedLapped;
+
+        Peer(String remote, Object fileKey, ShmRingBuffer.Receiver receiver) {
+            this.remote = remote;
+            this.fileKey = fileKey;
+            this.receiver = receiver;
+        }
+    }
+
+    ////////////////////////////////////////
+
+    // the shared directory
+    Path directory;
+
+    // the ring buffer this node produces into
+    ShmRingBuffer ringBuffer;
+
+    // the encoded local name, to match direct records
+    final byte[] localNameBytes;
+
+    // the auxiliary channels this node listens on
+    final Set<String> auxChannels = ConcurrentHashMap.newKeySet();
+
+    // the mapped peers by node name, only
+    // accessed by the consumer thread
+    final Map<String, Peer> peers = new HashMap<>();
+
+    /* Wait strategy */
+    int spinTries = 1000;
+    int yieldTries = 100;
+    long minParkNanos = TimeUnit.MICROSECONDS.toNanos(1);
+    long maxParkNanos = TimeUnit.MILLISECONDS.toNanos(1);
+
+    // the interval at which the directory is
+    // scanned for new or replaced ring buffers
+    long scanIntervalNanos = TimeUnit.MILLISECONDS.toNanos(100);
+
+    // the consumer thread
+    Thread consumerThread;
+    volatile boolean open;
+
+    public ShmProvider(String localName, Serializer serializer) {
+        super(localName, serializer);
+        this.localNameBytes = localName.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Set the wait strategy used by the consumer thread when
+     * no records are available.
+     *
+     * @param spinTries The amount of idle iterations to busy-spin.
+     * @param yieldTries The amount of idle iterations to yield after spinning.
+     * @param minParkNanos The initial park duration after yielding.
+     * @param maxParkNanos The maximum park duration.
+     * @return This.
+     */
+    public ShmProvider waitStrategy(int spinTries, int yieldTries, long minParkNanos, long maxParkNanos) {
+        this.spinTries = spinTries;
+        this.yieldTries = yieldTries;
+        this.minParkNanos = minParkNanos;
+        this.maxParkNanos = maxParkNanos;
+        return this;
+    }
+
+    /**
+     * Create the ring buffer for this node in the given directory
+     * and start consuming the ring buffers of the other nodes.
+     *
+     * @param directory The shared directory.
+     * @param capacity The ring buffer capacity in bytes, must be a power of two.
+     * @return This.
+     */
+    public ShmProvider open(Path directory, int capacity) {
+        try {
+            Files.createDirectories(directory);
+            this.directory = directory;
+            this.ringBuffer = ShmRingBuffer.create(directory.resolve(localName + FILE_SUFFIX), capacity);
+
+            // map the existing peers before returning, records they
+            // wrote before this node existed are not received
+            scanPeers(false);
+
+            open = true;
+            consumerThread = new Thread(this::runConsumer, "ShmProvider-" + localName);
+            consumerThread.setDaemon(true);
+            consumerThread.start();
+        } catch (Exception e) {
+            // rethrow error
+            Throwables.sneakyThrow(e);
+        }
+
+        return this;
+    }
+
+    // the main loop of the consumer thread
+    private void runConsumer() {
+        int idleCount = 0;
+        long parkNanos = minParkNanos;
+        long nextScan = System.nanoTime() + scanIntervalNanos;
+
+        while (open) {
+            try {
+                long now = System.nanoTime();
+                if (now - nextScan >= 0) {
+                    scanPeers(true);
+                    nextScan = now + scanIntervalNanos;
+                }
+
+                // poll all peers
+                int received = 0;
+                for (Peer peer : peers.values()) {
+                    ShmRingBuffer.Receiver receiver = peer.receiver;
+                    byte[] record;
+                    int count = 0;
+                    while (count < RECEIVE_BATCH && (record = receiver.receiveNext(this::acceptRecord)) != null) {
+                        handleRecord(record);
+                        count++;
+                    }
+
+                    if (receiver.lappedCount != peer.reportedLapped) {
+                        peer.reportedLapped = receiver.lappedCount;
+                        LOGGER.warning("Lost records from remote '" + peer.remote + "', consumer was lapped by the producer");
+                    }
+
+                    received += count;
+                }
+
+                if (received > 0) {
+                    idleCount = 0;
+                    parkNanos = minParkNanos;
+                    continue;
+                }
+
+                // idle, back off
+                if (idleCount < spinTries) {
+                    idleCount++;
+                } else if (idleCount < spinTries + yieldTries) {
+                    idleCount++;
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(parkNanos);
+                    parkNanos = Math.min(parkNanos * 2, maxParkNanos);
+                }
+            } catch (Throwable t) {
+                LOGGER.warning("Error in shared memory consumer loop");
+                t.printStackTrace();
+            }
+        }
+    }
+
+    // scans the directory for ring buffers of other nodes, new
+    // peers are read from their oldest record if discovered late
+    // so records written before discovery are not lost
+    private void scanPeers(boolean fromOldest) throws IOException {
+        Set<String> found = new HashSet<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+            for (Path path : stream) {
+                String fileName = path.getFileName().toString();
+                String remote = fileName.substring(0, fileName.length() - FILE_SUFFIX.length());
+                if (remote.equals(localName))
+                    continue;
+
+                Object fileKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+                found.add(remote);
+
+                // check whether the ring buffer is already mapped
+                Peer peer = peers.get(remote);
+                if (peer != null && fileKey != null && fileKey.equals(peer.fileKey))
+                    continue;
+
+                ShmRingBuffer peerRingBuffer = ShmRingBuffer.open(path);
+                if (peerRingBuffer != null) {
+                    peers.put(remote, new Peer(remote, fileKey, peerRingBuffer.receiver(fromOldest)));
+
+                    // the remote may have restarted
+                    resetCompactEnvelopes(remote);
+                }
+            }
+        }
+
+        // remove peers whose ring buffer is gone
+        peers.keySet().retainAll(found);
+    }
+
+    // checks whether the record with the body at the given address
+    // may be addressed to this node, before the body is copied
+    private boolean acceptRecord(long bodyAddress, int bodyLength) {
+        if (bodyLength < 3)
+            return false;
+
+        if (ShmRingBuffer.getByte(bodyAddress) != Domain.DIRECT.getEncoded())
+            return true;
+
+        int targetLength = ((ShmRingBuffer.getByte(bodyAddress + 1) & 0xFF) << 8) | (ShmRingBuffer.getByte(bodyAddress + 2) & 0xFF);
+        if (targetLength != localNameBytes.length || 3 + targetLength > bodyLength)
+            return false;
+        for (int i = 0; i < targetLength; i++)
+            if (ShmRingBuffer.getByte(bodyAddress + 3 + i) != localNameBytes[i])
+                return false;
+        return true;
+    }
+
+    // handles a record read from a peer
+    private void handleRecord(byte[] record) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        Domain domain = Domain.getByEncoded(buffer.get());
+        int targetLength = buffer.getShort() & 0xFFFF;
+        int targetOffset = buffer.position();
+        int envelopeOffset = targetOffset + targetLength;
+
+        String queue;
+        if (domain == Domain.DIRECT) {
+            // check whether the record is addressed to this node
+            if (targetLength != localNameBytes.length)
+                return;
+            for (int i = 0; i < targetLength; i++)
+                if (record[targetOffset + i] != localNameBytes[i])
+                    return;
+            queue = localName;
+        } else if (domain == Domain.AUX) {
+            queue = new String(record, targetOffset, targetLength, StandardCharsets.UTF_8);
+            if (!auxChannels.contains(queue))
+                return;
+        } else {
+            queue = directory.toString();
+        }
+
+        receivedFrame(record, envelopeOffset, record.length - envelopeOffset, queue);
+    }
+
+    // writes a record to this node's ring buffer
+    @Override
+    protected void transmitFrame(byte[] envelope, Domain domain, String target) {
+        byte[] targetBytes = target != null ? target.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        byte[] record = new byte[1 + 2 + targetBytes.length + envelope.length];
+        ByteBuffer.wrap(record)
+                .put(domain.getEncoded())
+                .putShort((short) targetBytes.length)
+                .put(targetBytes)
+                .put(envelope);
+
+        // the ring buffer has a single producer
+        synchronized (ringBuffer) {
+            ringBuffer.transmit(record, 0, record.length);
+        }
+    }
+
+    /**
+     * Sends the given message to a specific
+     * target.
+     *
+     * @param message The message.
+     * @param target The target.
+     */
+    public void send(Message message, String target) {
+        sendMessage(message, Domain.DIRECT, target);
+    }
+
+    /**
+     * Sends the given message to a specific
+     * auxiliary target.
+     *
+     * @param message The message.
+     * @param target The aux target.
+     */
+    public void sendAux(Message message, String target) {
+        sendMessage(message, Domain.AUX, target);
+    }
+
+    /**
+     * Publish a message to all nodes
+     * sharing the directory.
+     *
+     * @param message The message to publish.
+     */
+    @Override
+    public void publish(Message<?> message) {
+        if (publishThroughTransport(message))
+            return;
+
+        sendMessage(message, Domain.PUBLISH, null);
+    }
+
+    @Override
+    public ShmChannel newChannel(String remote, boolean aux) {
+        ShmChannel channel = new ShmChannel(this, remote, aux);
+        withChannel(channel);
+
+        if (aux) {
+            // listen for messages on the aux channel
+            auxChannels.add(remote);
+        }
+
+        return channel;
+    }
+
+    @Override
+    public void send(Message<?> message, ShmChannel channel) {
+        channel.send(message);
+    }
+
+    @Override
+    public void close() {
+        closeBatcher();
+        open = false;
+        closePublishTransport();
+
+        try {
+            if (consumerThread != null) {
+                LockSupport.unpark(consumerThread);
+                consumerThread.join(1000);
+            }
+
+            if (ringBuffer != null)
+                Files.deleteIfExists(ringBuffer.path);
+        } catch (Throwable t) {
+            Throwables.sneakyThrow(t);
+        }
+    }
+
+    /**
+     * Builds a shared memory provider instance.
+     */
+    @RequiredArgsConstructor
+    public static class Builder {
+        /** The name of the local node. */
+        protected final String localName;
+        /** The serializer to use for message content. */
+        protected Serializer serializer;
+
+        protected Path directory = Paths.get("/dev/shm", "reco");
+        protected int capacity = 4 * 1024 * 1024;
+
+        public Builder serializer(Serializer serializer) {
+            this.serializer = serializer;
+            return this;
+        }
+
+        public Builder directory(Path directory) {
+            this.directory = directory;
+            return this;
+        }
+
+        public Builder capacity(int capacity) {
+            this.capacity = capacity;
+            return this;
+        }
+
+        public ShmProvider build() {
+            return new ShmProvider(localName, serializer)
+                    .open(directory, capacity);
+        }
+    }
+
+}
@@ -0,0 +1,342 @@
+package slatepowered.reco.shm;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.nio.Buffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+/**
+ * A single-producer/multi-consumer ring buffer living in a
+ * memory mapped file, shared between processes on the same host.
+ *
+ * The producer never waits for consumers. Each consumer tracks its
+ * own cursor and detects when it has been lapped by the producer,
+ * in which case the overwritten records are lost. Publishing and
+ * consuming a record only touches mapped memory, no system calls
+ * are made on the hot path.
+ *
+ * Layout: a header with the magic value, the capacity, the tail
+ * intent counter, the tail counter and the head, which is the start
+ * of the oldest record not yet overwritten, followed by the data area.
+ * Each record is an 8 byte aligned length and type header followed
+ * by the record body.
+ */
+final class ShmRingBuffer {
+
+    // the unsafe instance
+    static final sun.misc.Unsafe UNSAFE;
+
+    // the offset of the address field in direct buffers
+    static final long BUFFER_ADDRESS_OFFSET;
+
+    // the base offset of byte arrays
+    static final long BYTE_ARRAY_OFFSET;
+
+    static {
+        try {
+            // get using reflection
+            Field field = sun.misc.Unsafe.class.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            UNSAFE = (sun.misc.Unsafe) field.get(null);
+
+            BUFFER_ADDRESS_OFFSET = UNSAFE.objectFieldOffset(Buffer.class.getDeclaredField("address"));
+            BYTE_ARRAY_OFFSET = UNSAFE.arrayBaseOffset(byte[].class);
+        } catch (Exception e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /* Header layout */
+    static final int MAGIC = 0x5245434F;            // 'RECO'
+    static final int MAGIC_OFFSET = 0;
+    static final int CAPACITY_OFFSET = 4;
+    static final int TAIL_INTENT_OFFSET = 64;       // on its own cache line
+    static final int TAIL_OFFSET = 128;             // on its own cache line
+    static final int HEAD_OFFSET = 192;             // on its own cache line
+    static final int HEADER_LENGTH = 256;
+
+    /* Record layout */
+    static final int RECORD_HEADER_LENGTH = 8;
+    static final int RECORD_ALIGNMENT = 8;
+    static final int TYPE_PADDING = -1;
+    static final int TYPE_MESSAGE = 1;
+
+    // aligns the given length to the record alignment
+    static int align(int length) {
+        return (length + RECORD_ALIGNMENT - 1) & ~(RECORD_ALIGNMENT - 1);
+    }
+
+    /**
+     * Create or reset the ring buffer file at the given path
+     * and map it for producing.
+     *
+     * @param path The file path.
+     * @param capacity The capacity of the data area, must be a power of two.
+     * @return The ring buffer.
+     */
+    static ShmRingBuffer create(Path path, int capacity) throws IOException {
+        if (Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("Capacity must be a power of two, got " + capacity);
+
+        path.toFile().delete();
+        ShmRingBuffer ringBuffer = map(path, HEADER_LENGTH + capacity);
+        UNSAFE.putInt(ringBuffer.address + CAPACITY_OFFSET, capacity);
+        UNSAFE.putLong(ringBuffer.address + TAIL_INTENT_OFFSET, 0);
+        UNSAFE.putLong(ringBuffer.address + HEAD_OFFSET, 0);
+        UNSAFE.putOrderedLong(null, ringBuffer.address + TAIL_OFFSET, 0);
+        UNSAFE.putIntVolatile(null, ringBuffer.address + MAGIC_OFFSET, MAGIC);
+        return ringBuffer.init();
+    }
+
+    /**
+     * Map an existing ring buffer file for consuming.
+     *
+     * @param path The file path.
+     * @return The ring buffer or null if the file is not initialized yet.
+     */
+    static ShmRingBuffer open(Path path) throws IOException {
+        ShmRingBuffer ringBuffer = map(path, -1);
+        if (ringBuffer == null || UNSAFE.getIntVolatile(null, ringBuffer.address + MAGIC_OFFSET) != MAGIC)
+            return null;
+        return ringBuffer.init();
+    }
+
+    // maps the file at the given path
+    private static ShmRingBuffer map(Path path, long length) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            if (length >= 0) file.setLength(length);
+            else length = file.length();
+            if (length < HEADER_LENGTH)
+                return null;
+
+            MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+            return new ShmRingBuffer(path, buffer);
+        }
+    }
+
+    ////////////////////////////////////////
+
+    // the file path
+    final Path path;
+
+    // the mapped buffer, referenced to
+    // keep the mapping alive
+    final MappedByteBuffer buffer;
+
+    // the address of the mapping
+    final long address;
+
+    // the capacity and index mask of the data area
+    int capacity;
+    int mask;
+
+    // the producer tail and head, only used by the producer
+    long producerTail;
+    long producerHead;
+
+    private ShmRingBuffer(Path path, MappedByteBuffer buffer) {
+        this.path = path;
+        this.buffer = buffer;
+        this.address = UNSAFE.getLong(buffer, BUFFER_ADDRESS_OFFSET);
+    }
+
+    private ShmRingBuffer init() {
+        this.capacity = UNSAFE.getInt(address + CAPACITY_OFFSET);
+        this.mask = capacity - 1;
+        this.producerTail = tail();
+        this.producerHead = head();
+        return this;
+    }
+
+    /**
+     * Get the maximum length of a record body.
+     */
+    int maxBodyLength() {
+        return capacity / 8 - RECORD_HEADER_LENGTH;
+    }
+
+    // reads the published tail
+    long tail() {
+        return UNSAFE.getLongVolatile(null, address + TAIL_OFFSET);
+    }
+
+    // reads the tail intent
+    long tailIntent() {
+        return UNSAFE.getLongVolatile(null, address + TAIL_INTENT_OFFSET);
+    }
+
+    // reads the published head
+    long head() {
+        return UNSAFE.getLongVolatile(null, address + HEAD_OFFSET);
+    }
+
+    // moves the head past the records which are overwritten
+    // by writing up to the given position, called by the
+    // producer before announcing the write
+    private void advanceHead(long end) {
+        long head = producerHead;
+        while (end - head > capacity) {
+            long recordAddress = address + HEADER_LENGTH + (head & mask);
+            int recordLength = UNSAFE.getInt(recordAddress);
+            int type = UNSAFE.getInt(recordAddress + 4);
+            head += type == TYPE_PADDING ? recordLength : align(recordLength);
+        }
+
+        if (head != producerHead) {
+            producerHead = head;
+            UNSAFE.putOrderedLong(null, address + HEAD_OFFSET, head);
+        }
+    }
+
+    /**
+     * Publish a record with the given body. Must only be
+     * called by the single producer of this ring buffer.
+     *
+     * @param body The body bytes.
+     * @param offset The offset of the body.
+     * @param length The length of the body.
+     */
+    void transmit(byte[] body, int offset, int length) {
+        if (length > maxBodyLength())
+            throw new IllegalArgumentException("Record of " + length + " bytes exceeds the maximum of " + maxBodyLength());
+
+        final int recordLength = RECORD_HEADER_LENGTH + length;
+        final int alignedLength = align(recordLength);
+
+        long tail = producerTail;
+        int index = (int) (tail & mask);
+        int toEnd = capacity - index;
+
+        if (alignedLength > toEnd) {
+            // pad until the end of the buffer and wrap
+            advanceHead(tail + toEnd + alignedLength);
+            UNSAFE.putLong(address + TAIL_INTENT_OFFSET, tail + toEnd + alignedLength);
+            UNSAFE.storeFence();
+
+            UNSAFE.putInt(address + HEADER_LENGTH + index + 4, TYPE_PADDING);
+            UNSAFE.putInt(address + HEADER_LENGTH + index, toEnd);
+
+            tail += toEnd;
+            index = 0;
+        } else {
+            advanceHead(tail + alignedLength);
+            UNSAFE.putLong(address + TAIL_INTENT_OFFSET, tail + alignedLength);
+            UNSAFE.storeFence();
+        }
+
+        // write the record
+        long recordAddress = address + HEADER_LENGTH + index;
+        UNSAFE.putInt(recordAddress + 4, TYPE_MESSAGE);
+        UNSAFE.putInt(recordAddress, recordLength);
+        UNSAFE.copyMemory(body, BYTE_ARRAY_OFFSET + offset, null, recordAddress + RECORD_HEADER_LENGTH, length);
+
+        // publish the record
+        producerTail = tail + alignedLength;
+        UNSAFE.putOrderedLong(null, address + TAIL_OFFSET, producerTail);
+    }
+
+    /**
+     * Create a new receiver starting at the current tail,
+     * or at the oldest record still in the buffer.
+     *
+     * @param fromOldest Whether to start at the oldest record.
+     * @return The receiver.
+     */
+    Receiver receiver(boolean fromOldest) {
+        return new Receiver(fromOldest ? head() : tail());
+    }
+
+    /**
+     * Filters records before their body is copied.
+     */
+    interface RecordFilter {
+        /**
+         * Check whether to receive the record with the body
+         * at the given address. The body may be overwritten
+         * concurrently, the result is discarded if it was.
+         */
+        boolean accept(long bodyAddress, int bodyLength);
+    }
+
+    // reads a byte of a record body
+    static byte getByte(long address) {
+        return UNSAFE.getByte(address);
+    }
+
+    /**
+     * A consumer of the ring buffer with its own cursor.
+     */
+    final class Receiver {
+
+        // the position of the next record to read
+        long cursor;
+
+        // the amount of times this receiver was lapped
+        long lappedCount;
+
+        Receiver(long cursor) {
+            this.cursor = cursor;
+        }
+
+        /**
+         * Get the ring buffer this receiver reads.
+         */
+        ShmRingBuffer ringBuffer() {
+            return ShmRingBuffer.this;
+        }
+
+        /**
+         * Read the next record accepted by the filter if available.
+         *
+         * @param filter The filter.
+         * @return The record body or null if no record is available.
+         */
+        byte[] receiveNext(RecordFilter filter) {
+            while (true) {
+                long tail = tail();
+                long cursor = this.cursor;
+                if (tail <= cursor)
+                    return null;
+
+                if (tail - cursor > capacity) {
+                    // the producer overwrote unread records
+                    lapped(tail);
+                    continue;
+                }
+
+                long recordAddress = address + HEADER_LENGTH + (cursor & mask);
+                int recordLength = UNSAFE.getInt(recordAddress);
+                int type = UNSAFE.getInt(recordAddress + 4);
+
+                byte[] body = null;
+                if (type == TYPE_MESSAGE && recordLength >= RECORD_HEADER_LENGTH && recordLength <= capacity &&
+                        filter.accept(recordAddress + RECORD_HEADER_LENGTH, recordLength - RECORD_HEADER_LENGTH)) {
+                    body = new byte[recordLength - RECORD_HEADER_LENGTH];
+                    UNSAFE.copyMemory(null, recordAddress + RECORD_HEADER_LENGTH, body, BYTE_ARRAY_OFFSET, body.length);
+                }
+
+                // make sure the record was not overwritten while copying
+                UNSAFE.loadFence();
+                if (tailIntent() - cursor > capacity || (type != TYPE_MESSAGE && type != TYPE_PADDING)) {
+                    lapped(tail());
+                    continue;
+                }
+
+                this.cursor = cursor + (type == TYPE_PADDING ? recordLength : align(recordLength));
+                if (body != null)
+                    return body;
+            }
+        }
+
+        // skip to the given tail after being lapped
+        private void lapped(long tail) {
+            lappedCount++;
+            cursor = tail;
+        }
+
+    }
+
+}
@@ -0,0 +1,64 @@
+package test.slatepowered.reco;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import slatepowered.reco.CommunicationProvider;
+import slatepowered.reco.Message;
+import slatepowered.reco.ReceivedMessage;
+import slatepowered.reco.serializer.KryoSerializer;
+import slatepowered.reco.shm.ShmProvider;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ShmProviderTest {
+
+    @Test
+    void test_DirectAndPublish() throws Exception {
+        Path directory = Files.createTempDirectory("reco-shm");
+        ShmProvider providerA = ShmProvider.builder("a")
+                .serializer(KryoSerializer.standard())
+                .directory(directory)
+                .capacity(8 * 1024) // small to wrap around often
+                .build();
+        ShmProvider providerB = ShmProvider.builder("b")
+                .serializer(KryoSerializer.standard())
+                .directory(directory)
+                .capacity(8 * 1024)
+                .build();
+
+        try {
+            CompletableFuture<ReceivedMessage<String>> published = new CompletableFuture<>();
+            providerA.listen("news").<String>on().then(published::complete);
+            providerA.listen("ping").<Integer>on().then(message ->
+                    message.getChannel().send(new Message<>("pong", message.payload() + 1)));
+
+            AtomicReference<CompletableFuture<ReceivedMessage<Integer>>> pongRef = new AtomicReference<>();
+            providerB.listen("pong").<Integer>on().then(message -> pongRef.get().complete(message));
+
+            for (int i = 0; i < 500; i++) {
+                CompletableFuture<ReceivedMessage<Integer>> pong = new CompletableFuture<>();
+                pongRef.set(pong);
+                providerB.channel("a").send(new Message<>("ping", i));
+
+                ReceivedMessage<Integer> response = pong.get(5, TimeUnit.SECONDS);
+                Assertions.assertEquals(i + 1, (int) response.payload());
+                Assertions.assertEquals("a", response.getSource());
+            }
+
+            // publications reach every other node
+            providerB.publish(new Message<>("news", "extra"));
+
+            ReceivedMessage<String> news = published.get(5, TimeUnit.SECONDS);
+            Assertions.assertEquals("extra", news.payload());
+            Assertions.assertEquals(CommunicationProvider.Domain.PUBLISH, news.getDomain());
+        } finally {
+            providerB.close();
+            providerA.close();
+        }
+    }
+
+}
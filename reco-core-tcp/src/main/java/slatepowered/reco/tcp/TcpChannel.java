@@ -0,0 +1,52 @@
+package slatepowered.reco.tcp;
+
+import slatepowered.reco.AbstractChannel;
+import slatepowered.reco.CommunicationProvider;
+import slatepowered.reco.Message;
+
+public class TcpChannel extends AbstractChannel {
+
+    // the TCP provider
+    final TcpProvider provider;
+
+    // the remote node name
+    final String remote;
+
+    // whether this channel is auxiliary
+    final boolean isAux;
+
+    public TcpChannel(TcpProvider provider, String remote, boolean isAux) {
+        this.provider = provider;
+        this.remote = remote;
+        this.isAux = isAux;
+    }
+
+    @Override
+    public String remote() {
+        return remote;
+    }
+
+    @Override
+    public void send(Message<?> message) {
+        if (!isAux) {
+            provider.send(message, remote);
+        } else {
+            provider.sendAux(message, remote);
+        }
+    }
+
+    @Override
+    public void publish(Message<?> message) {
+        provider.publish(message);
+    }
+
+    public boolean isAux() {
+        return isAux;
+    }
+
+    @Override
+    public CommunicationProvider<?> provider() {
+        return provider;
+    }
+
+}
@@ -0,0 +1,164 @@
+package slatepowered.reco.tcp;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A single peer-to-peer socket connection of a {@link TcpProvider}.
+ *
+ * All socket operations happen on the IO thread of the provider,
+ * other threads only enqueue frames to be written.
+ */
+final class TcpConnection {
+
+    // the initial size of the read buffer
+    static final int INITIAL_READ_BUFFER_SIZE = 64 * 1024;
+
+    // the provider owning this connection
+    final TcpProvider provider;
+
+    // the socket channel
+    final SocketChannel channel;
+
+    // the address to reconnect to, null
+    // if this connection was accepted
+    final InetSocketAddress address;
+
+    // the selection key, set on the IO thread
+    SelectionKey key;
+
+    // the name of the remote node, known either
+    // upfront or after receiving the hello frame
+    volatile String remote;
+
+    // whether this connection has been closed
+    volatile boolean closed;
+
+    // the frames waiting to be written
+    final Queue<ByteBuffer> writeQueue = new ConcurrentLinkedQueue<>();
+
+    // whether a write has been requested from the IO thread
+    final AtomicBoolean writeRequested = new AtomicBoolean();
+
+    // the buffer frames are read into
+    ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_READ_BUFFER_SIZE);
+
+    TcpConnection(TcpProvider provider, SocketChannel channel, InetSocketAddress address, String remote) {
+        this.provider = provider;
+        this.channel = channel;
+        this.address = address;
+        this.remote = remote;
+    }
+
+    /**
+     * Enqueue the given frame to be written
+     * by the IO thread.
+     *
+     * @param frame The frame buffer.
+     */
+    void write(ByteBuffer frame) {
+        if (closed)
+            return;
+
+        writeQueue.add(frame);
+        if (writeRequested.compareAndSet(false, true)) {
+            provider.runOnIoThread(this::updateInterest);
+        }
+    }
+
+    // update the interest ops on the IO thread
+    void updateInterest() {
+        if (key == null || !key.isValid() || channel.isConnectionPending())
+            return;
+
+        int ops = SelectionKey.OP_READ;
+        if (!writeQueue.isEmpty())
+            ops |= SelectionKey.OP_WRITE;
+        key.interestOps(ops);
+    }
+
+    // write as many queued frames as possible
+    // without blocking, called on the IO thread
+    void flush() throws IOException {
+        ByteBuffer buffer;
+        while ((buffer = writeQueue.peek()) != null) {
+            channel.write(buffer);
+            if (buffer.hasRemaining()) {
+                // the socket buffer is full
+                return;
+            }
+
+            writeQueue.poll();
+        }
+
+        // everything written, stop listening for writability
+        writeRequested.set(false);
+        updateInterest();
+    }
+
+    // read available data and handle all
+    // complete frames, called on the IO thread
+    void read() throws IOException {
+        int read = channel.read(readBuffer);
+        if (read == -1) {
+            throw new IOException("Connection closed by remote");
+        }
+
+        readBuffer.flip();
+        while (readBuffer.remaining() >= 4) {
+            int length = readBuffer.getInt(readBuffer.position());
+            if (length <= 0 || length > provider.maxFrameLength) {
+                throw new IOException("Invalid frame length " + length);
+            }
+
+            if (readBuffer.remaining() < 4 + length) {
+                // grow the buffer if the frame does not fit
+                if (readBuffer.capacity() < 4 + length) {
+                    ByteBuffer newBuffer = ByteBuffer.allocate(Math.max(4 + length, readBuffer.capacity() * 2));
+                    newBuffer.put(readBuffer);
+                    readBuffer = newBuffer;
+                    return;
+                }
+
+                break;
+            }
+
+            // read the frame
+            readBuffer.getInt();
+            byte type = readBuffer.get();
+            byte[] body = new byte[length - 1];
+            readBuffer.get(body);
+
+            provider.handleFrame(this, type, body);
+        }
+
+        readBuffer.compact();
+    }
+
+    // closes the socket channel
+    void close() {
+        if (closed)
+            return;
+        closed = true;
+
+        try {
+            if (key != null)
+                key.cancel();
+            channel.close();
+        } catch (IOException ignored) {
+            // nothing to do
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TcpConnection(" + remote + " " + (address != null ? address : "inbound") + ")";
+    }
+
+}
@@ -0,0 +1,541 @@
+package slatepowered.reco.tcp;
+
+import lombok.RequiredArgsConstructor;
+import slatepowered.reco.BinaryCommunicationProvider;
+import slatepowered.reco.Message;
+import slatepowered.reco.Serializer;
+import slatepowered.veru.misc.Throwables;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Logger;
+
+/**
+ * A brokerless communication provider which connects nodes
+ * peer-to-peer over TCP using non-blocking sockets.
+ *
+ * Every frame on the wire is a 4 byte length prefix followed by
+ * a frame type and the frame body. Message frames carry the same
+ * envelope as every other {@link BinaryCommunicationProvider}.
+ * Published messages are fanned out to every connected peer.
+ */
+@SuppressWarnings({ "rawtypes" })
+public class TcpProvider extends BinaryCommunicationProvider<TcpChannel> {
+
+    // logger
+    static final Logger LOGGER = Logger.getLogger("TcpProvider");
+
+    /* Frame types */
+    static final byte FRAME_HELLO = 0;   // Introduces the sending node by name
+    static final byte FRAME_MESSAGE = 1; // A direct or published message envelope
+    static final byte FRAME_AUX = 2;     // An auxiliary message prefixed by the aux channel name
+
+    public static Builder builder(String localName) {
+        return new Builder(localName);
+    }
+
+    ////////////////////////////////////////
+
+    // the maximum length of a single frame
+    int maxFrameLength = 64 * 1024 * 1024;
+
+    // the delay in milliseconds before reconnecting
+    // an outbound connection which was lost
+    long reconnectDelay = 1000;
+
+    // the selector and the IO thread
+    Selector selector;
+    Thread ioThread;
+    volatile boolean open;
+
+    // the server socket channel, null if not bound
+    ServerSocketChannel serverChannel;
+
+    // the tasks to run on the IO thread
+    final Queue<Runnable> ioTasks = new ConcurrentLinkedQueue<>();
+
+    // the connections by remote node name
+    final Map<String, TcpConnection> connectionsByRemote = new ConcurrentHashMap<>();
+
+    // all open connections, including the ones
+    // not yet identified by a hello frame
+    final Set<TcpConnection> connections = ConcurrentHashMap.newKeySet();
+
+    // the auxiliary channels this node listens on
+    final Set<String> auxChannels = ConcurrentHashMap.newKeySet();
+
+    public TcpProvider(String localName, Serializer serializer) {
+        super(localName, serializer);
+    }
+
+    public TcpProvider maxFrameLength(int maxFrameLength) {
+        this.maxFrameLength = maxFrameLength;
+        return this;
+    }
+
+    public TcpProvider reconnectDelay(long reconnectDelay) {
+        this.reconnectDelay = reconnectDelay;
+        return this;
+    }
+
+    /**
+     * Get the address the server socket is bound to.
+     *
+     * @return The address or null if not bound.
+     */
+    public InetSocketAddress getLocalAddress() {
+        try {
+            return serverChannel != null ? (InetSocketAddress) serverChannel.getLocalAddress() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // opens the selector and starts the IO
+    // thread if it is not running yet
+    private synchronized void ensureOpen() throws IOException {
+        if (open)
+            return;
+
+        selector = Selector.open();
+        open = true;
+
+        ioThread = new Thread(this::runIoLoop, "TcpProvider-" + localName);
+        ioThread.setDaemon(true);
+        ioThread.start();
+    }
+
+    /**
+     * Bind a server socket on the given address and
+     * accept connections from other nodes.
+     *
+     * @param address The address to bind to.
+     * @return This.
+     */
+    public TcpProvider bind(InetSocketAddress address) {
+        try {
+            ensureOpen();
+
+            ServerSocketChannel serverChannel = ServerSocketChannel.open();
+            serverChannel.configureBlocking(false);
+            serverChannel.bind(address);
+            this.serverChannel = serverChannel;
+
+            runOnIoThread(() -> {
+                try {
+                    serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+                } catch (IOException e) {
+                    Throwables.sneakyThrow(e);
+                }
+            });
+        } catch (Exception e) {
+            // rethrow error
+            Throwables.sneakyThrow(e);
+        }
+
+        return this;
+    }
+
+    /**
+     * Bind a server socket on the given port on
+     * all interfaces.
+     *
+     * @param port The port, 0 to pick any free port.
+     * @return This.
+     */
+    public TcpProvider bind(int port) {
+        return bind(new InetSocketAddress(port));
+    }
+
+    /**
+     * Connect to the node with the given name at the given
+     * address. Messages sent to the remote before the connection
+     * is established are queued.
+     *
+     * @param remote The remote node name.
+     * @param address The address of the remote.
+     * @return This.
+     */
+    public TcpProvider connect(String remote, InetSocketAddress address) {
+        try {
+            ensureOpen();
+            openConnection(remote, address);
+        } catch (Exception e) {
+            // rethrow error
+            Throwables.sneakyThrow(e);
+        }
+
+        return this;
+    }
+
+    // opens an outbound connection
+    private void openConnection(String remote, InetSocketAddress address) throws IOException {
+        SocketChannel channel = SocketChannel.open();
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+        TcpConnection connection = new TcpConnection(this, channel, address, remote);
+        connections.add(connection);
+        connection.write(helloFrame());
+        connectionsByRemote.put(remote, connection);
+        resetCompactEnvelopes(remote);
+
+        runOnIoThread(() -> {
+            try {
+                connection.key = channel.register(selector, SelectionKey.OP_CONNECT, connection);
+                if (channel.connect(address)) {
+                    connected(connection);
+                }
+            } catch (IOException e) {
+                connectionFailed(connection, e);
+            }
+        });
+    }
+
+    /**
+     * Run the given task on the IO thread.
+     *
+     * @param task The task.
+     */
+    void runOnIoThread(Runnable task) {
+        ioTasks.add(task);
+        Selector selector = this.selector;
+        if (selector != null)
+            selector.wakeup();
+    }
+
+    // the main loop of the IO thread
+    private void runIoLoop() {
+        while (open) {
+            try {
+                selector.select();
+
+                // run queued tasks
+                Runnable task;
+                while ((task = ioTasks.poll()) != null) {
+                    task.run();
+                }
+
+                // handle ready keys
+                Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    SelectionKey key = iterator.next();
+                    iterator.remove();
+                    handleKey(key);
+                }
+            } catch (Throwable t) {
+                if (!open)
+                    break;
+
+                LOGGER.warning("Error in TCP IO loop");
+                t.printStackTrace();
+            }
+        }
+    }
+
+    // handles a ready selection key
+    private void handleKey(SelectionKey key) {
+        if (!key.isValid())
+            return;
+
+        if (key.isAcceptable()) {
+            accept((ServerSocketChannel) key.channel());
+            return;
+        }
+
+        TcpConnection connection = (TcpConnection) key.attachment();
+        try {
+            if (key.isConnectable()) {
+                if (connection.channel.finishConnect()) {
+                    connected(connection);
+                }
+            }
+
+            if (key.isValid() && key.isReadable()) {
+                connection.read();
+            }
+
+            if (key.isValid() && key.isWritable()) {
+                connection.flush();
+            }
+        } catch (IOException e) {
+            connectionFailed(connection, e);
+        }
+    }
+
+    // accepts an inbound connection
+    private void accept(ServerSocketChannel serverChannel) {
+        try {
+            SocketChannel channel = serverChannel.accept();
+            if (channel == null)
+                return;
+
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+            // the remote name is known after the hello frame
+            TcpConnection connection = new TcpConnection(this, channel, null, null);
+            connections.add(connection);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            connection.write(helloFrame());
+        } catch (IOException e) {
+            LOGGER.warning("Failed to accept TCP connection: " + e);
+        }
+    }
+
+    // called when an outbound connection was established
+    private void connected(TcpConnection connection) {
+        connection.updateInterest();
+    }
+
+    // called when a connection failed or was lost
+    private void connectionFailed(TcpConnection connection, IOException e) {
+        connection.close();
+        connections.remove(connection);
+
+        String remote = connection.remote;
+        if (remote == null)
+            return;
+
+        connectionsByRemote.remove(remote, connection);
+        resetCompactEnvelopes(remote);
+        if (!open)
+            return;
+
+        LOGGER.warning("Lost TCP connection to remote '" + remote + "': " + e.getMessage());
+        if (connection.address != null) {
+            // schedule reconnect
+            Thread thread = new Thread(() -> {
+                try {
+                    Thread.sleep(reconnectDelay);
+                    if (open && !connectionsByRemote.containsKey(remote)) {
+                        openConnection(remote, connection.address);
+                    }
+                } catch (Exception ex) {
+                    LOGGER.warning("Failed to reconnect to remote '" + remote + "': " + ex);
+                }
+            }, "TcpProvider-reconnect-" + remote);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    // handles a frame received on the given connection,
+    // malformed frames fail the connection
+    void handleFrame(TcpConnection connection, byte type, byte[] body) throws IOException {
+        switch (type) {
+            case FRAME_HELLO: {
+                String remote = new String(body, StandardCharsets.UTF_8);
+                connection.remote = remote;
+                connectionsByRemote.putIfAbsent(remote, connection);
+                break;
+            }
+
+            case FRAME_MESSAGE: {
+                if (connection.remote == null) {
+                    LOGGER.warning("Received message before hello on " + connection);
+                    break;
+                }
+
+                receivedFrame(body, localName);
+                break;
+            }
+
+            case FRAME_AUX: {
+                if (body.length < 2)
+                    throw new IOException("Truncated aux frame of " + body.length + " bytes");
+                ByteBuffer buffer = ByteBuffer.wrap(body);
+                int auxLength = buffer.getShort() & 0xFFFF;
+                if (buffer.remaining() < auxLength)
+                    throw new IOException("Invalid aux name length " + auxLength + " in frame of " + body.length + " bytes");
+                byte[] auxBytes = new byte[auxLength];
+                buffer.get(auxBytes);
+                String aux = new String(auxBytes, StandardCharsets.UTF_8);
+
+                // only handle aux channels we listen on
+                if (!auxChannels.contains(aux))
+                    break;
+
+                receivedFrame(body, buffer.position(), buffer.remaining(), aux);
+                break;
+            }
+
+            default:
+                LOGGER.warning("Received unknown frame type " + type + " on " + connection);
+        }
+    }
+
+    // creates a frame buffer with the given type and body
+    private static ByteBuffer frame(byte type, byte[] prefix, byte[] body) {
+        int prefixLength = prefix != null ? 2 + prefix.length : 0;
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 1 + prefixLength + body.length);
+        buffer.putInt(1 + prefixLength + body.length);
+        buffer.put(type);
+        if (prefix != null) {
+            buffer.putShort((short) prefix.length);
+            buffer.put(prefix);
+        }
+
+        buffer.put(body);
+        buffer.flip();
+        return buffer;
+    }
+
+    // creates the hello frame for this node
+    private ByteBuffer helloFrame() {
+        return frame(FRAME_HELLO, null, localName.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sends the given message to a specific
+     * target.
+     *
+     * @param message The message.
+     * @param target The target.
+     */
+    public void send(Message message, String target) {
+        sendMessage(message, Domain.DIRECT, target);
+    }
+
+    /**
+     * Sends the given message to a specific
+     * auxiliary target, which is every connected
+     * peer listening on that aux channel.
+     *
+     * @param message The message.
+     * @param target The aux target.
+     */
+    public void sendAux(Message message, String target) {
+        sendMessage(message, Domain.AUX, target);
+    }
+
+    /**
+     * Publish a message to all connected
+     * peers.
+     *
+     * @param message The message to publish.
+     */
+    @Override
+    public void publish(Message<?> message) {
+        if (publishThroughTransport(message))
+            return;
+
+        sendMessage(message, Domain.PUBLISH, null);
+    }
+
+    @Override
+    protected void transmitFrame(byte[] envelope, Domain domain, String target) {
+        if (domain == Domain.DIRECT) {
+            TcpConnection connection = connectionsByRemote.get(target);
+            if (connection == null) {
+                logger.warning("Direct message sent to unconnected remote '" + target + "'");
+                return;
+            }
+
+            connection.write(frame(FRAME_MESSAGE, null, envelope));
+            return;
+        }
+
+        // aux messages and publications go to all peers
+        ByteBuffer frame = domain == Domain.AUX ?
+                frame(FRAME_AUX, target.getBytes(StandardCharsets.UTF_8), envelope) :
+                frame(FRAME_MESSAGE, null, envelope);
+        for (TcpConnection connection : connectionsByRemote.values()) {
+            connection.write(frame.duplicate());
+        }
+    }
+
+    @Override
+    public TcpChannel newChannel(String remote, boolean aux) {
+        TcpChannel channel = new TcpChannel(this, remote, aux);
+        withChannel(channel);
+
+        if (aux) {
+            // listen for messages on the aux channel
+            auxChannels.add(remote);
+        }
+
+        return channel;
+    }
+
+    @Override
+    public void send(Message<?> message, TcpChannel channel) {
+        channel.send(message);
+    }
+
+    @Override
+    public void close() {
+        closeBatcher();
+        open = false;
+        closePublishTransport();
+
+        try {
+            for (TcpConnection connection : connections) {
+                connection.close();
+            }
+
+            connections.clear();
+            connectionsByRemote.clear();
+            if (serverChannel != null)
+                serverChannel.close();
+            if (selector != null)
+                selector.close();
+        } catch (Throwable t) {
+            Throwables.sneakyThrow(t);
+        }
+    }
+
+    /**
+     * Builds a TCP provider instance.
+     */
+    @RequiredArgsConstructor
+    public static class Builder {
+        /** The name of the local node. */
+        protected final String localName;
+        /** The serializer to use for message content. */
+        protected Serializer serializer;
+
+        protected InetSocketAddress bindAddress;
+        protected final Map<String, InetSocketAddress> peers = new ConcurrentHashMap<>();
+
+        public Builder serializer(Serializer serializer) {
+            this.serializer = serializer;
+            return this;
+        }
+
+        public Builder bind(InetSocketAddress bindAddress) {
+            this.bindAddress = bindAddress;
+            return this;
+        }
+
+        public Builder bind(int port) {
+            return bind(new InetSocketAddress(port));
+        }
+
+        public Builder peer(String remote, InetSocketAddress address) {
+            peers.put(remote, address);
+            return this;
+        }
+
+        public TcpProvider build() {
+            TcpProvider provider = new TcpProvider(localName, serializer);
+            if (bindAddress != null) provider.bind(bindAddress);
+            peers.forEach(provider::connect);
+            return provider;
+        }
+    }
+
+}
@@ -0,0 +1,178 @@
+package test.slatepowered.reco;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import slatepowered.reco.CommunicationProvider;
+import slatepowered.reco.CompactEnvelopes;
+import slatepowered.reco.Message;
+import slatepowered.reco.ReceivedMessage;
+import slatepowered.reco.serializer.KryoSerializer;
+import slatepowered.reco.tcp.TcpProvider;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class TcpProviderTest {
+
+    @Test
+    void test_DirectAndPublish() throws Exception {
+        TcpProvider providerA = TcpProvider.builder("a")
+                .serializer(KryoSerializer.standard())
+                .bind(new InetSocketAddress("127.0.0.1", 0))
+                .build();
+        TcpProvider providerB = TcpProvider.builder("b")
+                .serializer(KryoSerializer.standard())
+                .peer("a", providerA.getLocalAddress())
+                .build();
+
+        try {
+            // reply to pings on node A over the channel they came from
+            providerA.listen("ping").<String>on().then(message ->
+                    message.getChannel().send(new Message<>("pong", message.payload() + "!")));
+
+            CompletableFuture<ReceivedMessage<String>> pong = new CompletableFuture<>();
+            providerB.listen("pong").<String>on().then(pong::complete);
+            providerB.channel("a").send(new Message<>("ping", "hello"));
+
+            ReceivedMessage<String> response = pong.get(5, TimeUnit.SECONDS);
+            Assertions.assertEquals("hello!", response.payload());
+            Assertions.assertEquals("a", response.getSource());
+            Assertions.assertEquals(CommunicationProvider.Domain.DIRECT, response.getDomain());
+
+            // publications reach connected peers
+            CompletableFuture<ReceivedMessage<String>> published = new CompletableFuture<>();
+            providerA.listen("news").<String>on().then(published::complete);
+            providerB.publish(new Message<>("news", "extra"));
+
+            ReceivedMessage<String> news = published.get(5, TimeUnit.SECONDS);
+            Assertions.assertEquals("extra", news.payload());
+            Assertions.assertEquals(CommunicationProvider.Domain.PUBLISH, news.getDomain());
+        } finally {
+            providerB.close();
+            providerA.close();
+        }
+    }
+
+    @Test
+    void test_BatchedSend() throws Exception {
+        TcpProvider providerA = TcpProvider.builder("a")
+                .serializer(KryoSerializer.standard())
+                .bind(new InetSocketAddress("127.0.0.1", 0))
+                .build();
+        TcpProvider providerB = TcpProvider.builder("b")
+                .serializer(KryoSerializer.standard())
+                .peer("a", providerA.getLocalAddress())
+                .build();
+
+        try {
+            final int count = 1000;
+            List<Integer> received = new CopyOnWriteArrayList<>();
+            CountDownLatch done = new CountDownLatch(count);
+            providerA.listen("seq").<Integer>on().then(message -> {
+                received.add(message.payload());
+                done.countDown();
+            });
+
+            // batched messages arrive unpacked and in order
+            providerB.batching(providerB.channel("a"), true);
+            for (int i = 0; i < count; i++)
+                providerB.channel("a").send(new Message<>("seq", i));
+
+            Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < count; i++)
+                Assertions.assertEquals(i, received.get(i));
+
+            // message names can not be mistaken for batch frames
+            CompletableFuture<Integer> plain = new CompletableFuture<>();
+            providerA.listen("reco:batch").<Integer>on().then(message -> plain.complete(message.payload()));
+            providerB.channel("a").send(new Message<>("reco:batch", 7));
+            Assertions.assertEquals(7, plain.get(5, TimeUnit.SECONDS));
+        } finally {
+            providerB.close();
+            providerA.close();
+        }
+    }
+
+    @Test
+    void test_CompactEnvelopes() throws Exception {
+        TcpProvider providerA = TcpProvider.builder("a")
+                .serializer(KryoSerializer.standard())
+                .bind(new InetSocketAddress("127.0.0.1", 0))
+                .build();
+        TcpProvider providerB = TcpProvider.builder("b")
+                .serializer(KryoSerializer.standard())
+                .peer("a", providerA.getLocalAddress())
+                .build();
+        providerB.compactEnvelopes(true);
+
+        try {
+            final int count = 100;
+            List<ReceivedMessage<Integer>> received = new CopyOnWriteArrayList<>();
+            CountDownLatch done = new CountDownLatch(2 * count);
+            providerA.listen("first").<Integer>on().then(message -> { received.add(message); done.countDown(); });
+            providerA.listen("second").<Integer>on().then(message -> { received.add(message); done.countDown(); });
+
+            // names and source are only defined on first use
+            for (int i = 0; i < count; i++) {
+                providerB.channel("a").send(new Message<>("first", i));
+                providerB.channel("a").send(new Message<>("second", i));
+            }
+
+            Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < count; i++) {
+                ReceivedMessage<Integer> first = received.get(2 * i);
+                ReceivedMessage<Integer> second = received.get(2 * i + 1);
+                Assertions.assertEquals("first", first.getName());
+                Assertions.assertEquals("second", second.getName());
+                Assertions.assertEquals(i, second.payload());
+                Assertions.assertEquals("b", second.getSource());
+                Assertions.assertEquals(CommunicationProvider.Domain.DIRECT, second.getDomain());
+            }
+
+            // v1 envelopes can not start with the compact magic byte
+            char[] longName = new char[CompactEnvelopes.MAX_NAME_LENGTH];
+            Arrays.fill(longName, 'a');
+            Assertions.assertThrows(IllegalArgumentException.class, () ->
+                    providerA.channel("b").send(new Message<>(new String(longName), 0)));
+        } finally {
+            providerB.close();
+            providerA.close();
+        }
+    }
+
+    @Test
+    void test_MalformedFrameClosesConnection() throws Exception {
+        TcpProvider providerA = TcpProvider.builder("a")
+                .serializer(KryoSerializer.standard())
+                .bind(new InetSocketAddress("127.0.0.1", 0))
+                .build();
+
+        try (Socket socket = new Socket()) {
+            socket.connect(providerA.getLocalAddress(), 5000);
+            socket.setSoTimeout(5000);
+
+            // an aux frame too short to hold the name length
+            OutputStream out = socket.getOutputStream();
+            out.write(new byte[] { 0, 0, 0, 2, 2, 5 });
+            out.flush();
+
+            // the provider sends its hello and closes the connection
+            InputStream in = socket.getInputStream();
+            byte[] buffer = new byte[256];
+            int read;
+            do read = in.read(buffer); while (read > 0);
+            Assertions.assertEquals(-1, read);
+        } finally {
+            providerA.close();
+        }
+    }
+
+}
@@ -1,6 +1,6 @@
 package slatepowered.reco;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 /**
@@ -14,7 +14,7 @@ public abstract class AbstractChannel implements ProvidedChannel {
     // the general channel listener
     final ChannelListener listener = new SimpleChannelListener();
     // the channel listeners by message name
-    final HashMap<String, ChannelListener> listenerMap = new HashMap<>();
+    final ConcurrentHashMap<String, ChannelListener> listenerMap = new ConcurrentHashMap<>();
 
     @Override
     public ChannelListener listen() {
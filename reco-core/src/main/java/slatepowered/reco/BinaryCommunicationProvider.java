@@ -1,17 +1,507 @@
 package slatepowered.reco;
 
+import lombok.Data;
+import slatepowered.reco.buffer.BufferPool;
+import slatepowered.reco.buffer.GrowableBuffer;
+import slatepowered.reco.buffer.ModifiedUTF8;
+import slatepowered.veru.misc.Throwables;
+
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * A communication provider which is built on byte streams
  * (binary data), so which needs a {@link Serializer} instance.
+ *
+ * Every message is encoded into an envelope containing the
+ * message name, the domain and the source node followed by
+ * the serialized payload.
  */
+@SuppressWarnings({ "rawtypes" })
 public abstract class BinaryCommunicationProvider<C extends ProvidedChannel> extends CommunicationProvider<C> {
 
     // the serialization engine
     protected final Serializer serializer;
 
+    // the pool of buffers messages are encoded into
+    protected BufferPool bufferPool = BufferPool.threadLocal();
+
+    // the transport used for published messages,
+    // null if the provider publishes by itself
+    protected PublishTransport publishTransport;
+
+    // the batcher for outgoing envelopes,
+    // created when batching is first enabled
+    protected volatile FrameBatcher batcher;
+
+    // the targets for which sending is batched
+    protected final Set<String> batchedTargets = ConcurrentHashMap.newKeySet();
+
+    // whether publications are batched
+    protected volatile boolean batchPublish;
+
+    // the dictionaries of the compact envelope format
+    protected final CompactEnvelopes compactEnvelopes = new CompactEnvelopes();
+
+    // whether direct messages are sent in the compact
+    // envelope format, compact envelopes are always
+    // accepted when receiving
+    protected volatile boolean sendCompactEnvelopes;
+
     public BinaryCommunicationProvider(String localName, Serializer serializer) {
         super(localName);
         this.serializer = serializer;
     }
 
+    public Serializer getSerializer() {
+        return serializer;
+    }
+
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    /**
+     * Set the pool of buffers outgoing messages
+     * are encoded into.
+     *
+     * @param bufferPool The buffer pool.
+     * @return This.
+     */
+    public BinaryCommunicationProvider<C> bufferPool(BufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+        return this;
+    }
+
+    public CompactEnvelopes getCompactEnvelopes() {
+        return compactEnvelopes;
+    }
+
+    /**
+     * Enable or disable sending direct messages in the compact
+     * envelope format, which replaces the message name and source
+     * node with IDs announced in-band. All receiving nodes must
+     * support the compact format, and the transport must tell when
+     * a target has lost the announced definitions.
+     *
+     * @param enabled Whether to send compact envelopes.
+     * @return This.
+     */
+    public BinaryCommunicationProvider<C> compactEnvelopes(boolean enabled) {
+        this.sendCompactEnvelopes = enabled;
+        return this;
+    }
+
+    public PublishTransport getPublishTransport() {
+        return publishTransport;
+    }
+
+    /**
+     * Publish messages through the given transport instead of the
+     * transport of this provider, and handle all frames received
+     * on it. The transport is closed with this provider.
+     *
+     * @param transport The publish transport.
+     * @return This.
+     */
+    public BinaryCommunicationProvider<C> withPublishTransport(PublishTransport transport) {
+        this.publishTransport = transport;
+        transport.open(frame -> receivedFrame(frame, localName));
+        return this;
+    }
+
+    /**
+     * Get the batcher for outgoing envelopes, creating
+     * it if absent. It can be used to tune the thresholds.
+     *
+     * @return The batcher.
+     */
+    public synchronized FrameBatcher batcher() {
+        if (batcher == null) {
+            batcher = new FrameBatcher(this::transmitFrame);
+        }
+
+        return batcher;
+    }
+
+    /**
+     * Enable or disable batching of the messages sent over the
+     * given channel. Batching trades latency for throughput by
+     * coalescing messages into fewer frames. Batching the
+     * channel of this provider batches publications.
+     *
+     * Batched sends are best effort: the frames are transmitted
+     * after the send returns, so a failed transmission is not thrown
+     * to the sender but logged and counted by the {@link #batcher()}.
+     *
+     * @param channel The channel.
+     * @param enabled Whether to batch.
+     * @return This.
+     */
+    public BinaryCommunicationProvider<C> batching(Channel channel, boolean enabled) {
+        String target = channel.remote();
+        if (channel == this || channel == allChannel || target == null) {
+            batchPublish = enabled;
+        } else if (enabled) {
+            batchedTargets.add(target);
+        } else {
+            batchedTargets.remove(target);
+        }
+
+        if (enabled) {
+            batcher();
+        } else if (batcher != null) {
+            // keep messages in order
+            batcher.flush();
+        }
+
+        return this;
+    }
+
+    /**
+     * Check whether messages to the given
+     * channel are batched.
+     *
+     * @param channel The channel.
+     * @return Whether they are batched.
+     */
+    public boolean isBatching(Channel channel) {
+        String target = channel.remote();
+        if (channel == this || channel == allChannel || target == null)
+            return batchPublish;
+        return batchedTargets.contains(target);
+    }
+
+    // packs and sends the given message to the given target,
+    // using the compact envelope format if enabled
+    protected void sendMessage(Message message, Domain domain, String target) {
+        if (domain != Domain.DIRECT || !sendCompactEnvelopes) {
+            sendFrame(packSendingMessage(message, domain), domain, target);
+            return;
+        }
+
+        // check which definitions the target needs
+        CompactEnvelopes.Target targetState = compactEnvelopes.target(target);
+        int nameId = compactEnvelopes.nameId(message.getName());
+        long now = System.currentTimeMillis();
+        boolean defineName = compactEnvelopes.needsAnnounce(targetState.nameAnnouncedAt(nameId), now);
+        boolean defineSource = compactEnvelopes.needsAnnounce(targetState.sourceAnnouncedAt, now);
+
+        sendFrame(packCompactMessage(message, domain, nameId, defineName, defineSource), domain, target);
+
+        // only mark the definitions as announced once the frame
+        // is queued, so later frames can not overtake it
+        if (defineName) targetState.nameAnnounced(nameId, now);
+        if (defineSource) targetState.sourceAnnouncedAt = now;
+    }
+
+    // forgets which definitions were announced to the given
+    // target, called when the target may have lost them
+    protected void resetCompactEnvelopes(String target) {
+        compactEnvelopes.targets.remove(target);
+    }
+
+    // sends a packed envelope to the given target, passing
+    // it through the batcher if enabled for the destination
+    protected void sendFrame(byte[] envelope, Domain domain, String target) {
+        FrameBatcher batcher = this.batcher;
+        if (batcher != null && (domain == Domain.PUBLISH ? batchPublish : batchedTargets.contains(target))) {
+            batcher.add(envelope, domain, target);
+            return;
+        }
+
+        transmitFrame(envelope, domain, target);
+    }
+
+    /**
+     * Transmit the given frame to the given target using the
+     * transport of this provider.
+     *
+     * @param frame The packed envelope or batch.
+     * @param domain The domain.
+     * @param target The remote or aux channel name, null when publishing.
+     */
+    protected abstract void transmitFrame(byte[] frame, Domain domain, String target);
+
+    // flushes and stops the batcher if present
+    protected void closeBatcher() {
+        if (batcher != null) {
+            batcher.close();
+        }
+    }
+
+    // publishes the given message through the publish
+    // transport if set, returns whether it was published
+    protected boolean publishThroughTransport(Message message) {
+        if (publishTransport == null)
+            return false;
+
+        publishTransport.publish(packSendingMessage(message, Domain.PUBLISH));
+        return true;
+    }
+
+    // closes the publish transport if set
+    protected void closePublishTransport() {
+        if (publishTransport != null) {
+            publishTransport.close();
+        }
+    }
+
+    // result record
+    @Data
+    protected static class DecodeResult {
+        final Domain domain;
+        final String sourceName;
+        final ReceivedMessage<?> message;
+    }
+
+    // packs a message and its content
+    // into a byte array with the appropriate
+    // headers and identifier/name
+    protected byte[] packSendingMessage(Message message,
+                                        Domain domain) {
+        GrowableBuffer buffer = bufferPool.acquire();
+        try {
+            // write message name
+            buffer.writeUTF(message.getName());
+            if (buffer.length() - 2 >= CompactEnvelopes.MAX_NAME_LENGTH)
+                throw new IllegalArgumentException("Message name too long, encodes to " + (buffer.length() - 2) +
+                        " bytes which is not below " + CompactEnvelopes.MAX_NAME_LENGTH);
+
+            // write type and headers
+            buffer.writeByte(domain.getEncoded());
+            buffer.writeUTF(localName); // write source node
+
+            // serialize message content
+            serializer.write(buffer, message.payload());
+
+            // return bytes
+            return buffer.toByteArray();
+        } catch (Exception e) {
+            // rethrow error
+            Throwables.sneakyThrow(e);
+            return null;
+        } finally {
+            bufferPool.release(buffer);
+        }
+    }
+
+    // packs a message into a compact envelope
+    protected byte[] packCompactMessage(Message message,
+                                        Domain domain,
+                                        int nameId,
+                                        boolean defineName,
+                                        boolean defineSource) {
+        GrowableBuffer buffer = bufferPool.acquire();
+        try {
+            // write header
+            buffer.writeByte(CompactEnvelopes.MAGIC);
+            buffer.writeByte(domain.getEncoded()
+                    | (defineName ? CompactEnvelopes.FLAG_NAME_DEFINED : 0)
+                    | (defineSource ? CompactEnvelopes.FLAG_SOURCE_DEFINED : 0));
+            buffer.writeInt(compactEnvelopes.sessionId);
+            buffer.writeVarInt(nameId);
+
+            // write definitions
+            if (defineName) buffer.writeUTF(message.getName());
+            if (defineSource) buffer.writeUTF(localName);
+
+            // serialize message content
+            serializer.write(buffer, message.payload());
+
+            // return bytes
+            return buffer.toByteArray();
+        } catch (Exception e) {
+            // rethrow error
+            Throwables.sneakyThrow(e);
+            return null;
+        } finally {
+            bufferPool.release(buffer);
+        }
+    }
+
+    // decodes a message from
+    // the packed data
+    protected DecodeResult decodeReceivedMessage(byte[] bytes) {
+        return decodeReceivedMessage(bytes, 0, bytes.length);
+    }
+
+    // decodes a message from the packed data in the given
+    // range, reading straight from the array without streams
+    protected DecodeResult decodeReceivedMessage(byte[] bytes, int offset, int length) {
+        if (CompactEnvelopes.isCompact(bytes, offset, length))
+            return decodeCompactMessage(bytes, offset, length);
+
+        try {
+            final int end = offset + length;
+            int pos = offset;
+
+            // read message name
+            int nameLength = readUnsignedShort(bytes, pos, end);
+            String name = ModifiedUTF8.decode(bytes, pos + 2, nameLength);
+            pos += 2 + nameLength;
+
+            // read type and headers
+            if (pos >= end)
+                throw new EOFException("Truncated message envelope");
+            byte type = bytes[pos++];
+            int sourceLength = readUnsignedShort(bytes, pos, end);
+            String sourceName = ModifiedUTF8.decode(bytes, pos + 2, sourceLength);
+            pos += 2 + sourceLength;
+            if (pos > end)
+                throw new EOFException("Truncated message envelope");
+
+            // deserialize message content
+            ReceivedMessage<Object> message = new ReceivedMessage<>(name);
+            message.payload(serializer.read(bytes, pos, end - pos));
+
+            // return result
+            return new DecodeResult(Domain.getByEncoded(type), sourceName, message);
+        } catch (Exception e) {
+            // rethrow error
+            Throwables.sneakyThrow(e);
+            return null;
+        }
+    }
+
+    // decodes a message from a compact envelope
+    protected DecodeResult decodeCompactMessage(byte[] bytes, int offset, int length) {
+        try {
+            final int end = offset + length;
+            int pos = offset + 1;
+
+            // read header
+            if (pos + 5 > end)
+                throw new EOFException("Truncated compact envelope");
+            int flags = bytes[pos++];
+            int sessionId = ((bytes[pos] & 0xFF) << 24) | ((bytes[pos + 1] & 0xFF) << 16) |
+                    ((bytes[pos + 2] & 0xFF) << 8) | (bytes[pos + 3] & 0xFF);
+            pos += 4;
+
+            int nameId = 0;
+            for (int shift = 0; ; shift += 7) {
+                if (pos >= end || shift > 28)
+                    throw new EOFException("Truncated compact envelope");
+                byte b = bytes[pos++];
+                nameId |= (b & 0x7F) << shift;
+                if (b >= 0)
+                    break;
+            }
+
+            // read or look up definitions
+            CompactEnvelopes.Session session;
+            String name;
+            if ((flags & CompactEnvelopes.FLAG_NAME_DEFINED) != 0) {
+                int nameLength = readUnsignedShort(bytes, pos, end);
+                name = ModifiedUTF8.decode(bytes, pos + 2, nameLength);
+                pos += 2 + nameLength;
+
+                session = compactEnvelopes.session(sessionId);
+                session.define(nameId, name);
+            } else {
+                session = compactEnvelopes.getSession(sessionId);
+                name = session != null ? session.name(nameId) : null;
+            }
+
+            String sourceName;
+            if ((flags & CompactEnvelopes.FLAG_SOURCE_DEFINED) != 0) {
+                int sourceLength = readUnsignedShort(bytes, pos, end);
+                sourceName = ModifiedUTF8.decode(bytes, pos + 2, sourceLength);
+                pos += 2 + sourceLength;
+
+                if (session == null)
+                    session = compactEnvelopes.session(sessionId);
+                compactEnvelopes.defineSource(sessionId, session, sourceName);
+            } else {
+                sourceName = session != null ? session.source : null;
+            }
+
+            if (name == null || sourceName == null)
+                throw new IllegalStateException("Compact envelope from unknown session " + sessionId +
+                        " or name ID " + nameId + ", waiting for definitions to be announced");
+
+            // deserialize message content
+            ReceivedMessage<Object> message = new ReceivedMessage<>(name);
+            message.payload(serializer.read(bytes, pos, end - pos));
+
+            // return result
+            return new DecodeResult(Domain.getByEncoded((byte) (flags & CompactEnvelopes.DOMAIN_MASK)), sourceName, message);
+        } catch (Exception e) {
+            // rethrow error
+            Throwables.sneakyThrow(e);
+            return null;
+        }
+    }
+
+    // reads an unsigned short length prefix, checking
+    // that the prefixed bytes are within bounds
+    private static int readUnsignedShort(byte[] bytes, int pos, int end) throws EOFException {
+        if (pos + 2 > end)
+            throw new EOFException("Truncated message envelope");
+        int value = ((bytes[pos] & 0xFF) << 8) | (bytes[pos + 1] & 0xFF);
+        if (pos + 2 + value > end)
+            throw new EOFException("Truncated message envelope");
+        return value;
+    }
+
+    // the implementation should call this
+    // with every packed message it receives
+    // to have it decoded and handled
+    protected void receivedFrame(byte[] bytes, String queue) {
+        receivedFrame(bytes, 0, bytes.length, queue);
+    }
+
+    // handles the packed message in the given
+    // range of the array, without copying it
+    protected void receivedFrame(byte[] bytes, int offset, int length, String queue) {
+        try {
+            // unpack batches
+            if (FrameBatcher.isBatchFrame(bytes, offset, length)) {
+                receivedBatch(bytes, offset, length, queue);
+                return;
+            }
+
+            // decode message body and properties
+            DecodeResult decodeResult = decodeReceivedMessage(bytes, offset, length);
+            assert decodeResult != null;
+            ReceivedMessage<?> message = decodeResult.message;
+
+            // call communication provider
+            received(
+                    message,
+                    decodeResult.domain,
+                    queue,
+                    decodeResult.sourceName
+            );
+        } catch (Exception e) {
+            logger.warning("Failed to handle received msg cause(UncaughtError)");
+            e.printStackTrace();
+        }
+    }
+
+    // handles every envelope in a batch frame
+    private void receivedBatch(byte[] bytes, int offset, int length, String queue) throws EOFException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+
+        // skip the magic
+        if (length < FrameBatcher.HEADER_LENGTH)
+            throw new EOFException("Truncated batch frame");
+        buffer.position(offset + 1);
+
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            if (buffer.remaining() < 4)
+                throw new EOFException("Truncated batch frame");
+            int envelopeLength = buffer.getInt();
+            int envelopeOffset = buffer.position();
+            if (envelopeLength < 0 || envelopeLength > buffer.remaining())
+                throw new EOFException("Truncated batch frame");
+            buffer.position(envelopeOffset + envelopeLength);
+
+            receivedFrame(bytes, envelopeOffset, envelopeLength, queue);
+        }
+    }
+
 }
@@ -0,0 +1,340 @@
+package slatepowered.reco;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A group of channels to replicas of the same remote, of which
+ * a member is selected for every exchange.
+ *
+ * Members are selected by their cost, which is their amount of
+ * in-flight exchanges weighted by the moving average of their
+ * latency, so slow or busy members receive less traffic. Failed
+ * exchanges count as taking at least the failure penalty, so
+ * members failing fast do not attract traffic.
+ *
+ * Members without a measured latency are weighted by the mean
+ * latency of the group, and only receive one exchange at a time
+ * until it completes, so a new member which hangs does not take
+ * the traffic of the group.
+ *
+ * Sending a message through the group sends it to one selected
+ * member, publishing sends it to every member. Groups can not be
+ * listened to, responses are received on the member channels.
+ */
+public class ChannelGroup implements Channel {
+
+    /**
+     * How members are selected.
+     */
+    public enum Policy {
+
+        /** Select the cheaper of two random members. */
+        POWER_OF_TWO_CHOICES,
+
+        /** Select the cheapest of all members. */
+        LEAST_COST
+
+    }
+
+    /**
+     * A member channel with its load statistics.
+     */
+    public final class Member {
+        final Channel channel;
+
+        // the amount of exchanges in flight
+        final AtomicInteger inFlight = new AtomicInteger();
+
+        // the bits of the moving average latency in
+        // nanoseconds, 0 if not measured yet
+        final AtomicLong latencyBits = new AtomicLong(Double.doubleToRawLongBits(0));
+
+        Member(Channel channel) {
+            this.channel = channel;
+        }
+
+        public Channel getChannel() {
+            return channel;
+        }
+
+        public int getInFlight() {
+            return inFlight.get();
+        }
+
+        public double getLatencyNanos() {
+            return Double.longBitsToDouble(latencyBits.get());
+        }
+
+        /**
+         * Called before an exchange with this member starts.
+         *
+         * @return The start time to pass on completion.
+         */
+        public long start() {
+            inFlight.incrementAndGet();
+            return System.nanoTime();
+        }
+
+        /**
+         * Called once an exchange started with {@link #start()}
+         * completed, recording its latency.
+         *
+         * @param startNanos The start time.
+         */
+        public void complete(long startNanos) {
+            inFlight.decrementAndGet();
+            record(System.nanoTime() - startNanos);
+        }
+
+        /**
+         * Called once an exchange started with {@link #start()}
+         * failed, recording its latency as at least the failure penalty.
+         *
+         * @param startNanos The start time.
+         */
+        public void fail(long startNanos) {
+            inFlight.decrementAndGet();
+            record(Math.max(System.nanoTime() - startNanos, failurePenaltyNanos));
+        }
+
+        // adds the given sample to the moving average
+        private void record(double sample) {
+            long bits, newBits;
+            do {
+                bits = latencyBits.get();
+                double latency = Double.longBitsToDouble(bits);
+                double updated = latency == 0 ? sample : latency + latencyWeight * (sample - latency);
+                newBits = Double.doubleToRawLongBits(Math.max(updated, 1));
+            } while (!latencyBits.compareAndSet(bits, newBits));
+        }
+
+        /**
+         * Called if an exchange started with {@link #start()}
+         * ended without a latency worth recording.
+         */
+        public void cancel() {
+            inFlight.decrementAndGet();
+        }
+
+        // the cost of selecting this member, unmeasured
+        // members are only probed one exchange at a time
+        double cost() {
+            double latency = getLatencyNanos();
+            int inFlight = this.inFlight.get();
+            if (latency == 0) {
+                if (inFlight > 0)
+                    return Double.POSITIVE_INFINITY;
+                latency = meanLatency();
+            }
+
+            return (inFlight + 1) * Math.max(latency, 1);
+        }
+
+        @Override
+        public String toString() {
+            return "Member(" + channel.remote() + ", inFlight: " + inFlight.get() + ", latency: " + (long) getLatencyNanos() + "ns)";
+        }
+    }
+
+    // the empty member array
+    static final Member[] EMPTY = new Member[0];
+
+    ////////////////////////////////////////
+
+    // the name of the group
+    final String name;
+
+    // the current members, only replaced while holding the lock
+    volatile Member[] members = EMPTY;
+
+    // the selection policy
+    Policy policy = Policy.POWER_OF_TWO_CHOICES;
+
+    // the weight of new latency samples in the moving average
+    double latencyWeight = 0.2;
+
+    // the minimum latency recorded for failed exchanges
+    long failurePenaltyNanos = TimeUnit.SECONDS.toNanos(1);
+
+    public ChannelGroup(String name) {
+        this.name = name;
+    }
+
+    public ChannelGroup(String name, Channel... channels) {
+        this(name);
+        for (Channel channel : channels)
+            add(channel);
+    }
+
+    /**
+     * Set the policy by which members are selected.
+     *
+     * @param policy The policy.
+     * @return This.
+     */
+    public ChannelGroup policy(Policy policy) {
+        this.policy = policy;
+        return this;
+    }
+
+    /**
+     * Set the weight of new samples in the moving average
+     * latency of the members, between 0 and 1.
+     *
+     * @param latencyWeight The weight.
+     * @return This.
+     */
+    public ChannelGroup latencyWeight(double latencyWeight) {
+        if (latencyWeight <= 0 || latencyWeight > 1)
+            throw new IllegalArgumentException("Latency weight must be in (0, 1], got " + latencyWeight);
+        this.latencyWeight = latencyWeight;
+        return this;
+    }
+
+    /**
+     * Set the minimum latency recorded for failed exchanges.
+     *
+     * @param penalty The penalty.
+     * @param unit The penalty unit.
+     * @return This.
+     */
+    public ChannelGroup failurePenalty(long penalty, TimeUnit unit) {
+        this.failurePenaltyNanos = unit.toNanos(penalty);
+        return this;
+    }
+
+    /**
+     * Add the given channel to this group.
+     *
+     * @param channel The channel.
+     * @return This.
+     */
+    public synchronized ChannelGroup add(Channel channel) {
+        for (Member member : members)
+            if (member.channel == channel)
+                return this;
+
+        Member[] old = members;
+        Member[] arr = Arrays.copyOf(old, old.length + 1);
+        arr[old.length] = new Member(channel);
+        members = arr;
+        return this;
+    }
+
+    /**
+     * Remove the given channel from this group.
+     *
+     * @param channel The channel.
+     * @return This.
+     */
+    public synchronized ChannelGroup remove(Channel channel) {
+        Member[] old = members;
+        List<Member> list = new ArrayList<>(old.length);
+        for (Member member : old)
+            if (member.channel != channel)
+                list.add(member);
+        members = list.isEmpty() ? EMPTY : list.toArray(new Member[0]);
+        return this;
+    }
+
+    /**
+     * Get the current members of this group.
+     *
+     * @return The unmodifiable list of members.
+     */
+    public List<Member> getMembers() {
+        return Collections.unmodifiableList(Arrays.asList(members));
+    }
+
+    public int size() {
+        return members.length;
+    }
+
+    // gets the mean latency of the measured
+    // members, 1 if none are measured
+    double meanLatency() {
+        double sum = 0;
+        int count = 0;
+        for (Member member : members) {
+            double latency = member.getLatencyNanos();
+            if (latency != 0) {
+                sum += latency;
+                count++;
+            }
+        }
+
+        return count > 0 ? sum / count : 1;
+    }
+
+    /**
+     * Select the member to start the next exchange with.
+     *
+     * @return The member.
+     * @throws IllegalStateException If this group is empty.
+     */
+    public Member select() {
+        Member[] arr = members;
+        int n = arr.length;
+        if (n == 0)
+            throw new IllegalStateException("Channel group '" + name + "' has no members");
+        if (n == 1)
+            return arr[0];
+
+        if (policy == Policy.LEAST_COST) {
+            Member best = arr[0];
+            double bestCost = best.cost();
+            for (int i = 1; i < n; i++) {
+                double cost = arr[i].cost();
+                if (cost < bestCost) {
+                    best = arr[i];
+                    bestCost = cost;
+                }
+            }
+
+            return best;
+        }
+
+        // pick two distinct members
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int a = random.nextInt(n);
+        int b = random.nextInt(n - 1);
+        if (b >= a) b++;
+        return arr[a].cost() <= arr[b].cost() ? arr[a] : arr[b];
+    }
+
+    ////////////////////////////////////////
+
+    @Override
+    public String remote() {
+        return name;
+    }
+
+    @Override
+    public void send(Message<?> message) {
+        select().channel.send(message);
+    }
+
+    @Override
+    public void publish(Message<?> message) {
+        for (Member member : members)
+            member.channel.send(message);
+    }
+
+    @Override
+    public ChannelListener listen() {
+        throw new UnsupportedOperationException("Channel groups can not be listened to, listen to the members instead");
+    }
+
+    @Override
+    public ChannelListener listen(String name) {
+        throw new UnsupportedOperationException("Channel groups can not be listened to, listen to the members instead");
+    }
+
+}
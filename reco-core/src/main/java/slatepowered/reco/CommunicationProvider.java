@@ -1,9 +1,14 @@
 package slatepowered.reco;
 
+import slatepowered.reco.dispatch.DispatchStrategy;
+import slatepowered.reco.dispatch.InboundQueue;
+import slatepowered.reco.dispatch.OverflowPolicy;
+import slatepowered.veru.functional.Callback;
+
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 /**
@@ -76,7 +81,7 @@ public abstract class CommunicationProvider<C extends ProvidedChannel> extends A
     protected final String localName;
 
     // channels registered by remote
-    protected final HashMap<String, C> channelsByRemote = new HashMap<>();
+    protected final ConcurrentHashMap<String, C> channelsByRemote = new ConcurrentHashMap<>();
 
     /**
      * Optional channel set by an implementation.
@@ -86,6 +91,23 @@ public abstract class CommunicationProvider<C extends ProvidedChannel> extends A
      */
     protected C pubChannel;
 
+    // the strategy used to call the listeners
+    // for received messages
+    protected DispatchStrategy dispatchStrategy = DispatchStrategy.inline();
+
+    // the capacity and overflow policy of the inbound
+    // queues, queueing is disabled if the capacity is 0
+    protected int inboundQueueCapacity = 0;
+    protected OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+    // the inbound queues by channel and source, publications
+    // without a channel are queued under this provider
+    protected final ConcurrentHashMap<InboundQueue.Key, InboundQueue> inboundQueues = new ConcurrentHashMap<>();
+
+    // the callback for messages rejected
+    // because an inbound queue was full
+    protected final Callback<ReceivedMessage<?>> rejectedCallback = Callback.multi();
+
     // the all channel
     protected Channel allChannel = new AbstractChannel() {
         @Override public CommunicationProvider<?> provider() { return CommunicationProvider.this; }
@@ -99,6 +121,69 @@ public abstract class CommunicationProvider<C extends ProvidedChannel> extends A
         return this;
     }
 
+    /**
+     * Set the strategy used to call the listeners for received
+     * messages. The strategy is not closed with this provider.
+     *
+     * @param dispatchStrategy The dispatch strategy.
+     * @return This.
+     */
+    public CommunicationProvider<C> dispatchStrategy(DispatchStrategy dispatchStrategy) {
+        this.dispatchStrategy = dispatchStrategy != null ? dispatchStrategy : DispatchStrategy.inline();
+        return this;
+    }
+
+    public DispatchStrategy getDispatchStrategy() {
+        return dispatchStrategy;
+    }
+
+    /**
+     * Bound the amount of received messages waiting to be handled
+     * per channel and source. Only affects sources which have not
+     * sent any messages on the channel yet.
+     *
+     * @param capacity The capacity per channel and source, 0 to disable queueing.
+     * @param overflowPolicy The policy applied when a queue is full.
+     * @return This.
+     */
+    public CommunicationProvider<C> inboundQueue(int capacity, OverflowPolicy overflowPolicy) {
+        this.inboundQueueCapacity = Math.max(0, capacity);
+        this.overflowPolicy = overflowPolicy;
+        return this;
+    }
+
+    /**
+     * Get the callback called with messages which were rejected
+     * because the inbound queue of their source was full.
+     *
+     * @return The callback.
+     */
+    public Callback<ReceivedMessage<?>> onRejected() {
+        return rejectedCallback;
+    }
+
+    /**
+     * Get the inbound queues by channel and source.
+     *
+     * @return The unmodifiable map.
+     */
+    public Map<InboundQueue.Key, InboundQueue> getInboundQueues() {
+        return Collections.unmodifiableMap(inboundQueues);
+    }
+
+    /**
+     * Get the total amount of received messages waiting
+     * to be handled across all channels and sources.
+     *
+     * @return The total queue depth.
+     */
+    public int getInboundQueueDepth() {
+        int depth = 0;
+        for (InboundQueue queue : inboundQueues.values())
+            depth += queue.getDepth();
+        return depth;
+    }
+
     /* Channels */
 
     /**
@@ -179,44 +264,69 @@ public abstract class CommunicationProvider<C extends ProvidedChannel> extends A
         message.setSource(source);
         message.setDomain(domain);
 
-        // check for direct
+        // resolve the channel on the receiving thread
+        final C channel;
         if (domain == Domain.DIRECT) {
             // route to channels
-            C channel = channel(source);
+            channel = channel(source);
             if (channel == null) {
                 logger.warning("Direct message received from unknown remote '" + source + "'");
                 return;
             }
 
             message.setChannel(channel);
-
-            // call general listener
-            super.received(message);
-
-            // call listener
-            channel.received(message);
         } else if (domain == Domain.AUX) {
             // route to channels
-            C channel = auxChannel(queue);
+            channel = auxChannel(queue);
             if (channel == null) {
                 logger.warning("Direct message received from unknown aux channel '" + queue + "'");
                 return;
             }
 
             message.setChannel(channel);
+        } else if (domain == Domain.PUBLISH) {
+            // call publish channel
+            channel = pubChannel;
+        } else {
+            return;
+        }
 
-            // call general listener
-            super.received(message);
+        if (inboundQueueCapacity <= 0) {
+            // call the listeners directly
+            dispatchStrategy.dispatch(source, () -> dispatchReceived(message, channel));
+            return;
+        }
 
-            // call listener
-            channel.received(message);
-        } else if (domain == Domain.PUBLISH) {
+        // enqueue the message, the task dispatched for the
+        // source takes the oldest message of the source
+        InboundQueue inboundQueue = inboundQueues.computeIfAbsent(new InboundQueue.Key(channel != null ? channel : this, source),
+                __ -> new InboundQueue(inboundQueueCapacity, overflowPolicy));
+        if (!inboundQueue.offer(message)) {
+            if (inboundQueue.getOverflowPolicy() == OverflowPolicy.REJECT)
+                rejectedCallback.call(message);
+            return;
+        }
+
+        dispatchStrategy.dispatch(source, () -> {
+            ReceivedMessage<?> queued = inboundQueue.poll();
+            if (queued != null) {
+                dispatchReceived(queued, channel);
+            }
+        });
+    }
+
+    // calls the listeners for the given message
+    private void dispatchReceived(ReceivedMessage<?> message, C channel) {
+        try {
             // call general listener
             super.received(message);
 
-            // call publish channel
-            if (pubChannel != null)
-                pubChannel.received(message);
+            // call listener
+            if (channel != null)
+                channel.received(message);
+        } catch (Throwable t) {
+            logger.warning("Error while handling message '" + message.getName() + "' from remote '" + message.getSource() + "'");
+            t.printStackTrace();
         }
     }
 
@@ -0,0 +1,187 @@
+package slatepowered.reco;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The dictionaries behind the compact (v2) message envelope.
+ *
+ * A compact envelope starts with {@link #MAGIC}, which is never the
+ * first byte of a v1 envelope because message names encoding to
+ * {@link #MAX_NAME_LENGTH} bytes or more are rejected, followed by a
+ * flags byte holding
+ * the domain, the 4 byte session of the sender and the varint ID of
+ * the message name. The session identifies the sending provider
+ * instance and implies the source node, so the node name is only
+ * sent when it is defined.
+ *
+ * Definitions are announced in-band: the first message with a name
+ * sent to a target carries the name after its ID, and the first
+ * message of a session to a target carries the source node name.
+ * Definitions are repeated periodically so receivers which joined or
+ * restarted later learn them again.
+ */
+public class CompactEnvelopes {
+
+    /** The first byte of every compact envelope. */
+    public static final byte MAGIC = (byte) 0xFE;
+
+    /**
+     * The exclusive maximum encoded length of a message name, longer
+     * names would start the v1 envelope with the {@link #MAGIC} byte
+     * or the {@link FrameBatcher#MAGIC} byte of batch frames.
+     */
+    public static final int MAX_NAME_LENGTH = (FrameBatcher.MAGIC & 0xFF) << 8;
+
+    /* Flags */
+    static final int DOMAIN_MASK = 0x03;
+    static final int FLAG_NAME_DEFINED = 0x04;
+    static final int FLAG_SOURCE_DEFINED = 0x08;
+
+    /**
+     * Check whether the envelope in the given range
+     * of the array is a compact envelope.
+     *
+     * @param bytes The byte array.
+     * @param offset The offset of the envelope.
+     * @param length The length of the envelope.
+     * @return Whether it is compact.
+     */
+    public static boolean isCompact(byte[] bytes, int offset, int length) {
+        return length > 0 && bytes[offset] == MAGIC;
+    }
+
+    /**
+     * The definitions announced to one target.
+     */
+    static final class Target {
+        // the time each name ID was last announced
+        // at, indexed by ID, 0 if never announced
+        volatile long[] nameAnnouncedAt = new long[16];
+
+        // the time the source was last announced at
+        volatile long sourceAnnouncedAt;
+
+        long nameAnnouncedAt(int id) {
+            long[] arr = nameAnnouncedAt;
+            return id < arr.length ? arr[id] : 0;
+        }
+
+        synchronized void nameAnnounced(int id, long time) {
+            long[] arr = nameAnnouncedAt;
+            if (id >= arr.length) {
+                arr = Arrays.copyOf(arr, Math.max(id + 1, arr.length * 2));
+            }
+
+            arr[id] = time;
+            nameAnnouncedAt = arr;
+        }
+    }
+
+    /**
+     * The definitions received from one session.
+     */
+    static final class Session {
+        volatile String source;
+        volatile String[] names = new String[16];
+
+        synchronized void define(int id, String name) {
+            String[] arr = names;
+            if (id >= arr.length) {
+                arr = Arrays.copyOf(arr, Math.max(id + 1, arr.length * 2));
+            }
+
+            arr[id] = name;
+            names = arr;
+        }
+
+        String name(int id) {
+            String[] arr = names;
+            return id < arr.length ? arr[id] : null;
+        }
+    }
+
+    ////////////////////////////////////////
+
+    // the random session of this sender, never 0
+    final int sessionId;
+
+    // the interval after which definitions are announced again
+    long reannounceIntervalMillis = TimeUnit.SECONDS.toMillis(10);
+
+    /* Sending */
+    final ConcurrentHashMap<String, Integer> nameIds = new ConcurrentHashMap<>();
+    final AtomicInteger nextNameId = new AtomicInteger();
+    final ConcurrentHashMap<String, Target> targets = new ConcurrentHashMap<>();
+
+    /* Receiving */
+    final ConcurrentHashMap<Integer, Session> sessions = new ConcurrentHashMap<>();
+    final ConcurrentHashMap<String, Integer> sessionBySource = new ConcurrentHashMap<>();
+
+    public CompactEnvelopes() {
+        int id;
+        do id = ThreadLocalRandom.current().nextInt(); while (id == 0);
+        this.sessionId = id;
+    }
+
+    public int getSessionId() {
+        return sessionId;
+    }
+
+    /**
+     * Set the interval after which definitions are announced
+     * to a target again.
+     *
+     * @param reannounceIntervalMillis The interval in milliseconds.
+     * @return This.
+     */
+    public CompactEnvelopes reannounceInterval(long reannounceIntervalMillis) {
+        this.reannounceIntervalMillis = reannounceIntervalMillis;
+        return this;
+    }
+
+    // gets or assigns the ID of the given message name
+    int nameId(String name) {
+        Integer id = nameIds.get(name);
+        if (id != null)
+            return id;
+        return nameIds.computeIfAbsent(name, __ -> nextNameId.getAndIncrement());
+    }
+
+    // gets the announcement state of the given target
+    Target target(String target) {
+        return targets.computeIfAbsent(target, __ -> new Target());
+    }
+
+    // checks whether an announcement made at the given time is stale
+    boolean needsAnnounce(long announcedAt, long now) {
+        return announcedAt == 0 || now - announcedAt >= reannounceIntervalMillis;
+    }
+
+    // gets the session with the given ID, creating it if absent
+    Session session(int sessionId) {
+        return sessions.computeIfAbsent(sessionId, __ -> new Session());
+    }
+
+    // registers the source of the given session, forgetting
+    // the previous session of the same source
+    void defineSource(int sessionId, Session session, String source) {
+        if (source.equals(session.source))
+            return;
+
+        session.source = source;
+        Integer previous = sessionBySource.put(source, sessionId);
+        if (previous != null && previous != sessionId) {
+            sessions.remove(previous);
+        }
+    }
+
+    // gets a received session, null if absent
+    Session getSession(int sessionId) {
+        return sessions.get(sessionId);
+    }
+
+}
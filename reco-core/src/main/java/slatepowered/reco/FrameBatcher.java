@@ -0,0 +1,293 @@
+package slatepowered.reco;
+
+import slatepowered.reco.CommunicationProvider.Domain;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Coalesces packed message envelopes bound for the same target
+ * and domain into batch frames, to amortize the per-frame cost of
+ * the underlying transport.
+ *
+ * A batch is flushed when it reaches the maximum size or count, or
+ * once the linger time has passed since its first envelope. Batches
+ * of a single envelope are transmitted as a plain envelope.
+ *
+ * Batched sends are best effort: frames are transmitted after the
+ * send call returned, so a frame which fails to transmit is only
+ * logged and counted, see {@link #getFailedFrameCount()}.
+ *
+ * A batch frame starts with {@link #MAGIC}, which like the compact
+ * envelope magic is never the first byte of a v1 envelope, followed
+ * by the amount of envelopes and each envelope prefixed with its
+ * length.
+ */
+public class FrameBatcher {
+
+    // logger
+    static final Logger LOGGER = Logger.getLogger("FrameBatcher");
+
+    /** The first byte of every batch frame. */
+    public static final byte MAGIC = (byte) 0xFD;
+
+    /** The length of the batch frame header. */
+    public static final int HEADER_LENGTH = 1 + 4;
+
+    /**
+     * Check whether the given frame is a batch frame.
+     *
+     * @param frame The frame bytes.
+     * @return Whether it is a batch.
+     */
+    public static boolean isBatchFrame(byte[] frame) {
+        return isBatchFrame(frame, 0, frame.length);
+    }
+
+    /**
+     * Check whether the frame in the given range
+     * of the array is a batch frame.
+     *
+     * @param bytes The byte array.
+     * @param offset The offset of the frame.
+     * @param length The length of the frame.
+     * @return Whether it is a batch.
+     */
+    public static boolean isBatchFrame(byte[] bytes, int offset, int length) {
+        return length > 0 && bytes[offset] == MAGIC;
+    }
+
+    /**
+     * Transmits frames produced by the batcher.
+     */
+    public interface Sink {
+        void transmitFrame(byte[] frame, Domain domain, String target);
+    }
+
+    /**
+     * The envelopes waiting to be sent to one destination.
+     */
+    final class Batch {
+        final Domain domain;
+        final String target;
+
+        // the batch frame being built, starting with
+        // the magic followed by the envelope count
+        byte[] buffer = new byte[256];
+        int length = HEADER_LENGTH;
+        int count;
+
+        // the offset of the count in the buffer
+        final int countOffset = 1;
+
+        // whether a linger flush is scheduled
+        boolean scheduled;
+
+        Batch(Domain domain, String target) {
+            this.domain = domain;
+            this.target = target;
+            buffer[0] = MAGIC;
+        }
+
+        // grows the buffer to fit the given length
+        void ensureCapacity(int required) {
+            if (buffer.length < required) {
+                buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length * 2));
+            }
+        }
+
+        // appends an envelope, called while holding the lock
+        void append(byte[] envelope) {
+            ensureCapacity(length + 4 + envelope.length);
+            putInt(buffer, length, envelope.length);
+            System.arraycopy(envelope, 0, buffer, length + 4, envelope.length);
+            length += 4 + envelope.length;
+            count++;
+        }
+
+        // transmits and resets this batch,
+        // called while holding the lock
+        void flush() {
+            scheduled = false;
+            if (count == 0)
+                return;
+
+            byte[] frame;
+            if (count == 1) {
+                // send the single envelope as is
+                frame = Arrays.copyOfRange(buffer, countOffset + 8, length);
+            } else {
+                putInt(buffer, countOffset, count);
+                frame = Arrays.copyOf(buffer, length);
+            }
+
+            int envelopes = count;
+            length = countOffset + 4;
+            count = 0;
+
+            try {
+                sink.transmitFrame(frame, domain, target);
+            } catch (Throwable t) {
+                failedFrames.incrementAndGet();
+                failedEnvelopes.addAndGet(envelopes);
+                LOGGER.warning("Failed to transmit batch of " + envelopes + " envelopes to '" + target + "' in domain " + domain);
+                t.printStackTrace();
+            }
+        }
+    }
+
+    // writes a big endian int into the buffer
+    static void putInt(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) (value >>> 24);
+        buffer[offset + 1] = (byte) (value >>> 16);
+        buffer[offset + 2] = (byte) (value >>> 8);
+        buffer[offset + 3] = (byte) value;
+    }
+
+    /**
+     * The key of a batch destination.
+     */
+    static final class Destination {
+        final Domain domain;
+        final String target;
+
+        Destination(Domain domain, String target) {
+            this.domain = domain;
+            this.target = target;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Destination)) return false;
+            Destination that = (Destination) o;
+            return domain == that.domain && Objects.equals(target, that.target);
+        }
+
+        @Override
+        public int hashCode() {
+            return domain.hashCode() * 31 + Objects.hashCode(target);
+        }
+    }
+
+    ////////////////////////////////////////
+
+    // the sink to transmit frames to
+    final Sink sink;
+
+    /* Flush thresholds */
+    int maxBytes = 64 * 1024;
+    int maxCount = 128;
+    long lingerNanos = TimeUnit.MICROSECONDS.toNanos(200);
+
+    // the batches by destination
+    final Map<Destination, Batch> batches = new ConcurrentHashMap<>();
+
+    // the timer for linger flushes
+    final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "FrameBatcher-Linger");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /* Failure counters */
+    final AtomicLong failedFrames = new AtomicLong();
+    final AtomicLong failedEnvelopes = new AtomicLong();
+
+    public FrameBatcher(Sink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Set the thresholds at which a batch is flushed.
+     *
+     * @param maxBytes The maximum size of a batch frame in bytes.
+     * @param maxCount The maximum amount of envelopes in a batch.
+     * @param lingerMicros The maximum time an envelope waits, in microseconds.
+     * @return This.
+     */
+    public FrameBatcher thresholds(int maxBytes, int maxCount, long lingerMicros) {
+        this.maxBytes = maxBytes;
+        this.maxCount = maxCount;
+        this.lingerNanos = TimeUnit.MICROSECONDS.toNanos(lingerMicros);
+        return this;
+    }
+
+    /**
+     * Add the given envelope to the batch for its destination.
+     *
+     * @param envelope The packed envelope.
+     * @param domain The domain.
+     * @param target The target, null when publishing.
+     */
+    public void add(byte[] envelope, Domain domain, String target) {
+        Batch batch = batches.computeIfAbsent(new Destination(domain, target), d -> new Batch(d.domain, d.target));
+        synchronized (batch) {
+            // flush first if the envelope does not fit
+            if (batch.count > 0 && batch.length + 4 + envelope.length > maxBytes) {
+                batch.flush();
+            }
+
+            batch.append(envelope);
+            if (batch.count >= maxCount || batch.length >= maxBytes) {
+                batch.flush();
+            } else if (!batch.scheduled) {
+                // flush after lingering
+                batch.scheduled = true;
+                timer.schedule(() -> {
+                    synchronized (batch) {
+                        if (batch.scheduled) {
+                            batch.flush();
+                        }
+                    }
+                }, lingerNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    /**
+     * Get the amount of frames which failed to transmit.
+     *
+     * @return The failed frame count.
+     */
+    public long getFailedFrameCount() {
+        return failedFrames.get();
+    }
+
+    /**
+     * Get the amount of envelopes lost in frames
+     * which failed to transmit.
+     *
+     * @return The failed envelope count.
+     */
+    public long getFailedEnvelopeCount() {
+        return failedEnvelopes.get();
+    }
+
+    /**
+     * Immediately transmit all pending batches.
+     */
+    public void flush() {
+        for (Batch batch : batches.values()) {
+            synchronized (batch) {
+                batch.flush();
+            }
+        }
+    }
+
+    /**
+     * Flush all pending batches and stop the linger timer.
+     */
+    public void close() {
+        flush();
+        timer.shutdownNow();
+    }
+
+}
@@ -0,0 +1,36 @@
+package slatepowered.reco;
+
+import java.util.function.Consumer;
+
+/**
+ * An alternative transport for the frames of messages published in
+ * the {@link CommunicationProvider.Domain#PUBLISH} domain by a
+ * {@link BinaryCommunicationProvider}. Direct and auxiliary messages
+ * keep using the transport of the provider.
+ *
+ * @see BinaryCommunicationProvider#withPublishTransport(PublishTransport)
+ */
+public interface PublishTransport {
+
+    /**
+     * Start receiving published frames, handing every complete
+     * frame to the given receiver.
+     *
+     * @param receiver The frame receiver.
+     */
+    void open(Consumer<byte[]> receiver);
+
+    /**
+     * Publish the given frame to every node
+     * listening on this transport.
+     *
+     * @param frame The encoded frame.
+     */
+    void publish(byte[] frame);
+
+    /**
+     * Closes this transport.
+     */
+    void close();
+
+}
@@ -1,6 +1,9 @@
 package slatepowered.reco;
 
+import slatepowered.reco.buffer.GrowableBuffer;
+
 import java.io.*;
+import java.nio.ByteBuffer;
 
 /**
  * Proxy for serializer implementations.
@@ -15,6 +18,37 @@ public interface Serializer {
      */
     Object read(InputStream stream) throws IOException;
 
+    /**
+     * Deserializes an object from the given range of the array.
+     *
+     * @param bytes The byte array.
+     * @param offset The offset of the serialized object.
+     * @param length The amount of bytes available.
+     * @return The object.
+     */
+    default Object read(byte[] bytes, int offset, int length) throws IOException {
+        return read(new ByteArrayInputStream(bytes, offset, length));
+    }
+
+    /**
+     * Deserializes an object from the remaining bytes of the given
+     * buffer, advancing its position past the bytes consumed.
+     *
+     * @param buffer The buffer.
+     * @return The object.
+     */
+    default Object read(ByteBuffer buffer) throws IOException {
+        if (buffer.hasArray()) {
+            Object object = read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            buffer.position(buffer.limit());
+            return object;
+        }
+
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return read(bytes, 0, bytes.length);
+    }
+
     /**
      * Writes the the given object to the output stream.
      *
@@ -23,4 +57,29 @@ public interface Serializer {
      */
     void write(OutputStream stream, Object object) throws IOException;
 
+    /**
+     * Appends the given object to the buffer. Implementations
+     * can override this to write into the backing array directly.
+     *
+     * @param buffer The buffer.
+     * @param object The object.
+     */
+    default void write(GrowableBuffer buffer, Object object) throws IOException {
+        write((OutputStream) buffer, object);
+    }
+
+    /**
+     * Writes the given object into the buffer at its position,
+     * advancing the position past the written bytes.
+     *
+     * @param buffer The buffer.
+     * @param object The object.
+     * @throws java.nio.BufferOverflowException If the buffer does not have enough space.
+     */
+    default void write(ByteBuffer buffer, Object object) throws IOException {
+        GrowableBuffer tmp = new GrowableBuffer(256);
+        write(tmp, object);
+        buffer.put(tmp.array(), 0, tmp.length());
+    }
+
 }
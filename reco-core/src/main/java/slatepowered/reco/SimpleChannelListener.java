@@ -2,17 +2,57 @@ package slatepowered.reco;
 
 import slatepowered.veru.functional.Callback;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.function.Consumer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
-@SuppressWarnings("unchecked")
+/**
+ * Thread-safe channel listener which can be called and
+ * registered to concurrently.
+ *
+ * The callbacks are stored in an array which is replaced on
+ * registration, so calling iterates a snapshot without locking
+ * or allocating. One-shot callbacks are marked as removed when
+ * they are called and compacted out of the array lazily.
+ */
+@SuppressWarnings({ "unchecked", "rawtypes" })
 public class SimpleChannelListener implements ChannelListener {
 
-    // the callbacks
-    List<Callback<ReceivedMessage<?>>> callbacks = new ArrayList<>();
-    // the callbacks to remove
-    List<Callback<ReceivedMessage<?>>> toRemove = new ArrayList<>();
+    // the empty entry array
+    static final Entry[] EMPTY = new Entry[0];
+
+    /**
+     * A registered callback.
+     */
+    static final class Entry {
+        static final AtomicIntegerFieldUpdater<Entry> REMOVED =
+                AtomicIntegerFieldUpdater.newUpdater(Entry.class, "removed");
+
+        final Callback<ReceivedMessage<?>> callback;
+        final boolean removeOnComplete;
+
+        // whether this entry has been removed
+        volatile int removed;
+
+        Entry(Callback<ReceivedMessage<?>> callback, boolean removeOnComplete) {
+            this.callback = callback;
+            this.removeOnComplete = removeOnComplete;
+        }
+
+        // marks this entry as removed, returns
+        // false if it was already removed
+        boolean markRemoved() {
+            return REMOVED.compareAndSet(this, 0, 1);
+        }
+    }
+
+    // the current snapshot of the callbacks,
+    // only replaced while holding the lock
+    volatile Entry[] entries = EMPTY;
+
+    // the amount of removed entries which
+    // have not been compacted out yet
+    final AtomicInteger removedCount = new AtomicInteger();
 
     @Override
     public Callback<ReceivedMessage<?>> on() {
@@ -22,26 +62,83 @@ public class SimpleChannelListener implements ChannelListener {
     @Override
     public Callback<ReceivedMessage<?>> on(boolean removeOnComplete) {
         Callback<ReceivedMessage<?>> callback = Callback.multi();
-        callbacks.add(callback);
-        if (removeOnComplete)
-            callback.then(__ -> toRemove.add(callback));
+        Entry entry = new Entry(callback, removeOnComplete);
+
+        synchronized (this) {
+            Entry[] old = entries;
+            Entry[] arr = new Entry[old.length + 1];
+            System.arraycopy(old, 0, arr, 0, old.length);
+            arr[old.length] = entry;
+            entries = arr;
+        }
+
         return callback;
     }
 
     @Override
     public void remove(Callback<? extends ReceivedMessage<?>> callback) {
-        callbacks.remove(callback);
+        for (Entry entry : entries) {
+            if (entry.callback == callback) {
+                if (entry.markRemoved())
+                    removed();
+                return;
+            }
+        }
     }
 
     @Override
     public void call(ReceivedMessage<?> message) {
-        // call all callbacks
-        for (Callback<ReceivedMessage<?>> callback : callbacks) {
-            callback.call(message);
+        // call all callbacks in the snapshot
+        final Entry[] arr = entries;
+        for (int i = 0, n = arr.length; i < n; i++) {
+            Entry entry = arr[i];
+            if (entry.removed != 0)
+                continue;
+
+            if (entry.removeOnComplete) {
+                // claim the entry so it is called only once
+                if (!entry.markRemoved())
+                    continue;
+                removed();
+            }
+
+            entry.callback.call(message);
         }
+    }
 
-        // remove callbacks
-        callbacks.removeAll(toRemove);
+    /**
+     * Get the amount of registered callbacks.
+     *
+     * @return The callback count.
+     */
+    public int size() {
+        int size = 0;
+        for (Entry entry : entries)
+            if (entry.removed == 0)
+                size++;
+        return size;
+    }
+
+    // called after an entry was marked as removed,
+    // compacts the array once half of it is removed
+    private void removed() {
+        int count = removedCount.incrementAndGet();
+        if (count * 2 < entries.length)
+            return;
+
+        synchronized (this) {
+            Entry[] old = entries;
+            Entry[] arr = new Entry[old.length];
+            int live = 0;
+            for (Entry entry : old)
+                if (entry.removed == 0)
+                    arr[live++] = entry;
+            if (live == old.length)
+                return;
+
+            entries = live == 0 ? EMPTY : Arrays.copyOf(arr, live);
+            removedCount.set(0);
+        }
     }
 
 }
@@ -0,0 +1,55 @@
+package slatepowered.reco.buffer;
+
+/**
+ * Provides reusable buffers for encoding messages.
+ *
+ * A buffer acquired from the pool must be released back
+ * once the written bytes are no longer needed, and must
+ * not be used after releasing it.
+ */
+public interface BufferPool {
+
+    /**
+     * Get the shared pool which keeps a few buffers per thread.
+     *
+     * @return The pool.
+     */
+    static BufferPool threadLocal() {
+        return ThreadLocalBufferPool.SHARED;
+    }
+
+    /**
+     * Create a pool which keeps buffers per thread.
+     *
+     * @param initialCapacity The initial capacity of new buffers.
+     * @param maxRetainedCapacity The maximum capacity of a buffer which is kept for reuse.
+     * @return The pool.
+     */
+    static BufferPool threadLocal(int initialCapacity, int maxRetainedCapacity) {
+        return new ThreadLocalBufferPool(initialCapacity, maxRetainedCapacity);
+    }
+
+    /**
+     * Get a pool which allocates a new buffer every time.
+     *
+     * @return The pool.
+     */
+    static BufferPool unpooled() {
+        return UnpooledBufferPool.INSTANCE;
+    }
+
+    /**
+     * Get an empty buffer.
+     *
+     * @return The buffer.
+     */
+    GrowableBuffer acquire();
+
+    /**
+     * Return the given buffer to the pool.
+     *
+     * @param buffer The buffer.
+     */
+    void release(GrowableBuffer buffer);
+
+}
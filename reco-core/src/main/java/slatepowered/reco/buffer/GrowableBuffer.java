@@ -0,0 +1,196 @@
+package slatepowered.reco.buffer;
+
+import java.io.OutputStream;
+import java.io.UTFDataFormatException;
+import java.util.Arrays;
+
+/**
+ * A growable heap byte buffer which can be written to directly
+ * or as an output stream, meant to be reused through a
+ * {@link BufferPool} instead of being allocated per message.
+ *
+ * Strings are written in the modified UTF-8 format used by
+ * {@link java.io.DataOutputStream#writeUTF(String)}.
+ */
+public class GrowableBuffer extends OutputStream {
+
+    // the backing array
+    byte[] array;
+
+    // the amount of bytes written
+    int length;
+
+    public GrowableBuffer(int initialCapacity) {
+        this.array = new byte[initialCapacity];
+    }
+
+    /**
+     * Get the backing array, which may be
+     * longer than the written length.
+     */
+    public byte[] array() {
+        return array;
+    }
+
+    /**
+     * Get the amount of bytes written.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Get the capacity of the backing array.
+     */
+    public int capacity() {
+        return array.length;
+    }
+
+    /**
+     * Replace the backing array and written length, used by
+     * serializers which write into the array themselves.
+     *
+     * @param array The new backing array.
+     * @param length The amount of bytes written.
+     * @return This.
+     */
+    public GrowableBuffer set(byte[] array, int length) {
+        this.array = array;
+        this.length = length;
+        return this;
+    }
+
+    /**
+     * Discard all written bytes.
+     *
+     * @return This.
+     */
+    public GrowableBuffer reset() {
+        length = 0;
+        return this;
+    }
+
+    /**
+     * Make sure the given amount of bytes can
+     * be written without growing.
+     *
+     * @param bytes The amount of bytes.
+     * @return This.
+     */
+    public GrowableBuffer ensureWritable(int bytes) {
+        int required = length + bytes;
+        if (required > array.length) {
+            array = Arrays.copyOf(array, Math.max(required, array.length * 2));
+        }
+
+        return this;
+    }
+
+    /**
+     * Copy the written bytes into a new array.
+     *
+     * @return The byte array.
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(array, length);
+    }
+
+    @Override
+    public void write(int b) {
+        ensureWritable(1);
+        array[length++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        ensureWritable(len);
+        System.arraycopy(b, off, array, length, len);
+        length += len;
+    }
+
+    public GrowableBuffer writeByte(int b) {
+        write(b);
+        return this;
+    }
+
+    public GrowableBuffer writeShort(int v) {
+        ensureWritable(2);
+        array[length++] = (byte) (v >>> 8);
+        array[length++] = (byte) v;
+        return this;
+    }
+
+    public GrowableBuffer writeInt(int v) {
+        ensureWritable(4);
+        array[length++] = (byte) (v >>> 24);
+        array[length++] = (byte) (v >>> 16);
+        array[length++] = (byte) (v >>> 8);
+        array[length++] = (byte) v;
+        return this;
+    }
+
+    /**
+     * Write the given int as an unsigned LEB128 varint,
+     * taking 1 byte for values below 128.
+     *
+     * @param v The value.
+     * @return This.
+     */
+    public GrowableBuffer writeVarInt(int v) {
+        ensureWritable(5);
+        while ((v & ~0x7F) != 0) {
+            array[length++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+
+        array[length++] = (byte) v;
+        return this;
+    }
+
+    /**
+     * Write the given string as a length prefixed
+     * modified UTF-8 string.
+     *
+     * @param str The string.
+     * @return This.
+     * @throws UTFDataFormatException If the encoded string is too long.
+     */
+    public GrowableBuffer writeUTF(String str) throws UTFDataFormatException {
+        final int strLength = str.length();
+
+        // calculate the encoded length
+        int utfLength = strLength;
+        for (int i = 0; i < strLength; i++) {
+            char c = str.charAt(i);
+            if (c >= 0x80 || c == 0)
+                utfLength += c >= 0x800 ? 2 : 1;
+        }
+
+        if (utfLength > 65535)
+            throw new UTFDataFormatException("Encoded string too long: " + utfLength + " bytes");
+
+        ensureWritable(2 + utfLength);
+        byte[] array = this.array;
+        int pos = length;
+        array[pos++] = (byte) (utfLength >>> 8);
+        array[pos++] = (byte) utfLength;
+
+        for (int i = 0; i < strLength; i++) {
+            char c = str.charAt(i);
+            if (c < 0x80 && c != 0) {
+                array[pos++] = (byte) c;
+            } else if (c >= 0x800) {
+                array[pos++] = (byte) (0xE0 | ((c >> 12) & 0x0F));
+                array[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                array[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else {
+                array[pos++] = (byte) (0xC0 | ((c >> 6) & 0x1F));
+                array[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+
+        length = pos;
+        return this;
+    }
+
+}
@@ -0,0 +1,77 @@
+package slatepowered.reco.buffer;
+
+import java.io.UTFDataFormatException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodes strings in the modified UTF-8 format used by
+ * {@link java.io.DataInput#readUTF()} straight from byte arrays.
+ */
+public final class ModifiedUTF8 {
+
+    private ModifiedUTF8() { }
+
+    /**
+     * Decode the given amount of encoded bytes into a string.
+     *
+     * @param bytes The byte array.
+     * @param offset The offset of the encoded bytes, after the length prefix.
+     * @param utfLength The amount of encoded bytes.
+     * @return The string.
+     * @throws UTFDataFormatException If the bytes are malformed.
+     */
+    public static String decode(byte[] bytes, int offset, int utfLength) throws UTFDataFormatException {
+        final int end = offset + utfLength;
+
+        // fast path for ascii strings
+        int i = offset;
+        while (i < end && bytes[i] > 0)
+            i++;
+        if (i == end)
+            return new String(bytes, offset, utfLength, StandardCharsets.ISO_8859_1);
+
+        char[] chars = new char[utfLength];
+        int count = 0;
+        for (int j = offset; j < i; j++)
+            chars[count++] = (char) bytes[j];
+
+        while (i < end) {
+            int c = bytes[i] & 0xFF;
+            switch (c >> 4) {
+                case 0: case 1: case 2: case 3: case 4: case 5: case 6: case 7:
+                    i++;
+                    chars[count++] = (char) c;
+                    break;
+
+                case 12: case 13: {
+                    if (i + 2 > end)
+                        throw new UTFDataFormatException("Malformed input: partial character at end");
+                    int c2 = bytes[i + 1];
+                    if ((c2 & 0xC0) != 0x80)
+                        throw new UTFDataFormatException("Malformed input around byte " + (i - offset));
+                    chars[count++] = (char) (((c & 0x1F) << 6) | (c2 & 0x3F));
+                    i += 2;
+                    break;
+                }
+
+                case 14: {
+                    if (i + 3 > end)
+                        throw new UTFDataFormatException("Malformed input: partial character at end");
+                    int c2 = bytes[i + 1];
+                    int c3 = bytes[i + 2];
+                    if ((c2 & 0xC0) != 0x80 || (c3 & 0xC0) != 0x80)
+                        throw new UTFDataFormatException("Malformed input around byte " + (i - offset));
+                    chars[count++] = (char) (((c & 0x0F) << 12) | ((c2 & 0x3F) << 6) | (c3 & 0x3F));
+                    i += 3;
+                    break;
+                }
+
+                default:
+                    throw new UTFDataFormatException("Malformed input around byte " + (i - offset));
+            }
+        }
+
+        return new String(chars, 0, count);
+    }
+
+}
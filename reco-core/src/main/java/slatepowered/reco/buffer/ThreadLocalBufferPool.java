@@ -0,0 +1,61 @@
+package slatepowered.reco.buffer;
+
+/**
+ * Keeps a small stack of buffers per thread, so nested
+ * acquisitions on the same thread get separate buffers.
+ *
+ * Buffers which grew beyond the maximum retained capacity
+ * are dropped on release to bound the memory held per thread.
+ */
+final class ThreadLocalBufferPool implements BufferPool {
+
+    static final ThreadLocalBufferPool SHARED = new ThreadLocalBufferPool(4 * 1024, 1024 * 1024);
+
+    // the maximum amount of buffers kept per thread
+    static final int MAX_BUFFERS_PER_THREAD = 4;
+
+    /**
+     * The free buffers of a thread.
+     */
+    static final class Stack {
+        final GrowableBuffer[] buffers = new GrowableBuffer[MAX_BUFFERS_PER_THREAD];
+        int size;
+    }
+
+    // the initial capacity of new buffers
+    final int initialCapacity;
+
+    // the maximum capacity of a buffer to keep
+    final int maxRetainedCapacity;
+
+    // the free buffers by thread
+    final ThreadLocal<Stack> stackLocal = ThreadLocal.withInitial(Stack::new);
+
+    ThreadLocalBufferPool(int initialCapacity, int maxRetainedCapacity) {
+        this.initialCapacity = initialCapacity;
+        this.maxRetainedCapacity = maxRetainedCapacity;
+    }
+
+    @Override
+    public GrowableBuffer acquire() {
+        Stack stack = stackLocal.get();
+        if (stack.size == 0)
+            return new GrowableBuffer(initialCapacity);
+
+        GrowableBuffer buffer = stack.buffers[--stack.size];
+        stack.buffers[stack.size] = null;
+        return buffer.reset();
+    }
+
+    @Override
+    public void release(GrowableBuffer buffer) {
+        if (buffer.capacity() > maxRetainedCapacity)
+            return;
+
+        Stack stack = stackLocal.get();
+        if (stack.size < MAX_BUFFERS_PER_THREAD) {
+            stack.buffers[stack.size++] = buffer;
+        }
+    }
+
+}
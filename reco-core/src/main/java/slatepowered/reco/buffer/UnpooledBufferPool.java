@@ -0,0 +1,20 @@
+package slatepowered.reco.buffer;
+
+/**
+ * Allocates a new buffer for every acquisition.
+ */
+final class UnpooledBufferPool implements BufferPool {
+
+    static final UnpooledBufferPool INSTANCE = new UnpooledBufferPool();
+
+    @Override
+    public GrowableBuffer acquire() {
+        return new GrowableBuffer(256);
+    }
+
+    @Override
+    public void release(GrowableBuffer buffer) {
+
+    }
+
+}
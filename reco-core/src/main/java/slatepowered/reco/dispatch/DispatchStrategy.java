@@ -0,0 +1,113 @@
+package slatepowered.reco.dispatch;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Decides on which thread the listeners for a received
+ * message are called.
+ *
+ * The strategy is given the source of each message so it can
+ * keep messages from the same remote in order while running
+ * messages from different remotes in parallel.
+ */
+public interface DispatchStrategy {
+
+    /**
+     * Get the strategy which calls the listeners directly on
+     * the receiving thread of the provider.
+     *
+     * @return The strategy.
+     */
+    static DispatchStrategy inline() {
+        return InlineDispatchStrategy.INSTANCE;
+    }
+
+    /**
+     * Create a strategy which submits every message to the
+     * given executor, without any ordering guarantees.
+     *
+     * @param executor The executor.
+     * @return The strategy.
+     */
+    static DispatchStrategy executor(Executor executor) {
+        return new ExecutorDispatchStrategy(executor, false);
+    }
+
+    /**
+     * Create a strategy backed by a new shared pool of daemon
+     * threads, without any ordering guarantees.
+     *
+     * @param threads The amount of threads.
+     * @return The strategy.
+     */
+    static DispatchStrategy sharedPool(int threads) {
+        return new ExecutorDispatchStrategy(Executors.newFixedThreadPool(threads,
+                new DispatchThreadFactory("reco-dispatch")), true);
+    }
+
+    /**
+     * Create a strategy which keeps messages from the same source
+     * in order by hashing each source onto one of the given amount
+     * of single threaded stripes.
+     *
+     * @param stripes The amount of stripes, rounded up to a power of two.
+     * @return The strategy.
+     */
+    static DispatchStrategy orderedPerSource(int stripes) {
+        return new OrderedDispatchStrategy(stripes);
+    }
+
+    /**
+     * Create a strategy which runs every message on a new virtual
+     * thread, without any ordering guarantees. Requires Java 21.
+     *
+     * @return The strategy.
+     * @throws UnsupportedOperationException If virtual threads are not available.
+     */
+    static DispatchStrategy virtualThreads() {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+            return new ExecutorDispatchStrategy(executor, true);
+        } catch (NoSuchMethodException e) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or newer");
+        } catch (Exception e) {
+            throw new UnsupportedOperationException("Failed to create virtual thread executor", e);
+        }
+    }
+
+    /**
+     * Check whether virtual threads are available on
+     * the running JVM.
+     *
+     * @return Whether they are supported.
+     */
+    static boolean isVirtualThreadsSupported() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Dispatch the given task for a message
+     * received from the given source.
+     *
+     * @param source The name of the source remote.
+     * @param task The task calling the listeners.
+     */
+    void dispatch(String source, Runnable task);
+
+    /**
+     * Release any threads owned by this strategy.
+     */
+    default void close() {
+
+    }
+
+}
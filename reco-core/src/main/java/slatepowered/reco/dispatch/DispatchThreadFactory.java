@@ -0,0 +1,28 @@
+package slatepowered.reco.dispatch;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates named daemon threads for dispatching.
+ */
+final class DispatchThreadFactory implements ThreadFactory {
+
+    // the name prefix of the threads
+    final String prefix;
+
+    // the index of the next thread
+    final AtomicInteger nextIndex = new AtomicInteger();
+
+    DispatchThreadFactory(String prefix) {
+        this.prefix = prefix;
+    }
+
+    @Override
+    public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, prefix + "-" + nextIndex.getAndIncrement());
+        thread.setDaemon(true);
+        return thread;
+    }
+
+}
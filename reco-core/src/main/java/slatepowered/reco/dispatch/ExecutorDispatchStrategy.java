@@ -0,0 +1,35 @@
+package slatepowered.reco.dispatch;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Submits every message to an executor.
+ */
+final class ExecutorDispatchStrategy implements DispatchStrategy {
+
+    // the executor to submit to
+    final Executor executor;
+
+    // whether the executor was created by
+    // this strategy and should be shut down
+    final boolean owned;
+
+    ExecutorDispatchStrategy(Executor executor, boolean owned) {
+        this.executor = executor;
+        this.owned = owned;
+    }
+
+    @Override
+    public void dispatch(String source, Runnable task) {
+        executor.execute(task);
+    }
+
+    @Override
+    public void close() {
+        if (owned && executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+
+}
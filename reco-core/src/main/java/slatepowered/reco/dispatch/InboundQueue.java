@@ -0,0 +1,146 @@
+package slatepowered.reco.dispatch;
+
+import slatepowered.reco.Channel;
+import slatepowered.reco.ReceivedMessage;
+
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded queue of received messages from one source on one
+ * channel which are waiting to be handled by the dispatch strategy.
+ *
+ * Queues are kept per source so the tasks dispatched for a source
+ * only take messages of that source, which keeps the order of
+ * strategies ordering by source.
+ */
+public class InboundQueue {
+
+    /**
+     * The channel and source of the messages in a queue.
+     */
+    public static final class Key {
+        final Channel channel;
+        final String source;
+
+        public Key(Channel channel, String source) {
+            this.channel = channel;
+            this.source = source;
+        }
+
+        public Channel getChannel() {
+            return channel;
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return channel == key.channel && Objects.equals(source, key.source);
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(channel) * 31 + Objects.hashCode(source);
+        }
+    }
+
+    // the queued messages
+    final ArrayBlockingQueue<ReceivedMessage<?>> queue;
+
+    // the policy applied when the queue is full
+    final OverflowPolicy overflowPolicy;
+
+    /* Metrics */
+    final AtomicLong droppedCount = new AtomicLong();
+    final AtomicLong rejectedCount = new AtomicLong();
+
+    public InboundQueue(int capacity, OverflowPolicy overflowPolicy) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Try to enqueue the given message, applying the overflow
+     * policy if the queue is full.
+     *
+     * @param message The message.
+     * @return False if the message was dropped or rejected.
+     */
+    public boolean offer(ReceivedMessage<?> message) {
+        if (queue.offer(message))
+            return true;
+
+        switch (overflowPolicy) {
+            case BLOCK:
+                try {
+                    queue.put(message);
+                    return true;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    droppedCount.incrementAndGet();
+                    return false;
+                }
+
+            case DROP_OLDEST:
+                do {
+                    if (queue.poll() != null)
+                        droppedCount.incrementAndGet();
+                } while (!queue.offer(message));
+                return true;
+
+            case REJECT:
+                rejectedCount.incrementAndGet();
+                return false;
+
+            default:
+                droppedCount.incrementAndGet();
+                return false;
+        }
+    }
+
+    /**
+     * Take the oldest queued message.
+     *
+     * @return The message or null if the queue is empty.
+     */
+    public ReceivedMessage<?> poll() {
+        return queue.poll();
+    }
+
+    /**
+     * Get the amount of messages waiting to be handled.
+     *
+     * @return The queue depth.
+     */
+    public int getDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Get the total amount of messages dropped
+     * because the queue was full.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Get the total amount of messages rejected
+     * because the queue was full.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+}
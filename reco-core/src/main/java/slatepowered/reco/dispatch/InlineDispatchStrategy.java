@@ -0,0 +1,15 @@
+package slatepowered.reco.dispatch;
+
+/**
+ * Calls the listeners on the receiving thread.
+ */
+final class InlineDispatchStrategy implements DispatchStrategy {
+
+    static final InlineDispatchStrategy INSTANCE = new InlineDispatchStrategy();
+
+    @Override
+    public void dispatch(String source, Runnable task) {
+        task.run();
+    }
+
+}
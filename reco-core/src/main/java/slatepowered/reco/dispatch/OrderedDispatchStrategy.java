@@ -0,0 +1,54 @@
+package slatepowered.reco.dispatch;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Hashes each source onto a single threaded stripe, so messages
+ * from one remote are handled in the order they were received
+ * while different remotes are handled in parallel.
+ */
+final class OrderedDispatchStrategy implements DispatchStrategy {
+
+    // the stripes
+    final ExecutorService[] stripes;
+
+    // the mask to get the stripe index
+    final int mask;
+
+    OrderedDispatchStrategy(int stripeCount) {
+        if (stripeCount <= 0)
+            throw new IllegalArgumentException("Stripe count must be positive, got " + stripeCount);
+
+        int size = Integer.highestOneBit(stripeCount);
+        if (size < stripeCount)
+            size <<= 1;
+
+        this.stripes = new ExecutorService[size];
+        this.mask = size - 1;
+
+        DispatchThreadFactory threadFactory = new DispatchThreadFactory("reco-dispatch-ordered");
+        for (int i = 0; i < size; i++) {
+            stripes[i] = Executors.newSingleThreadExecutor(threadFactory);
+        }
+    }
+
+    // spreads the hash code of the source
+    static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public void dispatch(String source, Runnable task) {
+        int hash = source != null ? spread(source.hashCode()) : 0;
+        stripes[hash & mask].execute(task);
+    }
+
+    @Override
+    public void close() {
+        for (ExecutorService stripe : stripes) {
+            stripe.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,29 @@
+package slatepowered.reco.dispatch;
+
+/**
+ * What to do with a received message when the
+ * inbound queue of its source is full.
+ */
+public enum OverflowPolicy {
+
+    /**
+     * Block the receiving thread until there is space, which stops
+     * the provider from consuming. Transports acknowledging deliveries,
+     * like RabbitMQ with its prefetch limit, then stop the upstream
+     * from delivering more, others buffer in the transport meanwhile.
+     */
+    BLOCK,
+
+    /** Drop the oldest queued message to make space. */
+    DROP_OLDEST,
+
+    /** Drop the received message. */
+    DROP_NEWEST,
+
+    /**
+     * Drop the received message and pass it to the rejection
+     * listeners of the provider so they can respond to it.
+     */
+    REJECT
+
+}
@@ -0,0 +1,52 @@
+package slatepowered.reco.local;
+
+import slatepowered.reco.AbstractChannel;
+import slatepowered.reco.CommunicationProvider;
+import slatepowered.reco.Message;
+
+public class LocalChannel extends AbstractChannel {
+
+    // the local provider
+    final LocalProvider provider;
+
+    // the remote node name
+    final String remote;
+
+    // whether this channel is auxiliary
+    final boolean isAux;
+
+    public LocalChannel(LocalProvider provider, String remote, boolean isAux) {
+        this.provider = provider;
+        this.remote = remote;
+        this.isAux = isAux;
+    }
+
+    @Override
+    public String remote() {
+        return remote;
+    }
+
+    @Override
+    public void send(Message<?> message) {
+        if (!isAux) {
+            provider.send(message, remote);
+        } else {
+            provider.sendAux(message, remote);
+        }
+    }
+
+    @Override
+    public void publish(Message<?> message) {
+        provider.publish(message);
+    }
+
+    public boolean isAux() {
+        return isAux;
+    }
+
+    @Override
+    public CommunicationProvider<?> provider() {
+        return provider;
+    }
+
+}
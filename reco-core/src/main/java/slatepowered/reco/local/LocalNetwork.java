@@ -0,0 +1,99 @@
+package slatepowered.reco.local;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * An in-memory network of {@link LocalProvider}s which live
+ * in the same JVM and exchange messages directly, without
+ * any serialization or broker in between.
+ */
+public class LocalNetwork {
+
+    // the shared default network
+    private static final LocalNetwork STANDARD = new LocalNetwork("local");
+
+    /**
+     * Get the shared default local network.
+     *
+     * @return The network.
+     */
+    public static LocalNetwork standard() {
+        return STANDARD;
+    }
+
+    ////////////////////////////////////////
+
+    // the name of this network, used
+    // as the queue name for publications
+    final String name;
+
+    // the providers registered by node name
+    final ConcurrentHashMap<String, LocalProvider> providersByName = new ConcurrentHashMap<>();
+
+    // the providers listening by auxiliary channel name
+    final ConcurrentHashMap<String, Set<LocalProvider>> auxListeners = new ConcurrentHashMap<>();
+
+    public LocalNetwork(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the provider registered for the given node.
+     *
+     * @param node The node name.
+     * @return The provider or null if absent.
+     */
+    public LocalProvider getProvider(String node) {
+        return providersByName.get(node);
+    }
+
+    /**
+     * Get all providers registered to this network.
+     *
+     * @return The providers.
+     */
+    public Collection<LocalProvider> getProviders() {
+        return Collections.unmodifiableCollection(providersByName.values());
+    }
+
+    /**
+     * Get all providers listening on the given
+     * auxiliary channel.
+     *
+     * @param aux The auxiliary channel name.
+     * @return The providers.
+     */
+    public Collection<LocalProvider> getAuxListeners(String aux) {
+        Set<LocalProvider> set = auxListeners.get(aux);
+        return set != null ? set : Collections.emptySet();
+    }
+
+    // registers the given provider by its node name
+    void register(LocalProvider provider) {
+        if (providersByName.putIfAbsent(provider.remote(), provider) != null) {
+            throw new IllegalStateException("A local node named '" + provider.remote() + "' already exists in network '" + name + "'");
+        }
+    }
+
+    // adds the given provider as a listener on an aux channel
+    void listenAux(String aux, LocalProvider provider) {
+        auxListeners.computeIfAbsent(aux, __ -> new CopyOnWriteArraySet<>()).add(provider);
+    }
+
+    // removes the given provider from the network
+    void unregister(LocalProvider provider) {
+        providersByName.remove(provider.remote(), provider);
+        for (Set<LocalProvider> set : auxListeners.values()) {
+            set.remove(provider);
+        }
+    }
+
+}
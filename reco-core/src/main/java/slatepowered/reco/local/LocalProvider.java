@@ -0,0 +1,157 @@
+package slatepowered.reco.local;
+
+import slatepowered.reco.CommunicationProvider;
+import slatepowered.reco.Message;
+import slatepowered.reco.ReceivedMessage;
+import slatepowered.reco.Serializer;
+import slatepowered.veru.misc.Throwables;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+/**
+ * A communication provider which exchanges messages with other
+ * providers in the same JVM through a shared {@link LocalNetwork}.
+ *
+ * Messages are handed over directly, so the payload objects are
+ * shared between the sender and receivers unless a copy serializer
+ * is set through {@link #copyOnSend(Serializer)}.
+ */
+@SuppressWarnings({ "rawtypes" })
+public class LocalProvider extends CommunicationProvider<LocalChannel> {
+
+    // the network this provider is registered in
+    final LocalNetwork network;
+
+    // the serializer used to copy payloads for
+    // each receiver, null if payloads are shared
+    Serializer copySerializer;
+
+    public LocalProvider(String localName, LocalNetwork network) {
+        super(localName);
+        this.network = network;
+        network.register(this);
+    }
+
+    public LocalProvider(String localName) {
+        this(localName, LocalNetwork.standard());
+    }
+
+    public LocalNetwork getNetwork() {
+        return network;
+    }
+
+    /**
+     * Copy the payload of every message sent for each receiver
+     * using the given serializer, isolating the nodes from each
+     * other like a real transport would.
+     *
+     * @param serializer The serializer or null to share payloads.
+     * @return This.
+     */
+    public LocalProvider copyOnSend(Serializer serializer) {
+        this.copySerializer = serializer;
+        return this;
+    }
+
+    // copies the given payload if a copy
+    // serializer has been set
+    private Object copyPayload(Object payload) {
+        if (copySerializer == null || payload == null)
+            return payload;
+
+        try {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            copySerializer.write(outputStream, payload);
+            return copySerializer.read(new ByteArrayInputStream(outputStream.toByteArray()));
+        } catch (Exception e) {
+            // rethrow error
+            Throwables.sneakyThrow(e);
+            return null;
+        }
+    }
+
+    // hands the given message over to the target provider
+    private void deliver(LocalProvider target,
+                         Message message,
+                         Domain domain,
+                         String queue) {
+        ReceivedMessage<Object> receivedMessage = new ReceivedMessage<>(message.getName());
+        receivedMessage.payload(copyPayload(message.payload()));
+
+        target.received(receivedMessage, domain, queue, localName);
+    }
+
+    /**
+     * Sends the given message to a specific
+     * target.
+     *
+     * @param message The message.
+     * @param target The target.
+     */
+    public void send(Message message, String target) {
+        LocalProvider provider = network.getProvider(target);
+        if (provider == null) {
+            logger.warning("Direct message sent to unknown local node '" + target + "'");
+            return;
+        }
+
+        deliver(provider, message, Domain.DIRECT, target);
+    }
+
+    /**
+     * Sends the given message to a specific
+     * auxiliary target.
+     *
+     * @param message The message.
+     * @param target The aux target.
+     */
+    public void sendAux(Message message, String target) {
+        for (LocalProvider provider : network.getAuxListeners(target)) {
+            if (provider == this)
+                continue;
+
+            deliver(provider, message, Domain.AUX, target);
+        }
+    }
+
+    /**
+     * Publish a message to all nodes
+     * in the local network.
+     *
+     * @param message The message to publish.
+     */
+    @Override
+    public void publish(Message<?> message) {
+        for (LocalProvider provider : network.getProviders()) {
+            if (provider == this)
+                continue;
+
+            deliver(provider, message, Domain.PUBLISH, network.name);
+        }
+    }
+
+    @Override
+    public LocalChannel newChannel(String remote, boolean aux) {
+        LocalChannel channel = new LocalChannel(this, remote, aux);
+        withChannel(channel);
+
+        if (aux) {
+            // listen for messages on the aux channel
+            network.listenAux(remote, this);
+        }
+
+        return channel;
+    }
+
+    @Override
+    public void send(Message<?> message, LocalChannel channel) {
+        channel.send(message);
+    }
+
+    @Override
+    public void close() {
+        network.unregister(this);
+    }
+
+}
@@ -0,0 +1,54 @@
+package test.slatepowered.reco;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import slatepowered.reco.buffer.BufferPool;
+import slatepowered.reco.buffer.GrowableBuffer;
+import slatepowered.reco.buffer.ModifiedUTF8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+
+public class BufferPoolTest {
+
+    @Test
+    void test_WriteUTFMatchesDataOutput() throws Exception {
+        String str = "plain \u0000 été 中文 😀";
+
+        ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+        DataOutputStream dataStream = new DataOutputStream(byteStream);
+        dataStream.writeUTF(str);
+        dataStream.writeInt(0x12345678);
+
+        GrowableBuffer buffer = new GrowableBuffer(1);
+        buffer.writeUTF(str).writeInt(0x12345678);
+
+        Assertions.assertArrayEquals(byteStream.toByteArray(), buffer.toByteArray());
+        Assertions.assertEquals(str, ModifiedUTF8.decode(buffer.array(), 2, buffer.length() - 6));
+    }
+
+    @Test
+    void test_ThreadLocalReuse() {
+        BufferPool pool = BufferPool.threadLocal(64, 1024);
+
+        // released buffers are reused and reset
+        GrowableBuffer buffer = pool.acquire();
+        buffer.writeInt(1);
+        pool.release(buffer);
+        Assertions.assertSame(buffer, pool.acquire());
+        Assertions.assertEquals(0, buffer.length());
+
+        // nested acquisitions get separate buffers
+        GrowableBuffer nested = pool.acquire();
+        Assertions.assertNotSame(buffer, nested);
+        pool.release(nested);
+        pool.release(buffer);
+
+        // buffers which grew too large are dropped
+        GrowableBuffer large = pool.acquire();
+        large.ensureWritable(4096);
+        pool.release(large);
+        Assertions.assertNotSame(large, pool.acquire());
+    }
+
+}
@@ -0,0 +1,72 @@
+package test.slatepowered.reco;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import slatepowered.reco.ChannelGroup;
+import slatepowered.reco.local.LocalNetwork;
+import slatepowered.reco.local.LocalProvider;
+
+import java.util.concurrent.TimeUnit;
+
+public class ChannelGroupTest {
+
+    @Test
+    void test_SelectByCost() throws Exception {
+        LocalNetwork network = new LocalNetwork("group-test");
+        LocalProvider provider = new LocalProvider("client", network);
+        ChannelGroup group = new ChannelGroup("service");
+        Assertions.assertThrows(IllegalStateException.class, group::select);
+
+        group.add(provider.channel("a")).add(provider.channel("b"));
+        Assertions.assertEquals(2, group.size());
+        ChannelGroup.Member a = group.getMembers().get(0);
+        ChannelGroup.Member b = group.getMembers().get(1);
+
+        // the member with less in-flight exchanges is selected
+        long start = a.start();
+        for (int i = 0; i < 100; i++)
+            Assertions.assertSame(b, group.select());
+        a.complete(start);
+        Assertions.assertEquals(0, a.getInFlight());
+
+        // the member with the lower latency is selected
+        long slowStart = b.start();
+        Thread.sleep(20);
+        b.complete(slowStart);
+        a.complete(a.start());
+        Assertions.assertTrue(b.getLatencyNanos() > a.getLatencyNanos());
+        for (int i = 0; i < 100; i++)
+            Assertions.assertSame(a, group.select());
+        Assertions.assertSame(a, group.policy(ChannelGroup.Policy.LEAST_COST).select());
+
+        group.remove(provider.channel("a"));
+        Assertions.assertSame(b, group.select());
+    }
+
+    @Test
+    void test_UnmeasuredAndFailingMembers() throws Exception {
+        LocalNetwork network = new LocalNetwork("group-probe-test");
+        LocalProvider provider = new LocalProvider("client", network);
+        ChannelGroup group = new ChannelGroup("service", provider.channel("a"), provider.channel("b"))
+                .failurePenalty(1, TimeUnit.SECONDS);
+        ChannelGroup.Member a = group.getMembers().get(0);
+        ChannelGroup.Member b = group.getMembers().get(1);
+        a.complete(a.start());
+
+        // a new member only receives one exchange until measured
+        group.add(provider.channel("c"));
+        ChannelGroup.Member c = group.getMembers().get(2);
+        c.start();
+        for (int i = 0; i < 100; i++)
+            Assertions.assertNotSame(c, group.select());
+        Assertions.assertNotSame(c, group.policy(ChannelGroup.Policy.LEAST_COST).select());
+
+        // failures are recorded as slow exchanges
+        b.fail(b.start());
+        Assertions.assertTrue(b.getLatencyNanos() >= TimeUnit.SECONDS.toNanos(1));
+        for (int i = 0; i < 100; i++)
+            Assertions.assertSame(a, group.select());
+        Assertions.assertEquals(0, b.getInFlight());
+    }
+
+}
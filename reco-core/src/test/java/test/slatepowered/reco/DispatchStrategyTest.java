@@ -0,0 +1,121 @@
+package test.slatepowered.reco;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import slatepowered.reco.Message;
+import slatepowered.reco.dispatch.DispatchStrategy;
+import slatepowered.reco.dispatch.OverflowPolicy;
+import slatepowered.reco.local.LocalNetwork;
+import slatepowered.reco.local.LocalProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class DispatchStrategyTest {
+
+    @Test
+    void test_OrderedPerSource() throws Exception {
+        DispatchStrategy strategy = DispatchStrategy.orderedPerSource(4);
+        try {
+            final int count = 10000;
+            List<Integer> orderA = new ArrayList<>();
+            List<Integer> orderB = new ArrayList<>();
+            CountDownLatch done = new CountDownLatch(2 * count);
+
+            for (int i = 0; i < count; i++) {
+                final int index = i;
+                strategy.dispatch("a", () -> { orderA.add(index); done.countDown(); });
+                strategy.dispatch("b", () -> { orderB.add(index); done.countDown(); });
+            }
+
+            Assertions.assertTrue(done.await(10, TimeUnit.SECONDS));
+            for (int i = 0; i < count; i++) {
+                Assertions.assertEquals(i, orderA.get(i));
+                Assertions.assertEquals(i, orderB.get(i));
+            }
+        } finally {
+            strategy.close();
+        }
+    }
+
+    @Test
+    void test_QueuedPublicationsOrderedPerSource() throws Exception {
+        DispatchStrategy strategy = DispatchStrategy.orderedPerSource(4);
+        LocalNetwork network = new LocalNetwork("dispatch-queue-test");
+        LocalProvider receiver = new LocalProvider("receiver", network);
+        LocalProvider a = new LocalProvider("a", network);
+        LocalProvider b = new LocalProvider("b", network);
+        receiver.dispatchStrategy(strategy);
+        receiver.inboundQueue(64, OverflowPolicy.BLOCK);
+
+        final int count = 5000;
+        Map<String, List<Integer>> orders = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(2 * count);
+        try {
+            receiver.listen("seq").on().then(message -> {
+                orders.computeIfAbsent(message.getSource(), __ -> new ArrayList<>()).add(message.payload());
+                done.countDown();
+            });
+
+            Thread publisherA = new Thread(() -> {
+                for (int i = 0; i < count; i++) a.publish(new Message<>("seq").payload(i));
+            });
+            Thread publisherB = new Thread(() -> {
+                for (int i = 0; i < count; i++) b.publish(new Message<>("seq").payload(-i));
+            });
+            publisherA.start();
+            publisherB.start();
+            publisherA.join();
+            publisherB.join();
+
+            Assertions.assertTrue(done.await(10, TimeUnit.SECONDS));
+            Assertions.assertEquals(2, receiver.getInboundQueues().size());
+            for (int i = 0; i < count; i++) {
+                Assertions.assertEquals(i, orders.get("a").get(i));
+                Assertions.assertEquals(-i, orders.get("b").get(i));
+            }
+        } finally {
+            strategy.close();
+            receiver.close();
+            a.close();
+            b.close();
+        }
+    }
+
+    @Test
+    void test_SlowHandlerDoesNotStallOtherRemotes() throws Exception {
+        DispatchStrategy strategy = DispatchStrategy.sharedPool(2);
+        LocalNetwork network = new LocalNetwork("dispatch-test");
+        LocalProvider receiver = new LocalProvider("receiver", network);
+        LocalProvider slow = new LocalProvider("slow", network);
+        LocalProvider fast = new LocalProvider("fast", network);
+        receiver.dispatchStrategy(strategy);
+
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch fastReceived = new CountDownLatch(1);
+        try {
+            receiver.listen("slow").on().then(__ -> {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ignored) { }
+            });
+            receiver.listen("fast").on().then(__ -> fastReceived.countDown());
+
+            slow.channel("receiver").send(new Message<>("slow"));
+            fast.channel("receiver").send(new Message<>("fast"));
+
+            Assertions.assertTrue(fastReceived.await(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            strategy.close();
+            receiver.close();
+            slow.close();
+            fast.close();
+        }
+    }
+
+}
@@ -0,0 +1,59 @@
+package test.slatepowered.reco;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import slatepowered.reco.CommunicationProvider;
+import slatepowered.reco.FrameBatcher;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+public class FrameBatcherTest {
+
+    @Test
+    void test_FlushOnCountAndLinger() throws Exception {
+        List<byte[]> frames = new CopyOnWriteArrayList<>();
+        FrameBatcher batcher = new FrameBatcher((frame, domain, target) -> frames.add(frame))
+                .thresholds(64 * 1024, 3, TimeUnit.MILLISECONDS.toMicros(20));
+
+        try {
+            // flushed as one batch on the count limit
+            for (int i = 0; i < 3; i++)
+                batcher.add(new byte[] { 0, 1, (byte) i }, CommunicationProvider.Domain.DIRECT, "b");
+            Assertions.assertEquals(1, frames.size());
+            Assertions.assertTrue(FrameBatcher.isBatchFrame(frames.get(0)));
+            Assertions.assertEquals(FrameBatcher.MAGIC, frames.get(0)[0]);
+
+            // a single envelope is flushed as is after lingering
+            batcher.add(new byte[] { 0, 1, 9 }, CommunicationProvider.Domain.DIRECT, "b");
+            Assertions.assertEquals(1, frames.size());
+            Thread.sleep(200);
+            Assertions.assertEquals(2, frames.size());
+            Assertions.assertArrayEquals(new byte[] { 0, 1, 9 }, frames.get(1));
+        } finally {
+            batcher.close();
+        }
+    }
+
+    @Test
+    void test_FailedFramesCounted() {
+        FrameBatcher batcher = new FrameBatcher((frame, domain, target) -> {
+            throw new IllegalStateException("connection lost");
+        }).thresholds(64 * 1024, 3, TimeUnit.SECONDS.toMicros(10));
+
+        try {
+            // the failed batch is counted instead of thrown
+            for (int i = 0; i < 3; i++)
+                batcher.add(new byte[] { 0, 1, (byte) i }, CommunicationProvider.Domain.DIRECT, "b");
+            batcher.add(new byte[] { 0, 1, 9 }, CommunicationProvider.Domain.DIRECT, "b");
+            batcher.flush();
+
+            Assertions.assertEquals(2, batcher.getFailedFrameCount());
+            Assertions.assertEquals(4, batcher.getFailedEnvelopeCount());
+        } finally {
+            batcher.close();
+        }
+    }
+
+}
@@ -0,0 +1,89 @@
+package test.slatepowered.reco;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import slatepowered.reco.ReceivedMessage;
+import slatepowered.reco.SimpleChannelListener;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SimpleChannelListenerTest {
+
+    @Test
+    void test_RemoveOnComplete() {
+        SimpleChannelListener listener = new SimpleChannelListener();
+        AtomicInteger onceCalls = new AtomicInteger();
+        AtomicInteger multiCalls = new AtomicInteger();
+
+        listener.on(true).then(__ -> onceCalls.incrementAndGet());
+        listener.on().then(__ -> multiCalls.incrementAndGet());
+
+        listener.call(new ReceivedMessage<>("a", null));
+        listener.call(new ReceivedMessage<>("a", null));
+
+        Assertions.assertEquals(1, onceCalls.get());
+        Assertions.assertEquals(2, multiCalls.get());
+        Assertions.assertEquals(1, listener.size());
+    }
+
+    @Test
+    void test_ConcurrentRegistrationAndDispatch() throws Exception {
+        SimpleChannelListener listener = new SimpleChannelListener();
+
+        // one-shot callbacks registered upfront
+        final int onceCount = 1000;
+        AtomicInteger[] onceCalls = new AtomicInteger[onceCount];
+        for (int i = 0; i < onceCount; i++) {
+            AtomicInteger calls = onceCalls[i] = new AtomicInteger();
+            listener.on(true).then(__ -> calls.incrementAndGet());
+        }
+
+        final int threads = 4;
+        final int perThread = 2000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads * 2);
+        CountDownLatch done = new CountDownLatch(threads * 2);
+        AtomicInteger errors = new AtomicInteger();
+
+        try {
+            for (int t = 0; t < threads; t++) {
+                // register callbacks
+                executor.execute(() -> {
+                    try {
+                        for (int i = 0; i < perThread; i++)
+                            listener.remove(listener.on());
+                    } catch (Throwable e) {
+                        errors.incrementAndGet();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+
+                // dispatch concurrently
+                executor.execute(() -> {
+                    try {
+                        for (int i = 0; i < perThread; i++)
+                            listener.call(new ReceivedMessage<>("a", null));
+                    } catch (Throwable e) {
+                        errors.incrementAndGet();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+
+            Assertions.assertTrue(done.await(30, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+
+        Assertions.assertEquals(0, errors.get());
+        for (AtomicInteger calls : onceCalls)
+            Assertions.assertEquals(1, calls.get());
+        Assertions.assertEquals(0, listener.size());
+    }
+
+}
@@ -0,0 +1,126 @@
+package slatepowered.reco.rpc;
+
+import slatepowered.reco.Channel;
+import slatepowered.reco.Message;
+import slatepowered.reco.rpc.function.CallExchange;
+import slatepowered.reco.rpc.function.MCallBatch;
+import slatepowered.reco.rpc.function.MCallRemote;
+import slatepowered.reco.rpc.function.PipelinedResult;
+import slatepowered.reco.rpc.function.RemoteFunction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Builds a chain of calls to one remote where calls may take the
+ * results of earlier calls as arguments. All calls are sent in one
+ * batch and the remote resolves the results locally, so the whole
+ * chain costs a single round trip.
+ *
+ * <pre>{@code
+ * CallPipeline pipeline = manager.pipeline(channel);
+ * CallPipeline.Step user = pipeline.call(getUser, "bob");
+ * CallPipeline.Step orders = pipeline.call(getOrders, user.result());
+ * pipeline.send();
+ * orders.future().join();
+ * }</pre>
+ */
+public class CallPipeline {
+
+    /**
+     * A call in the pipeline.
+     */
+    public final class Step {
+        final int index;
+        final CallExchange exchange;
+
+        Step(int index, CallExchange exchange) {
+            this.index = index;
+            this.exchange = exchange;
+        }
+
+        public CallExchange getExchange() {
+            return exchange;
+        }
+
+        /**
+         * Get the response future of this call.
+         *
+         * @param <T> The result type.
+         * @return The future.
+         */
+        @SuppressWarnings("unchecked")
+        public <T> CompletableFuture<T> future() {
+            return (CompletableFuture<T>) exchange.getResponseFuture();
+        }
+
+        /**
+         * Get a reference to the result of this call, which can be
+         * passed as an argument to later calls in the pipeline.
+         *
+         * @return The reference.
+         */
+        public PipelinedResult result() {
+            if (exchange.getFunction() != null && exchange.getFunction().isOneWay())
+                throw new IllegalStateException("One way calls have no result to pipeline");
+            return new PipelinedResult(index);
+        }
+    }
+
+    // the manager
+    final RPCManager manager;
+
+    // the remote channel
+    final Channel channel;
+
+    // the calls to send
+    final List<MCallRemote> calls = new ArrayList<>();
+
+    // whether the pipeline was sent
+    boolean sent;
+
+    CallPipeline(RPCManager manager, Channel channel) {
+        this.manager = manager;
+        this.channel = channel;
+    }
+
+    /**
+     * Add a call to the given function to this pipeline.
+     *
+     * @param function The function.
+     * @param args The arguments, which may include results of earlier steps.
+     * @return The step.
+     */
+    public synchronized Step call(RemoteFunction function, Object... args) {
+        if (sent)
+            throw new IllegalStateException("Pipeline has already been sent");
+
+        // check the references
+        int index = calls.size();
+        if (args != null) {
+            for (Object arg : args) {
+                if (arg instanceof PipelinedResult && ((PipelinedResult) arg).getIndex() >= index) {
+                    throw new IllegalArgumentException("Pipelined results can only reference earlier calls");
+                }
+            }
+        }
+
+        CallExchange exchange = manager.createCall(function, args, calls::add);
+        return new Step(index, exchange);
+    }
+
+    /**
+     * Send all calls in this pipeline.
+     */
+    public synchronized void send() {
+        if (sent)
+            throw new IllegalStateException("Pipeline has already been sent");
+        sent = true;
+        if (calls.isEmpty())
+            return;
+
+        channel.send(new Message<>(MCallBatch.NAME).payload(new MCallBatch(calls.toArray(new MCallRemote[0]))));
+    }
+
+}
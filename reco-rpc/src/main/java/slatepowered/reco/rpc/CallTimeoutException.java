@@ -0,0 +1,13 @@
+package slatepowered.reco.rpc;
+
+/**
+ * Thrown when a remote call did not receive
+ * a response within its timeout.
+ */
+public class CallTimeoutException extends RemoteException {
+
+    public CallTimeoutException(String message) {
+        super(message);
+    }
+
+}
@@ -1,8 +1,11 @@
 package slatepowered.reco.rpc;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Setter;
 import slatepowered.veru.misc.Throwables;
 
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -16,11 +19,30 @@ public class CompiledInterface {
     final List<CompiledMethod> methods = new ArrayList<>();        // The compiled methods in this interface
     final Map<Method, CompiledMethod> methodMap = new HashMap<>(); // The compiled methods by reflection method
 
+    @Setter(AccessLevel.NONE) Constructor<?> proxyConstructor;     // The constructor of the generated proxy class
+    @Setter(AccessLevel.NONE) boolean proxyGenerated;              // Whether generating the proxy class was attempted
+
     public void register(CompiledMethod function) {
         methods.add(function);
         methodMap.put(function.method, function);
     }
 
+    /**
+     * Get the constructor of the generated proxy class,
+     * generating the class on first use.
+     *
+     * @return The constructor or null if the interface
+     *         can not be implemented by a generated class.
+     */
+    public synchronized Constructor<?> getProxyConstructor() {
+        if (!proxyGenerated) {
+            proxyConstructor = ProxyGenerator.generate(this);
+            proxyGenerated = true;
+        }
+
+        return proxyConstructor;
+    }
+
     public CompiledMethod findMethodByName(String name) {
         for (CompiledMethod method : methods) {
             if (method.getMethod().getName().equals(name)) {
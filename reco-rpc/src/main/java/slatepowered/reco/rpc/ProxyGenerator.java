@@ -0,0 +1,256 @@
+package slatepowered.reco.rpc;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+import slatepowered.reco.Channel;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Generates classes implementing remote API interfaces which call
+ * the compiled methods directly, instead of looking them up by
+ * method in an invocation handler like {@link java.lang.reflect.Proxy}.
+ *
+ * Each generated class has the constructor {@code (RPCManager, Channel)}
+ * and one static field per compiled method, set after the class is
+ * defined. Methods without a compiled method are not implemented, so
+ * default methods are called directly.
+ */
+final class ProxyGenerator {
+
+    private static final Logger LOGGER = Logger.getLogger("ProxyGenerator");
+
+    /* Internal names and descriptors */
+    private static final String NAME_COMPILED_METHOD = Type.getInternalName(CompiledMethod.class);
+    private static final String DESC_COMPILED_METHOD = Type.getDescriptor(CompiledMethod.class);
+    private static final String DESC_RPC_MANAGER = Type.getDescriptor(RPCManager.class);
+    private static final String DESC_CHANNEL = Type.getDescriptor(Channel.class);
+    private static final String DESC_PROXY_CALL = "(" + DESC_RPC_MANAGER + DESC_CHANNEL + "Ljava/lang/Object;[Ljava/lang/Object;)Ljava/lang/Object;";
+
+    // the counter for unique class names
+    private static final AtomicInteger classCounter = new AtomicInteger();
+
+    /**
+     * Loads a generated class, resolving both the
+     * interface and the reco classes.
+     */
+    static final class ProxyClassLoader extends ClassLoader {
+        ProxyClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            try {
+                return super.loadClass(name, resolve);
+            } catch (ClassNotFoundException e) {
+                return ProxyGenerator.class.getClassLoader().loadClass(name);
+            }
+        }
+
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * Generate a proxy class for the given compiled interface.
+     *
+     * @param compiledInterface The compiled interface.
+     * @return The {@code (RPCManager, Channel)} constructor or null
+     *         if the interface can not be implemented by a generated class.
+     */
+    static Constructor<?> generate(CompiledInterface compiledInterface) {
+        Class<?> klass = compiledInterface.getKlass();
+        if (!isAccessible(klass))
+            return null;
+
+        // collect the methods to implement
+        List<Method> methods = new ArrayList<>();
+        List<CompiledMethod> compiledMethods = new ArrayList<>();
+        Set<String> signatures = new HashSet<>();
+        for (Method method : klass.getMethods()) {
+            if (Modifier.isStatic(method.getModifiers()))
+                continue;
+            CompiledMethod compiledMethod = compiledInterface.getMethodMap().get(method);
+            if (compiledMethod == null)
+                continue;
+            if (!signatures.add(method.getName() + Type.getMethodDescriptor(method)))
+                continue;
+
+            // check whether the signature can be linked
+            if (!isAccessible(method.getReturnType()))
+                return null;
+            for (Class<?> paramType : method.getParameterTypes())
+                if (!isAccessible(paramType))
+                    return null;
+
+            methods.add(method);
+            compiledMethods.add(compiledMethod);
+        }
+
+        try {
+            String className = "slatepowered.reco.rpc.proxy." + klass.getName().replace('.', '_') + "$Proxy" + classCounter.incrementAndGet();
+            byte[] bytes = generateClass(className.replace('.', '/'), klass, methods);
+
+            ClassLoader parent = klass.getClassLoader() != null ? klass.getClassLoader() : ProxyGenerator.class.getClassLoader();
+            Class<?> proxyClass = new ProxyClassLoader(parent).define(className, bytes);
+
+            // set the compiled methods
+            for (int i = 0; i < compiledMethods.size(); i++) {
+                proxyClass.getField("m" + i).set(null, compiledMethods.get(i));
+            }
+
+            return proxyClass.getConstructor(RPCManager.class, Channel.class);
+        } catch (Throwable t) {
+            LOGGER.warning("Failed to generate proxy class for " + klass.getName() + ", falling back to reflection proxies");
+            t.printStackTrace();
+            return null;
+        }
+    }
+
+    // checks whether the given type can be
+    // linked against from a generated class
+    private static boolean isAccessible(Class<?> type) {
+        while (type.isArray())
+            type = type.getComponentType();
+        return type.isPrimitive() || Modifier.isPublic(type.getModifiers());
+    }
+
+    // generates the class file of the proxy class
+    private static byte[] generateClass(String internalName, Class<?> klass, List<Method> methods) {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(V1_8, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, internalName, null,
+                "java/lang/Object", new String[] { Type.getInternalName(klass) });
+
+        /* Fields */
+        cw.visitField(ACC_PRIVATE | ACC_FINAL, "manager", DESC_RPC_MANAGER, null, null).visitEnd();
+        cw.visitField(ACC_PRIVATE | ACC_FINAL, "channel", DESC_CHANNEL, null, null).visitEnd();
+        for (int i = 0; i < methods.size(); i++) {
+            cw.visitField(ACC_PUBLIC | ACC_STATIC, "m" + i, DESC_COMPILED_METHOD, null, null).visitEnd();
+        }
+
+        /* Constructor */
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "(" + DESC_RPC_MANAGER + DESC_CHANNEL + ")V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitFieldInsn(PUTFIELD, internalName, "manager", DESC_RPC_MANAGER);
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitVarInsn(ALOAD, 2);
+        mv.visitFieldInsn(PUTFIELD, internalName, "channel", DESC_CHANNEL);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        /* Methods */
+        for (int i = 0; i < methods.size(); i++) {
+            generateMethod(cw, internalName, methods.get(i), "m" + i);
+        }
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    // generates a method calling the given compiled method field
+    // with the arguments packed into an array
+    private static void generateMethod(ClassWriter cw, String internalName, Method method, String fieldName) {
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC | ACC_FINAL, method.getName(), Type.getMethodDescriptor(method), null, null);
+        mv.visitCode();
+
+        // compiledMethod.proxyCall(manager, channel, this, args)
+        mv.visitFieldInsn(GETSTATIC, internalName, fieldName, DESC_COMPILED_METHOD);
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitFieldInsn(GETFIELD, internalName, "manager", DESC_RPC_MANAGER);
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitFieldInsn(GETFIELD, internalName, "channel", DESC_CHANNEL);
+        mv.visitVarInsn(ALOAD, 0);
+
+        // pack the arguments
+        Class<?>[] paramTypes = method.getParameterTypes();
+        pushInt(mv, paramTypes.length);
+        mv.visitTypeInsn(ANEWARRAY, "java/lang/Object");
+        int local = 1;
+        for (int i = 0; i < paramTypes.length; i++) {
+            Type type = Type.getType(paramTypes[i]);
+            mv.visitInsn(DUP);
+            pushInt(mv, i);
+            mv.visitVarInsn(type.getOpcode(ILOAD), local);
+            box(mv, type);
+            mv.visitInsn(AASTORE);
+            local += type.getSize();
+        }
+
+        mv.visitMethodInsn(INVOKEVIRTUAL, NAME_COMPILED_METHOD, "proxyCall", DESC_PROXY_CALL, false);
+
+        // return the value
+        Type returnType = Type.getReturnType(method);
+        if (returnType.getSort() == Type.VOID) {
+            mv.visitInsn(POP);
+            mv.visitInsn(RETURN);
+        } else {
+            unbox(mv, returnType);
+            mv.visitInsn(returnType.getOpcode(IRETURN));
+        }
+
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    // pushes the given int constant
+    private static void pushInt(MethodVisitor mv, int value) {
+        if (value >= -1 && value <= 5) mv.visitInsn(ICONST_0 + value);
+        else if (value <= Byte.MAX_VALUE) mv.visitIntInsn(BIPUSH, value);
+        else mv.visitIntInsn(SIPUSH, value);
+    }
+
+    // gets the internal name of the wrapper of the given primitive type
+    private static String wrapperName(Type type) {
+        switch (type.getSort()) {
+            case Type.BOOLEAN: return "java/lang/Boolean";
+            case Type.CHAR: return "java/lang/Character";
+            case Type.BYTE: return "java/lang/Byte";
+            case Type.SHORT: return "java/lang/Short";
+            case Type.INT: return "java/lang/Integer";
+            case Type.FLOAT: return "java/lang/Float";
+            case Type.LONG: return "java/lang/Long";
+            case Type.DOUBLE: return "java/lang/Double";
+            default: return null;
+        }
+    }
+
+    // boxes the primitive value on the stack
+    private static void box(MethodVisitor mv, Type type) {
+        String wrapper = wrapperName(type);
+        if (wrapper == null)
+            return;
+        mv.visitMethodInsn(INVOKESTATIC, wrapper, "valueOf", "(" + type.getDescriptor() + ")L" + wrapper + ";", false);
+    }
+
+    // casts or unboxes the object on the stack to the given type
+    private static void unbox(MethodVisitor mv, Type type) {
+        String wrapper = wrapperName(type);
+        if (wrapper == null) {
+            if (!type.getDescriptor().equals("Ljava/lang/Object;"))
+                mv.visitTypeInsn(CHECKCAST, type.getInternalName());
+            return;
+        }
+
+        mv.visitTypeInsn(CHECKCAST, wrapper);
+        mv.visitMethodInsn(INVOKEVIRTUAL, wrapper, type.getClassName() + "Value", "()" + type.getDescriptor(), false);
+    }
+
+}
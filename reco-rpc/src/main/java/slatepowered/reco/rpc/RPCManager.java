@@ -1,24 +1,40 @@
 package slatepowered.reco.rpc;
 
 import slatepowered.reco.Channel;
+import slatepowered.reco.ChannelGroup;
 import slatepowered.reco.Message;
 import slatepowered.reco.ProvidedChannel;
+import slatepowered.reco.ReceivedMessage;
 import slatepowered.reco.rpc.event.*;
 import slatepowered.reco.rpc.function.*;
 import slatepowered.reco.rpc.objects.*;
 import slatepowered.reco.rpc.security.InboundSecurityManager;
 import slatepowered.veru.misc.Throwables;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Proxy;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.logging.Logger;
+import java.util.stream.BaseStream;
+import java.util.stream.Stream;
 
 /**
  * Provides RPC, remote object and remote event services.
@@ -38,6 +54,9 @@ public class RPCManager {
 
     private static final Logger LOGGER = Logger.getLogger("RemoteManager");
 
+    /** The timer shared by all managers to expire outgoing calls. */
+    private static final HashedWheelTimer SHARED_CALL_TIMER = new HashedWheelTimer();
+
     /** The local network channel. */
     private final ProvidedChannel localChannel;
 
@@ -47,11 +66,44 @@ public class RPCManager {
     /** The registered functions. */
     private final Map<String, RemoteFunction> functionMap = new HashMap<>();
 
+    /** The registered functions by numeric ID. */
+    private final FunctionTable functionTable = new FunctionTable();
+
+    /** The caches of call results by function name. */
+    private final Map<String, ResultCache> resultCaches = new ConcurrentHashMap<>();
+
     /** The registered events. */
     private final Map<String, RemoteEvent<?>> remoteEventMap = new HashMap<>();
 
     /** The outgoing call exchanges. */
-    private final ConcurrentHashMap<Long, CallExchange> outgoingCalls = new ConcurrentHashMap<>();
+    private final CallExchangeTable outgoingCalls = new CallExchangeTable();
+
+    /** The random salt in the upper half of all call IDs, never 0. */
+    private final long callIdSalt = nextCallIdSalt();
+
+    /** The sequence in the lower half of the call IDs. */
+    private final AtomicInteger callIdSequence = new AtomicInteger();
+
+    /** The streamed results being received by call ID. */
+    private final Map<Long, InboundStream<?>> inboundStreams = new ConcurrentHashMap<>();
+
+    /** The streamed results being sent by call ID. */
+    private final Map<Long, OutboundStream> outboundStreams = new ConcurrentHashMap<>();
+
+    /** The amount of stream items requested at once. */
+    private int streamWindow = 256;
+
+    /** The maximum amount of stream items sent per message. */
+    private int streamChunkSize = 64;
+
+    /** The time after which idle streams are closed in milliseconds, 0 for never. */
+    private long streamIdleTimeoutMillis = TimeUnit.MINUTES.toMillis(1);
+
+    /** The timer used to expire outgoing calls. */
+    private HashedWheelTimer callTimer = SHARED_CALL_TIMER;
+
+    /** The default call timeout in milliseconds, 0 for none. */
+    private long defaultTimeoutMillis = TimeUnit.SECONDS.toMillis(30);
 
     /** Registered compiled interfaces. */
     private final Map<Class<?>, CompiledInterface> compiledInterfaceMap = new HashMap<>();
@@ -62,6 +114,15 @@ public class RPCManager {
     /** The method compilation hooks. */
     private final List<BiFunction<CompiledInterface, Method, CompiledMethod>> methodCompilerHooks = new ArrayList<>();
 
+    /** The executor inbound calls are run on, null to run them inline. */
+    private Executor callExecutor;
+
+    /** The batcher for outgoing calls, null if batching is disabled. */
+    private volatile CallBatcher callBatcher;
+
+    /** Whether to bind remote interfaces with generated proxy classes. */
+    private boolean generateProxies = true;
+
     /** Cached compiled object classes. */
     private final Map<Class<?>, CompiledObjectClass> compiledObjectClassMap = new HashMap<>();
 
@@ -83,107 +144,46 @@ public class RPCManager {
         try {
             /* Listen for remote call. */
             localChannel.listen(MCallRemote.NAME)
-                    .<MCallRemote>on().then((message -> {
-                        MCallRemote call = message.payload();
-                        long callId = call.getCallId();
-                        Channel channel = message.getChannel();
-
-                        RemoteFunction function = getFunction(call.getName());
-                        if (function == null || function.getHandler() == null) {
-                            LOGGER.warning("Attempt to call unknown function `" + call.getName() + "`");
-                            channel.send(new Message<>(MCallResponse.NAME).payload(new MCallResponse(callId, false, "Unknown function `" + call.getName() + "` (local: " + localChannel.remote() + ")")));
-                            return;
-                        }
-
-                        /* (!) check permissions */
-                        Set<String> allowedGroups = function.getAllowedSecurityGroups();
-                        Boolean allow = null;
-                        String[] securityGroups = securityManager != null ?
-                                securityManager.getSecurityGroups(this, message) :
-                                null;
-
-                        // check default permissions
-                        if (!allowedGroups.contains("all")) {
-                            if (securityGroups != null) {
-                                for (String g : securityGroups) {
-                                    if (allowedGroups.contains(g)) {
-                                        allow = true;
-                                        break;
-                                    }
-                                }
-                            }
-                        } else {
-                            allow = true;
-                        }
-
-                        // check with security manager
-                        if (allow == null && securityManager != null) {
-                            allow = securityManager.checkInboundCall(this, message, securityGroups);
-                        }
-
-                        // return failed call result when lacking permission
-                        if (allow != Boolean.TRUE) {
-                            channel.send(new Message<>(MCallResponse.NAME).payload(new MCallResponse(callId, false, "Permission denied for `" + call.getName() + "` (local: " + localChannel.remote() + ")")));
-                            return;
-                        }
-
-                        // call the implementation locally
-                        // and send back the result
-                        Object ret; boolean success;
-
-                        try {
-                            if (function == null) {
-                                throw new UnsupportedFunctionException("Unknown function(" + call.getName() + ")");
-                            }
-
-                            ret = callLocalOnRq(() -> CallInfo.remote(channel, callId),
-                                    function,
-                                    call.getArgs());
-                            success = true;
-                        } catch (Throwable t) {
-                            ret = t;
-                            success = false;
-
-                            // log error
-                            LOGGER.warning("Error while executing remote function");
-                            LOGGER.warning("  function(" + function.getName() + ") channel(" + channel + ")");
-                            t.printStackTrace();
-                        }
-
-                        // send response
-                        channel.send(new Message<>(MCallResponse.NAME).payload(new MCallResponse(callId, success, ret)));
-                    })
-            );
+                    .<MCallRemote>on().then((message -> handleCall(message, null)));
 
             /* Listen for call response. */
             localChannel.listen(MCallResponse.NAME)
-                    .on().then((message -> {
-                        MCallResponse response = message.payload();
-                        long callId = response.getCallId();
-                        boolean success = response.isSuccess();
-                        Object value = response.getValue();
-
-                        CallExchange exchange = outgoingCalls.remove(callId);
-                        if (exchange == null) {
-                            LOGGER.warning("Received response for non-existent exchange callId(" + callId + ")");
-                            return;
-                        }
-
-                        CompletableFuture<Object> responseFuture = exchange.getResponseFuture();
+                    .on().then((message -> handleResponse(message.payload())));
 
-                        if (!success) {
-                            // create exception
-                            RemoteException e;
-                            if (value instanceof Throwable) e = new RemoteException((Throwable) value);
-                            else if (value instanceof String) e = new RemoteException((String) value);
-                            else e = new RemoteException();
-
-                            responseFuture.completeExceptionally(e);
-                        } else {
-                            responseFuture.complete(value);
+            /* Listen for batched calls and responses. */
+            localChannel.listen(MCallBatch.NAME)
+                    .<MCallBatch>on().then(this::handleBatch);
+            localChannel.listen(MCallBatchResponse.NAME)
+                    .on().then((message -> {
+                        MCallBatchResponse batchResponse = message.payload();
+                        for (MCallResponse response : batchResponse.getResponses()) {
+                            handleResponse(response);
                         }
-                    })
-            );
+                    }));
+
+            /* Listen for streamed results and demand. */
+            localChannel.listen(MCallStreamItem.NAME)
+                    .<MCallStreamItem>on().then((message -> handleStreamItem(message.payload())));
+            localChannel.listen(MCallStreamDemand.NAME)
+                    .<MCallStreamDemand>on().then(this::handleStreamDemand);
+
+            /* Fail remote calls rejected by a full inbound queue. */
+            localChannel.provider().onRejected().then((message -> {
+                Channel channel = message.getChannel();
+                if (channel == null)
+                    return;
+
+                if (MCallRemote.NAME.equals(message.getName())) {
+                    MCallRemote call = (MCallRemote) message.payload();
+                    respond(channel, call, null, false, "Call rejected for `" + describeFunction(call) + "`, inbound queue is full (local: " + localChannel.remote() + ")");
+                } else if (MCallBatch.NAME.equals(message.getName())) {
+                    MCallRemote[] calls = ((MCallBatch) message.payload()).getCalls();
+                    BatchResponse batch = new BatchResponse(channel, calls);
+                    for (MCallRemote call : calls) {
+                        respond(channel, call, batch, false, "Call rejected for `" + describeFunction(call) + "`, inbound queue is full (local: " + localChannel.remote() + ")");
+                    }
+                }
+            }));
 
             /* Listen for event call. */
             localChannel.provider().listen(MCallEvent.NAME)
@@ -200,16 +200,550 @@ public class RPCManager {
                         remoteEvent.call(mCallEvent.getPayload());
                     })
             );
+
+            /* Listen for cache invalidation. */
+            localChannel.provider().listen(MCallInvalidate.NAME)
+                    .<MCallInvalidate>on().then((message -> invalidateLocalCache(message.payload())));
         } catch (Exception e) {
             throw new IllegalStateException("RPCManager initialization failed", e);
         }
     }
 
+    /**
+     * Collects the responses to the calls of a batch,
+     * sending them once all calls have completed.
+     */
+    private final class BatchResponse {
+        final Channel channel;
+        final MCallResponse[] responses;
+
+        // the next free slot and the amount
+        // of responses still missing
+        final AtomicInteger nextSlot = new AtomicInteger();
+        final AtomicInteger remaining;
+
+        // the results by call index and the call indices
+        // by call ID, only present if the batch is pipelined
+        CompletableFuture<Object>[] results;
+        Map<Long, Integer> indexByCallId;
+
+        BatchResponse(Channel channel, MCallRemote[] calls) {
+            int count = 0;
+            for (MCallRemote call : calls)
+                if (!call.isOneWay())
+                    count++;
+
+            this.channel = channel;
+            this.responses = new MCallResponse[count];
+            this.remaining = new AtomicInteger(count);
+        }
+
+        // tracks the results of the calls, so they
+        // can be passed to dependent calls
+        void trackResults(MCallRemote[] calls) {
+            results = new CompletableFuture[calls.length];
+            indexByCallId = new HashMap<>();
+            for (int i = 0; i < calls.length; i++) {
+                if (!calls[i].isOneWay()) {
+                    results[i] = new CompletableFuture<>();
+                    indexByCallId.put(calls[i].getCallId(), i);
+                }
+            }
+        }
+
+        void complete(MCallResponse response) {
+            if (results != null) {
+                Integer index = indexByCallId.get(response.getCallId());
+                if (index != null) {
+                    Object value = response.getValue();
+                    if (response.isSuccess()) results[index].complete(value);
+                    else results[index].completeExceptionally(value instanceof Throwable ? (Throwable) value : new RemoteException(String.valueOf(value)));
+                }
+            }
+
+            responses[nextSlot.getAndIncrement()] = response;
+            if (remaining.decrementAndGet() == 0) {
+                channel.send(new Message<>(MCallBatchResponse.NAME).payload(new MCallBatchResponse(responses)));
+            }
+        }
+    }
+
+    // handles an inbound batch of calls, running
+    // each call as if it was received on its own
+    private void handleBatch(ReceivedMessage<MCallBatch> message) {
+        MCallRemote[] calls = message.payload().getCalls();
+        BatchResponse batch = new BatchResponse(message.getChannel(), calls);
+
+        // check whether any call references the result of another
+        boolean pipelined = false;
+        for (MCallRemote call : calls) {
+            if (call.getArgs() == null) continue;
+            for (Object arg : call.getArgs()) {
+                if (arg instanceof PipelinedResult) {
+                    pipelined = true;
+                    break;
+                }
+            }
+        }
+
+        if (pipelined) {
+            batch.trackResults(calls);
+        }
+
+        for (int i = 0; i < calls.length; i++) {
+            ReceivedMessage<MCallRemote> callMessage = new ReceivedMessage<>(MCallRemote.NAME, calls[i]);
+            callMessage.setSource(message.getSource());
+            callMessage.setDomain(message.getDomain());
+            callMessage.setChannel(message.getChannel());
+            if (pipelined) {
+                handlePipelinedCall(callMessage, batch, i);
+            } else {
+                handleCall(callMessage, batch);
+            }
+        }
+    }
+
+    // handles a call of a pipelined batch once the
+    // results it references have completed
+    private void handlePipelinedCall(ReceivedMessage<MCallRemote> message, BatchResponse batch, int index) {
+        MCallRemote call = message.payload();
+        Channel channel = message.getChannel();
+        Object[] args = call.getArgs();
+
+        // collect the referenced results
+        List<CompletableFuture<Object>> dependencies = new ArrayList<>();
+        if (args != null) {
+            for (Object arg : args) {
+                if (!(arg instanceof PipelinedResult))
+                    continue;
+                int dependency = ((PipelinedResult) arg).getIndex();
+                if (dependency < 0 || dependency >= index || batch.results[dependency] == null) {
+                    respond(channel, call, batch, false, "Invalid pipelined reference to call #" + dependency + " (local: " + localChannel.remote() + ")");
+                    return;
+                }
+
+                dependencies.add(batch.results[dependency]);
+            }
+        }
+
+        if (dependencies.isEmpty()) {
+            handleCall(message, batch);
+            return;
+        }
+
+        CompletableFuture.allOf(dependencies.toArray(new CompletableFuture[0])).whenComplete((v, t) -> {
+            if (t != null) {
+                // fail with the error of the dependency
+                if (t instanceof CompletionException && t.getCause() != null)
+                    t = t.getCause();
+                respond(channel, call, batch, false, t);
+                return;
+            }
+
+            // substitute the results
+            for (int i = 0; i < args.length; i++) {
+                if (args[i] instanceof PipelinedResult) {
+                    args[i] = batch.results[((PipelinedResult) args[i]).getIndex()].join();
+                }
+            }
+
+            handleCall(message, batch);
+        });
+    }
+
+    // handles a response to an outgoing call
+    private void handleResponse(MCallResponse response) {
+        long callId = response.getCallId();
+        boolean success = response.isSuccess();
+        Object value = response.getValue();
+
+        CallExchange exchange = outgoingCalls.remove(callId);
+        if (exchange == null) {
+            LOGGER.warning("Received response for non-existent exchange callId(" + callId + ")");
+            return;
+        }
+
+        exchange.cancelTimeout();
+
+        CompletableFuture<Object> responseFuture = exchange.getResponseFuture();
+
+        if (!success) {
+            // create exception
+            RemoteException e;
+            if (value instanceof Throwable) e = new RemoteException((Throwable) value);
+            else if (value instanceof String) e = new RemoteException((String) value);
+            else e = new RemoteException();
+
+            responseFuture.completeExceptionally(e);
+        } else {
+            responseFuture.complete(value);
+        }
+    }
+
+    // handles a message of items of a streamed result
+    private void handleStreamItem(MCallStreamItem item) {
+        long callId = item.getCallId();
+        InboundStream<?> stream = inboundStreams.get(callId);
+        if (stream == null) {
+            LOGGER.warning("Received stream items for non-existent stream callId(" + callId + ")");
+            return;
+        }
+
+        stream.receive(item);
+
+        // the first message opens the stream
+        CallExchange exchange = outgoingCalls.remove(callId);
+        if (exchange != null) {
+            exchange.cancelTimeout();
+            exchange.getResponseFuture().complete(exchange.getFunction().getReturnType() == Stream.class ? stream.toStream() : stream);
+            stream.request();
+            scheduleStreamExpiry(stream::isClosed, stream::expireIfIdle, "Closed streamed result callId(" + callId + ") which was not read");
+        }
+    }
+
+    // closes a stream once it has been idle for the idle
+    // timeout, checking again every timeout until it is closed
+    private void scheduleStreamExpiry(BooleanSupplier closed, BiPredicate<Long, Long> expireIfIdle, String warning) {
+        final long timeoutMillis = streamIdleTimeoutMillis;
+        if (timeoutMillis <= 0)
+            return;
+
+        callTimer.schedule(() -> {
+            if (closed.getAsBoolean())
+                return;
+            if (expireIfIdle.test(System.nanoTime(), TimeUnit.MILLISECONDS.toNanos(timeoutMillis))) {
+                LOGGER.warning(warning + " for " + timeoutMillis + "ms");
+            } else {
+                scheduleStreamExpiry(closed, expireIfIdle, warning);
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // handles demand for a streamed result
+    private void handleStreamDemand(ReceivedMessage<MCallStreamDemand> message) {
+        MCallStreamDemand demand = message.payload();
+        OutboundStream stream = outboundStreams.get(demand.getCallId());
+        if (stream == null || message.getChannel() == null ||
+                !Objects.equals(stream.getChannel().remote(), message.getChannel().remote()))
+            return;
+
+        if (demand.getCredit() < 0) stream.cancel();
+        else stream.grant(demand.getCredit());
+    }
+
+    // handles an inbound remote call, the response is
+    // collected by the batch if the call was batched
+    private void handleCall(ReceivedMessage<MCallRemote> message, BatchResponse batch) {
+        MCallRemote call = message.payload();
+        Channel channel = message.getChannel();
+
+        RemoteFunction function = resolveFunction(call);
+        if (function == null || function.getHandler() == null) {
+            String kind = call.getName() == null && functionTable.isAmbiguous(call.getFunctionId()) ? "ambiguous" : "unknown";
+            LOGGER.warning("Attempt to call " + kind + " function `" + describeFunction(call) + "`");
+            respond(channel, call, batch, false, "Call to " + kind + " function `" + describeFunction(call) + "` (local: " + localChannel.remote() + ")");
+            return;
+        }
+
+        /* (!) check permissions */
+        Set<String> allowedGroups = function.getAllowedSecurityGroups();
+        Boolean allow = null;
+        String[] securityGroups = securityManager != null ?
+                securityManager.getSecurityGroups(this, message) :
+                null;
+
+        // check default permissions
+        if (!allowedGroups.contains("all")) {
+            if (securityGroups != null) {
+                for (String g : securityGroups) {
+                    if (allowedGroups.contains(g)) {
+                        allow = true;
+                        break;
+                    }
+                }
+            }
+        } else {
+            allow = true;
+        }
+
+        // check with security manager
+        if (allow == null && securityManager != null) {
+            allow = securityManager.checkInboundCall(this, message, securityGroups);
+        }
+
+        // return failed call result when lacking permission
+        if (allow != Boolean.TRUE) {
+            respond(channel, call, batch, false, "Permission denied for `" + function.getName() + "` (local: " + localChannel.remote() + ")");
+            return;
+        }
+
+        // run the call on the executor, limited by the bulkhead
+        FunctionBulkhead bulkhead = function.getBulkhead();
+        Executor executor = callExecutor != null ? callExecutor : Runnable::run;
+        try {
+            if (bulkhead != null) {
+                // asynchronous calls hold their permit until completion
+                if (!bulkhead.submitAsync(() -> invokeAndRespond(function, call, channel, batch),
+                        e -> respond(channel, call, batch, false, "Call rejected for `" + function.getName() + "`, executor is saturated (local: " + localChannel.remote() + ")"),
+                        executor)) {
+                    respond(channel, call, batch, false, "Call rejected for `" + function.getName() + "`, bulkhead is saturated (local: " + localChannel.remote() + ")");
+                }
+            } else {
+                executor.execute(() -> invokeAndRespond(function, call, channel, batch));
+            }
+        } catch (RejectedExecutionException e) {
+            respond(channel, call, batch, false, "Call rejected for `" + function.getName() + "`, executor is saturated (local: " + localChannel.remote() + ")");
+        }
+    }
+
+    // calls the implementation locally
+    // and sends back the result
+    // returns the future of an asynchronous handler, which completes
+    // once the response was sent, or null if the call completed
+    private CompletableFuture<?> invokeAndRespond(RemoteFunction function, MCallRemote call, Channel channel, BatchResponse batch) {
+        final long callId = call.getCallId();
+        Object ret; boolean success;
+
+        try {
+            ret = callLocalOnRq(() -> CallInfo.remote(channel, callId),
+                    function,
+                    call.getArgs());
+            success = true;
+        } catch (Throwable t) {
+            ret = t;
+            success = false;
+            logCallError(function, channel, t);
+        }
+
+        // respond once an asynchronous handler completes
+        if (success && ret instanceof CompletableFuture && !CompletableFuture.class.isAssignableFrom(function.getReturnType())) {
+            return ((CompletableFuture<?>) ret).whenComplete((value, t) -> {
+                if (t != null) {
+                    if (t instanceof CompletionException && t.getCause() != null)
+                        t = t.getCause();
+                    logCallError(function, channel, t);
+                    respond(channel, call, batch, false, t);
+                } else {
+                    respondSuccess(function, channel, call, batch, value);
+                }
+            });
+        }
+
+        // send response
+        if (success) respondSuccess(function, channel, call, batch, ret);
+        else respond(channel, call, batch, false, ret);
+        return null;
+    }
+
+    // sends the result of a successful call,
+    // streaming it if the function is streamed
+    private void respondSuccess(RemoteFunction function, Channel channel, MCallRemote call, BatchResponse batch, Object value) {
+        if (!function.isStreaming()) {
+            respond(channel, call, batch, true, value);
+            return;
+        }
+
+        if (batch != null) {
+            respond(channel, call, batch, false, "Streaming function `" + function.getName() + "` can not be called in a batch (local: " + localChannel.remote() + ")");
+            return;
+        }
+
+        // get the items
+        Iterator<?> iterator;
+        AutoCloseable resource = null;
+        if (value == null) {
+            iterator = Collections.emptyIterator();
+        } else if (value instanceof BaseStream) {
+            iterator = ((BaseStream<?, ?>) value).iterator();
+            resource = (BaseStream<?, ?>) value;
+        } else {
+            iterator = (Iterator<?>) value;
+        }
+
+        final long callId = call.getCallId();
+        OutboundStream stream = new OutboundStream(channel, callId, iterator, resource,
+                streamChunkSize, callExecutor, () -> outboundStreams.remove(callId));
+        outboundStreams.put(callId, stream);
+        stream.open();
+        scheduleStreamExpiry(stream::isClosed, stream::expireIfIdle, "Closed streamed result callId(" + callId + ") which received no demand");
+    }
+
+    // logs an error thrown by a remote function
+    private void logCallError(RemoteFunction function, Channel channel, Throwable t) {
+        LOGGER.warning("Error while executing remote function");
+        LOGGER.warning("  function(" + function.getName() + ") channel(" + channel + ")");
+        t.printStackTrace();
+    }
+
+    // sends the response to a call, unless it is one way
+    private void respond(Channel channel, MCallRemote call, BatchResponse batch, boolean success, Object value) {
+        if (call.isOneWay())
+            return;
+
+        MCallResponse response = new MCallResponse(call.getCallId(), success, value);
+        if (batch != null) {
+            batch.complete(response);
+        } else {
+            channel.send(new Message<>(MCallResponse.NAME).payload(response));
+        }
+    }
+
     public RPCManager addMethodCompilationHook(BiFunction<CompiledInterface, Method, CompiledMethod> hook) {
         methodCompilerHooks.add(hook);
         return this;
     }
 
+    /**
+     * Set the amount of items of streamed results requested at
+     * once and the maximum amount of items sent per message.
+     *
+     * @param window The amount of items requested at once.
+     * @param chunkSize The maximum amount of items per message.
+     * @return This.
+     */
+    public RPCManager setStreaming(int window, int chunkSize) {
+        if (window <= 0 || chunkSize <= 0)
+            throw new IllegalArgumentException("Stream window and chunk size must be positive");
+        this.streamWindow = window;
+        this.streamChunkSize = chunkSize;
+        return this;
+    }
+
+    /**
+     * Set the time after which streamed results are closed when
+     * idle. Results being sent are idle while the caller grants no
+     * credit, results being received while they are not read.
+     *
+     * @param timeout The timeout, 0 to never close idle streams.
+     * @param unit The timeout unit.
+     * @return This.
+     */
+    public RPCManager setStreamIdleTimeout(long timeout, TimeUnit unit) {
+        this.streamIdleTimeoutMillis = unit.toMillis(timeout);
+        return this;
+    }
+
+    public long getDefaultTimeoutMillis() {
+        return defaultTimeoutMillis;
+    }
+
+    /**
+     * Set the timeout for calls to functions which
+     * do not specify their own timeout.
+     *
+     * @param timeout The timeout, 0 for none.
+     * @param unit The timeout unit.
+     * @return This.
+     */
+    public RPCManager setDefaultTimeout(long timeout, TimeUnit unit) {
+        this.defaultTimeoutMillis = unit.toMillis(timeout);
+        return this;
+    }
+
+    /**
+     * Set the timer used to expire outgoing calls,
+     * by default a timer shared by all managers.
+     *
+     * @param callTimer The timer.
+     * @return This.
+     */
+    public RPCManager setCallTimer(HashedWheelTimer callTimer) {
+        this.callTimer = callTimer;
+        return this;
+    }
+
+    /**
+     * Get the amount of outgoing calls waiting for a response.
+     *
+     * @return The amount.
+     */
+    public int getOutgoingCallCount() {
+        return outgoingCalls.size();
+    }
+
+    /**
+     * Pack outgoing calls to the same channel into batches, which
+     * are sent once they reach the maximum amount of calls or the
+     * window has passed since their first call. Batches sent once
+     * the window has passed are sent on the call executor, calls of
+     * batches which failed to send fail with the error.
+     *
+     * @param maxCalls The maximum amount of calls per batch, 0 to disable batching.
+     * @param windowMicros The time a call waits for a batch, in microseconds.
+     * @return This.
+     */
+    public RPCManager setCallBatching(int maxCalls, long windowMicros) {
+        CallBatcher old = callBatcher;
+        callBatcher = maxCalls > 0 ? new CallBatcher(maxCalls, windowMicros, this::executeBatchSend, this::failCalls) : null;
+        if (old != null) {
+            old.flush();
+        }
+
+        return this;
+    }
+
+    // runs the send of a batch flushed by the window on the
+    // call executor, or the common pool if calls run inline
+    private void executeBatchSend(Runnable task) {
+        Executor executor = callExecutor;
+        (executor != null ? executor : ForkJoinPool.commonPool()).execute(task);
+    }
+
+    // fails the exchanges of the given calls
+    // which could not be sent with the error
+    private void failCalls(List<MCallRemote> calls, Throwable t) {
+        for (MCallRemote call : calls) {
+            if (call.getCallId() == 0)
+                continue;
+
+            CallExchange exchange = outgoingCalls.remove(call.getCallId());
+            if (exchange != null) {
+                exchange.cancelTimeout();
+                exchange.getResponseFuture().completeExceptionally(t);
+            }
+        }
+    }
+
+    /**
+     * Immediately send all batched calls.
+     */
+    public void flushCalls() {
+        CallBatcher batcher = callBatcher;
+        if (batcher != null) {
+            batcher.flush();
+        }
+    }
+
+    public Executor getCallExecutor() {
+        return callExecutor;
+    }
+
+    /**
+     * Set the executor inbound calls are run on, so slow functions
+     * do not block the thread receiving messages. By default calls
+     * are run inline on the receiving thread.
+     *
+     * @param callExecutor The executor, null to run calls inline.
+     * @return This.
+     */
+    public RPCManager setCallExecutor(Executor callExecutor) {
+        this.callExecutor = callExecutor;
+        return this;
+    }
+
+    /**
+     * Set whether remote interfaces are bound with generated proxy
+     * classes, which call the compiled methods directly, instead of
+     * reflection proxies.
+     *
+     * @param generateProxies Whether to generate proxy classes.
+     * @return This.
+     */
+    public RPCManager setGenerateProxies(boolean generateProxies) {
+        this.generateProxies = generateProxies;
+        return this;
+    }
+
     public InboundSecurityManager getInboundSecurityManager() {
         return securityManager;
     }
@@ -229,6 +763,34 @@ public class RPCManager {
         return functionMap.get(name);
     }
 
+    /**
+     * Get a function by numeric ID.
+     *
+     * @param id The ID.
+     * @return The function or null if absent or ambiguous.
+     */
+    public RemoteFunction getFunction(int id) {
+        return functionTable.get(id);
+    }
+
+    // resolves the function called by the given message,
+    // by name only if the caller did not send an ID or
+    // the ID was ambiguous for the caller
+    private RemoteFunction resolveFunction(MCallRemote call) {
+        if (call.getName() != null)
+            return getFunction(call.getName());
+        return functionTable.get(call.getFunctionId(), call.getFunctionChecksum());
+    }
+
+    // describes the function called by the given
+    // message for errors, by name if sent
+    private String describeFunction(MCallRemote call) {
+        if (call.getName() != null)
+            return call.getName();
+        RemoteFunction function = functionTable.get(call.getFunctionId(), call.getFunctionChecksum());
+        return function != null ? function.getName() : "#" + Integer.toUnsignedString(call.getFunctionId(), 16);
+    }
+
     /**
      * Register a new function.
      *
@@ -240,19 +802,54 @@ public class RPCManager {
             return this;
 
         functionMap.put(function.getName(), function);
+        if (!functionTable.put(function)) {
+            LOGGER.warning("Function ID collision for `" + function.getName() + "`, calls will be sent by name");
+        }
+
         return this;
     }
 
+    // generates a random salt for the call IDs, so responses to
+    // calls of another manager or a previous run never match
+    private static long nextCallIdSalt() {
+        int salt;
+        do salt = ThreadLocalRandom.current().nextInt(); while (salt == 0);
+        return (long) salt << 32;
+    }
+
+    // the sequence is kept in the lower half so consecutive
+    // calls map to consecutive slots in the exchange table
     private long nextCallId() {
-        return System.currentTimeMillis() ^ System.nanoTime();
+        return callIdSalt | (callIdSequence.getAndIncrement() & 0xFFFFFFFFL);
     }
 
-    private CallExchange createExchange(RemoteFunction function) {
+    private CallExchange createExchange(RemoteFunction function, long timeoutMillis) {
         CallExchange e = new CallExchange(nextCallId(), function);
-        outgoingCalls.put(e.getCallId(), e);
+        if (timeoutMillis > 0) {
+            e.setTimeout(callTimer.schedule(() -> expireExchange(e, timeoutMillis), timeoutMillis, TimeUnit.MILLISECONDS));
+        }
+
+        outgoingCalls.put(e);
         return e;
     }
 
+    // fails and evicts the given exchange if
+    // it has not received a response yet
+    private void expireExchange(CallExchange exchange, long timeoutMillis) {
+        if (!outgoingCalls.remove(exchange))
+            return;
+
+        String name = exchange.getFunction() != null ? exchange.getFunction().getName() : "?";
+        exchange.getResponseFuture().completeExceptionally(new CallTimeoutException(
+                "Call to `" + name + "` timed out after " + timeoutMillis + "ms (local: " + localChannel.remote() + ")"));
+    }
+
+    // gets the timeout for calls to the given function
+    private long getTimeoutMillis(RemoteFunction function) {
+        long timeoutMillis = function.getTimeoutMillis();
+        return timeoutMillis >= 0 ? timeoutMillis : defaultTimeoutMillis;
+    }
+
     /**
      * Calls the given function on the given channel
      * with the provided arguments passed. This creates an
@@ -276,15 +873,175 @@ public class RPCManager {
             RemoteFunction function,
             Channel channel,
             Object... args) {
-        CallExchange exchange = createExchange(function);
+        return callExchange(function, channel, getTimeoutMillis(function), TimeUnit.MILLISECONDS, args);
+    }
+
+    /**
+     * Calls the given function on the given channel with the
+     * provided arguments passed and the given timeout. If no
+     * response is received in time, the response future is
+     * completed exceptionally with a {@link CallTimeoutException}
+     * and the exchange is discarded.
+     *
+     * @param function The function.
+     * @param channel The channel.
+     * @param timeout The timeout, 0 for none.
+     * @param unit The timeout unit.
+     * @param args The parameters/arguments.
+     * @return The call exchange.
+     */
+    public CallExchange callExchange(
+            RemoteFunction function,
+            Channel channel,
+            long timeout,
+            TimeUnit unit,
+            Object[] args) {
+        // serve cached results without a call, keyed by the
+        // channel or group so members share the results
+        ResultCache resultCache = function.getResultCache();
+        if (resultCache == null || function.isOneWay()) {
+            return callUncached(function, channel, timeout, unit, args);
+        }
 
-        // create and send call message
-        MCallRemote m = new MCallRemote(exchange.getCallId(), function.getName(), args);
-        channel.send(new Message<>(MCallRemote.NAME).payload(m));
+        Object cached = resultCache.get(channel, args);
+        if (cached != ResultCache.MISS)
+            return CallExchange.completed(cached, function);
+        final long generation = resultCache.generation();
 
+        CallExchange exchange = callUncached(function, channel, timeout, unit, args);
+        exchange.getResponseFuture().thenAccept(value -> resultCache.put(channel, args, value, generation));
         return exchange;
     }
 
+    // calls the given function without checking the result cache
+    private CallExchange callUncached(RemoteFunction function, Channel channel, long timeout, TimeUnit unit, Object[] args) {
+        // call a member of channel groups
+        if (channel instanceof ChannelGroup) {
+            return callGroup(function, (ChannelGroup) channel, timeout, unit, args);
+        }
+
+        // create and send call message, only sending the
+        // name if the ID does not identify the function
+        int functionId = function.getId();
+        String name = functionTable.isAmbiguous(functionId) ? function.getName() : null;
+
+        // send one way calls without an exchange
+        if (function.isOneWay()) {
+            sendCall(channel, new MCallRemote(0, functionId, function.getChecksum(), name, args, true));
+            return CallExchange.completed(null, function);
+        }
+
+        // open streamed results directly
+        if (function.isStreaming()) {
+            return openStream(function, channel, functionId, name, unit.toMillis(timeout), args);
+        }
+
+        // join identical in-flight calls if coalescing
+        CallCoalescer coalescer = function.getCoalescer();
+        CallExchange exchange;
+        if (coalescer != null) {
+            exchange = coalescer.call(channel, args, () -> sendExchange(function, channel, functionId, name, unit.toMillis(timeout), args));
+        } else {
+            exchange = sendExchange(function, channel, functionId, name, unit.toMillis(timeout), args);
+        }
+
+        return exchange;
+    }
+
+    // calls the given function on a member of the group,
+    // recording the load and latency or failure of the member
+    private CallExchange callGroup(RemoteFunction function, ChannelGroup group, long timeout, TimeUnit unit, Object[] args) {
+        ChannelGroup.Member member = group.select();
+        if (function.isOneWay()) {
+            return callUncached(function, member.getChannel(), timeout, unit, args);
+        }
+
+        long startNanos = member.start();
+        CallExchange exchange;
+        try {
+            exchange = callUncached(function, member.getChannel(), timeout, unit, args);
+        } catch (Throwable t) {
+            member.cancel();
+            throw t;
+        }
+
+        // calls joined with an in-flight
+        // call did not load the member
+        if (exchange.getCallId() == 0) {
+            member.cancel();
+            return exchange;
+        }
+
+        exchange.getResponseFuture().whenComplete((value, t) -> {
+            if (t != null) member.fail(startNanos);
+            else member.complete(startNanos);
+        });
+        return exchange;
+    }
+
+    // creates an exchange and sends the call
+    private CallExchange sendExchange(RemoteFunction function, Channel channel, int functionId, String name, long timeoutMillis, Object[] args) {
+        CallExchange exchange = createExchange(function, timeoutMillis);
+        sendCall(channel, new MCallRemote(exchange.getCallId(), functionId, function.getChecksum(), name, args, false));
+        return exchange;
+    }
+
+    // creates an exchange for a streamed result and sends the
+    // call without batching, as streams are opened separately
+    private CallExchange openStream(RemoteFunction function, Channel channel, int functionId, String name, long timeoutMillis, Object[] args) {
+        CallExchange exchange = createExchange(function, timeoutMillis);
+        final long callId = exchange.getCallId();
+        inboundStreams.put(callId, new InboundStream<>(channel, callId, streamWindow, timeoutMillis, () -> inboundStreams.remove(callId)));
+        exchange.getResponseFuture().whenComplete((value, t) -> {
+            if (t != null) {
+                inboundStreams.remove(callId);
+            }
+        });
+
+        channel.send(new Message<>(MCallRemote.NAME).payload(new MCallRemote(callId, functionId, function.getChecksum(), name, args, false)));
+        return exchange;
+    }
+
+    // creates an outgoing call with the default timeout,
+    // passing the message to the given sender
+    CallExchange createCall(RemoteFunction function, Object[] args, Consumer<MCallRemote> sender) {
+        if (function.isStreaming())
+            throw new IllegalArgumentException("Streaming function `" + function.getName() + "` can not be pipelined");
+
+        int functionId = function.getId();
+        String name = functionTable.isAmbiguous(functionId) ? function.getName() : null;
+        if (function.isOneWay()) {
+            sender.accept(new MCallRemote(0, functionId, function.getChecksum(), name, args, true));
+            return CallExchange.completed(null, function);
+        }
+
+        CallExchange exchange = createExchange(function, getTimeoutMillis(function));
+        sender.accept(new MCallRemote(exchange.getCallId(), functionId, function.getChecksum(), name, args, false));
+        return exchange;
+    }
+
+    /**
+     * Create a pipeline of calls to the given channel, in which
+     * calls can take the results of earlier calls as arguments
+     * without waiting for them.
+     *
+     * @param channel The channel.
+     * @return The pipeline.
+     */
+    public CallPipeline pipeline(Channel channel) {
+        return new CallPipeline(this, channel);
+    }
+
+    // sends the given call, adding it to a batch if enabled
+    private void sendCall(Channel channel, MCallRemote call) {
+        CallBatcher batcher = callBatcher;
+        if (batcher != null) {
+            batcher.add(channel, call);
+        } else {
+            channel.send(new Message<>(MCallRemote.NAME).payload(call));
+        }
+    }
+
     /**
      * Calls the given function on the given channel
      * with the provided arguments passed. This creates an
@@ -312,6 +1069,29 @@ public class RPCManager {
         return (CompletableFuture<T>) callExchange(function, channel, args).getResponseFuture();
     }
 
+    /**
+     * Calls the given function on the given channel with the
+     * provided arguments passed and the given timeout.
+     *
+     * @param function The function.
+     * @param channel The channel.
+     * @param timeout The timeout, 0 for none.
+     * @param unit The timeout unit.
+     * @param args The parameters/arguments.
+     * @param <T> The return type.
+     * @return The response future.
+     * @see #callExchange(RemoteFunction, Channel, long, TimeUnit, Object[])
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> callRemote(
+            RemoteFunction function,
+            Channel channel,
+            long timeout,
+            TimeUnit unit,
+            Object[] args) {
+        return (CompletableFuture<T>) callExchange(function, channel, timeout, unit, args).getResponseFuture();
+    }
+
     // implMethod which handles locally calling methods
     // issued by a remote source
     private Object callLocalOnRq(
@@ -425,8 +1205,49 @@ public class RPCManager {
                 allowedGroups = new HashSet<>(Arrays.asList(allowAnnotation.value()));
             }
 
+            // find the timeout on the method or interface
+            Timeout timeoutAnnotation = method.getAnnotation(Timeout.class);
+            if (timeoutAnnotation == null) {
+                timeoutAnnotation = klass.getAnnotation(Timeout.class);
+            }
+
             compiledMethod = new CompiledSyncMethod(itf, method);
             compiledMethod.getFunction().setAllowedSecurityGroups(allowedGroups);
+
+            if (method.isAnnotationPresent(OneWay.class)) {
+                if (method.getReturnType() != void.class)
+                    throw new IllegalArgumentException(method + " is not a valid one way method, expected void return type");
+                compiledMethod.getFunction().setOneWay(true);
+            }
+
+            Bulkhead bulkheadAnnotation = method.getAnnotation(Bulkhead.class);
+            if (bulkheadAnnotation != null) {
+                compiledMethod.getFunction().setBulkhead(bulkheadAnnotation.maxConcurrent(), bulkheadAnnotation.maxQueued());
+            }
+            if (timeoutAnnotation != null) {
+                compiledMethod.getFunction().setTimeoutMillis(timeoutAnnotation.unit().toMillis(timeoutAnnotation.value()));
+            }
+
+            if (returnType == Iterator.class || returnType == Stream.class) {
+                if (method.isAnnotationPresent(Coalesce.class) || method.isAnnotationPresent(Cached.class))
+                    throw new IllegalArgumentException(method + " is a streaming method, which can not be coalesced or cached");
+                compiledMethod.getFunction().setStreaming(true);
+            }
+
+            if (method.isAnnotationPresent(Coalesce.class)) {
+                if (compiledMethod.getFunction().isOneWay())
+                    throw new IllegalArgumentException(method + " is not a valid coalesced method, one way calls have no response");
+                compiledMethod.getFunction().setCoalescing(true);
+            }
+
+            Cached cachedAnnotation = method.getAnnotation(Cached.class);
+            if (cachedAnnotation != null) {
+                if (compiledMethod.getFunction().isOneWay() || method.getReturnType() == void.class)
+                    throw new IllegalArgumentException(method + " is not a valid cached method, expected a return value");
+                ResultCache resultCache = new ResultCache(cachedAnnotation.maxSize(), cachedAnnotation.unit().toNanos(cachedAnnotation.ttl()));
+                compiledMethod.getFunction().setResultCache(resultCache);
+                resultCaches.put(compiledMethod.getFunction().getName(), resultCache);
+            }
         }
 
         compiledMethodCache.put(method, compiledMethod);
@@ -480,6 +1301,19 @@ public class RPCManager {
         final CompiledInterface compiledInterface = compileInterface(klass);
         if (compiledInterface == null)
             return null;
+
+        // instantiate the generated proxy class
+        Constructor<?> proxyConstructor = generateProxies ? compiledInterface.getProxyConstructor() : null;
+        if (proxyConstructor != null) {
+            try {
+                return (T) proxyConstructor.newInstance(this, channel);
+            } catch (Exception e) {
+                // rethrow error
+                Throwables.sneakyThrow(e);
+                return null;
+            }
+        }
+
         return (T) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{ klass },
                 ((proxy, method, args) -> {
                     CompiledMethod cm = compiledInterface.getMethodMap().get(method);
@@ -491,6 +1325,21 @@ public class RPCManager {
                 }));
     }
 
+    /**
+     * Creates a new proxy of the given interface class, with
+     * all methods bound to call the corresponding remote function
+     * on a member of the given group, selected for every call by
+     * the load and latency of the members.
+     *
+     * @param group The group of remote channels.
+     * @param klass The interface class.
+     * @param <T> The interface type.
+     * @return The proxy.
+     */
+    public <T> T bindRemote(ChannelGroup group, Class<T> klass) {
+        return bindRemote((Channel) group, klass);
+    }
+
     /**
      * Registers a given handler instance.
      *
@@ -508,27 +1357,37 @@ public class RPCManager {
                 continue;
 
             // register handlers
+            List<CompiledAsyncMethod> asyncMethods = new ArrayList<>();
             for (CompiledMethod fm : compiledInterface.getMethods()) {
+                if (fm instanceof CompiledAsyncMethod) {
+                    asyncMethods.add((CompiledAsyncMethod) fm);
+                    continue;
+                }
+
                 // find impl
                 Method base = fm.getMethod();
                 Method impl = MethodUtils.findImplementation(handlerClass, base);
                 if (impl == null)
                     continue;
 
-                impl.setAccessible(true);
-
                 // create function and set handler
                 RemoteFunction function = fm.getFunction();
                 if (function == null)
                     continue;
-                function.setHandler((manager, callInfoSupplier, args) -> {
-                    try {
-                        return impl.invoke(handler, args);
-                    } catch (Throwable t) {
-                        Throwables.sneakyThrow(t);
-                        return null;
-                    }
-                });
+                function.setHandler(createHandler(handler, impl));
+            }
+
+            // async implementations take precedence over the sync
+            // implementations, their result is sent on completion
+            for (CompiledAsyncMethod fm : asyncMethods) {
+                Method impl = MethodUtils.findImplementation(handlerClass, fm.getMethod());
+                if (impl == null || impl.isDefault())
+                    continue;
+
+                RemoteFunction function = fm.getSyncMethod().getFunction();
+                if (function == null)
+                    continue;
+                function.setHandler(createHandler(handler, impl));
             }
         }
 
@@ -555,6 +1414,21 @@ public class RPCManager {
         return handler;
     }
 
+    // creates a function handler invoking the
+    // given implementation on the handler
+    private FunctionHandler createHandler(Object handler, Method impl) {
+        impl.setAccessible(true);
+        final MethodHandle invoker = MethodUtils.createSpreadInvoker(handler, impl);
+        return (manager, callInfoSupplier, args) -> {
+            try {
+                return (Object) invoker.invokeExact(args);
+            } catch (Throwable t) {
+                Throwables.sneakyThrow(t);
+                return null;
+            }
+        };
+    }
+
     /**
      * Compile the given remote API object class.
      *
@@ -707,4 +1581,56 @@ public class RPCManager {
         }
     }
 
+    /**
+     * Invalidate all cached results of the given method
+     * on all nodes, including this one.
+     *
+     * @param itf The declaring interface of the method.
+     * @param name The name of the method.
+     */
+    public void invalidateCache(Class<?> itf, String name) {
+        publishInvalidate(itf, name, true, null);
+    }
+
+    /**
+     * Invalidate the cached result of the given method for the
+     * given arguments on all nodes, including this one.
+     *
+     * @param itf The declaring interface of the method.
+     * @param name The name of the method.
+     * @param args The arguments of the call.
+     */
+    public void invalidateCache(Class<?> itf, String name, Object... args) {
+        publishInvalidate(itf, name, false, args);
+    }
+
+    // publishes the invalidation of the cached results
+    // of the given method and applies it locally
+    private void publishInvalidate(Class<?> itf, String name, boolean all, Object[] args) {
+        // find the sync method
+        CompiledInterface compiledInterface = compileInterface(itf);
+        CompiledMethod compiledMethod = compiledInterface != null ? compiledInterface.findMethodByName(name) : null;
+        if (compiledMethod instanceof CompiledAsyncMethod) {
+            compiledMethod = ((CompiledAsyncMethod) compiledMethod).getSyncMethod();
+        }
+
+        if (!(compiledMethod instanceof CompiledSyncMethod)) {
+            throw new IllegalArgumentException("No function by symbol `" + itf.getName() + "#" + name + "`");
+        }
+
+        MCallInvalidate invalidate = new MCallInvalidate(compiledMethod.getFunction().getName(), all, args);
+        invalidateLocalCache(invalidate);
+        localChannel.provider().publish(new Message<>(MCallInvalidate.NAME).payload(invalidate));
+    }
+
+    // applies the given invalidation to the local cache
+    private void invalidateLocalCache(MCallInvalidate invalidate) {
+        ResultCache resultCache = resultCaches.get(invalidate.getName());
+        if (resultCache == null)
+            return;
+
+        if (invalidate.isAll()) resultCache.invalidateAll();
+        else resultCache.invalidate(invalidate.getArgs());
+    }
+
 }
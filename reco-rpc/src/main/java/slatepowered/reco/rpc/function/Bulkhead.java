@@ -0,0 +1,21 @@
+package slatepowered.reco.rpc.function;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Limits the amount of concurrent executions of the given
+ * method for inbound calls. Calls exceeding both the maximum
+ * concurrency and queue length are rejected immediately.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Bulkhead {
+
+    int maxConcurrent();
+
+    int maxQueued() default 0;
+
+}
@@ -0,0 +1,27 @@
+package slatepowered.reco.rpc.function;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the results of calls to the given method on the
+ * calling side, by the call arguments. Only to be used on
+ * idempotent methods. Entries expire after the time to live
+ * and can be invalidated explicitly by the remote through
+ * {@link slatepowered.reco.rpc.RPCManager#invalidateCache(Class, String, Object...)}.
+ * A time to live of 0 disables expiry.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Cached {
+
+    long ttl();
+
+    TimeUnit unit() default TimeUnit.MILLISECONDS;
+
+    int maxSize() default 1024;
+
+}
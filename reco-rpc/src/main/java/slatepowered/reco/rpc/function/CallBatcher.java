@@ -0,0 +1,183 @@
+package slatepowered.reco.rpc.function;
+
+import slatepowered.reco.Channel;
+import slatepowered.reco.Message;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.logging.Logger;
+
+/**
+ * Packs outgoing calls to the same channel into {@link MCallBatch}
+ * messages. A batch is sent when it reaches the maximum amount of
+ * calls or once the window has passed since its first call. Batches
+ * of a single call are sent as a plain {@link MCallRemote}.
+ *
+ * Batches flushed by the window are sent on the executor of the
+ * batcher, the timer thread only takes them. Batches which failed
+ * to send are passed to the failure handler with the error.
+ */
+public class CallBatcher {
+
+    // logger
+    static final Logger LOGGER = Logger.getLogger("CallBatcher");
+
+    // the timer for window flushes, shared by all batchers
+    static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "CallBatcher-Window");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The calls waiting to be sent to one channel.
+     */
+    final class Batch {
+        final Channel channel;
+
+        // the pending calls
+        List<MCallRemote> calls = new ArrayList<>();
+
+        // whether a window flush is scheduled
+        boolean scheduled;
+
+        Batch(Channel channel) {
+            this.channel = channel;
+        }
+
+        // takes the pending calls and resets this
+        // batch, called while holding the lock
+        List<MCallRemote> take() {
+            scheduled = false;
+            if (calls.isEmpty())
+                return null;
+
+            List<MCallRemote> sending = calls;
+            calls = new ArrayList<>();
+            return sending;
+        }
+
+        // sends and resets this batch,
+        // called while holding the lock
+        void flush() {
+            List<MCallRemote> sending = take();
+            if (sending != null) {
+                send(channel, sending);
+            }
+        }
+    }
+
+    /* Flush thresholds */
+    final int maxCalls;
+    final long windowMicros;
+
+    // the batches by channel
+    final Map<Channel, Batch> batches = new ConcurrentHashMap<>();
+
+    // the executor batches flushed by the window are sent on
+    final Executor executor;
+
+    // called with the calls of batches which failed to send
+    final BiConsumer<List<MCallRemote>, Throwable> onSendFailed;
+
+    public CallBatcher(int maxCalls, long windowMicros) {
+        this(maxCalls, windowMicros, ForkJoinPool.commonPool(), null);
+    }
+
+    public CallBatcher(int maxCalls, long windowMicros, Executor executor,
+                       BiConsumer<List<MCallRemote>, Throwable> onSendFailed) {
+        this.maxCalls = Math.max(1, maxCalls);
+        this.windowMicros = windowMicros;
+        this.executor = executor;
+        this.onSendFailed = onSendFailed;
+    }
+
+    public int getMaxCalls() {
+        return maxCalls;
+    }
+
+    public long getWindowMicros() {
+        return windowMicros;
+    }
+
+    /**
+     * Add the given call to the batch for the given channel.
+     *
+     * @param channel The channel.
+     * @param call The call.
+     */
+    public void add(Channel channel, MCallRemote call) {
+        Batch batch = batches.computeIfAbsent(channel, Batch::new);
+        synchronized (batch) {
+            batch.calls.add(call);
+            if (batch.calls.size() >= maxCalls) {
+                batch.flush();
+            } else if (!batch.scheduled) {
+                // flush once the window has passed
+                batch.scheduled = true;
+                TIMER.schedule(() -> flushWindow(batch), windowMicros, TimeUnit.MICROSECONDS);
+            }
+        }
+    }
+
+    // takes the batch once the window has passed
+    // and sends it on the executor
+    private void flushWindow(Batch batch) {
+        List<MCallRemote> sending;
+        synchronized (batch) {
+            if (!batch.scheduled)
+                return;
+            sending = batch.take();
+        }
+
+        if (sending == null)
+            return;
+        try {
+            executor.execute(() -> send(batch.channel, sending));
+        } catch (RejectedExecutionException e) {
+            sendFailed(batch.channel, sending, e);
+        }
+    }
+
+    // sends the given calls as one message
+    private void send(Channel channel, List<MCallRemote> sending) {
+        try {
+            if (sending.size() == 1) {
+                channel.send(new Message<>(MCallRemote.NAME).payload(sending.get(0)));
+            } else {
+                channel.send(new Message<>(MCallBatch.NAME).payload(new MCallBatch(sending.toArray(new MCallRemote[0]))));
+            }
+        } catch (Throwable t) {
+            sendFailed(channel, sending, t);
+        }
+    }
+
+    // passes the calls which failed to send to the handler
+    private void sendFailed(Channel channel, List<MCallRemote> sending, Throwable t) {
+        LOGGER.warning("Failed to send call batch of " + sending.size() + " calls to " + channel + ": " + t);
+        if (onSendFailed != null) {
+            onSendFailed.accept(sending, t);
+        }
+    }
+
+    /**
+     * Immediately send all pending batches.
+     */
+    public void flush() {
+        for (Batch batch : batches.values()) {
+            synchronized (batch) {
+                batch.flush();
+            }
+        }
+    }
+
+}
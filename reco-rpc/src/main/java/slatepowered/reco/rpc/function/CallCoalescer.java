@@ -0,0 +1,95 @@
+package slatepowered.reco.rpc.function;
+
+import slatepowered.reco.Channel;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Tracks the in-flight calls to a remote function by channel and
+ * arguments, so concurrent identical calls share one exchange.
+ *
+ * The first caller sends the call and receives its exchange, later
+ * callers receive an exchange completed with the same response
+ * until the call has completed.
+ */
+public class CallCoalescer {
+
+    // the function of the calls
+    final RemoteFunction function;
+
+    // the responses of the in-flight calls
+    final ConcurrentHashMap<ResultCache.Key, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    // the amount of calls which joined an in-flight call
+    final AtomicLong coalescedCount = new AtomicLong();
+
+    public CallCoalescer(RemoteFunction function) {
+        this.function = function;
+    }
+
+    /**
+     * Join the in-flight call with the given arguments on the
+     * given channel, or start it with the given call if absent.
+     *
+     * @param channel The channel.
+     * @param args The arguments.
+     * @param call The function sending the call.
+     * @return The call exchange.
+     */
+    public CallExchange call(Channel channel, Object[] args, Supplier<CallExchange> call) {
+        ResultCache.Key key = ResultCache.key(channel, args);
+        CompletableFuture<Object> response = inFlight.get(key);
+        if (response == null) {
+            CompletableFuture<Object> created = new CompletableFuture<>();
+            response = inFlight.putIfAbsent(key, created);
+            if (response == null) {
+                // send the call, outside of any lock as
+                // the response may be received inline
+                CallExchange exchange;
+                try {
+                    exchange = call.get();
+                } catch (Throwable t) {
+                    inFlight.remove(key, created);
+                    created.completeExceptionally(t);
+                    throw t;
+                }
+
+                exchange.getResponseFuture().whenComplete((value, t) -> {
+                    inFlight.remove(key, created);
+                    if (t != null) created.completeExceptionally(t);
+                    else created.complete(value);
+                });
+
+                return exchange;
+            }
+        }
+
+        // join the in-flight call
+        coalescedCount.incrementAndGet();
+        CallExchange exchange = new CallExchange(0, function);
+        response.whenComplete((value, t) -> {
+            if (t != null) exchange.getResponseFuture().completeExceptionally(t);
+            else exchange.getResponseFuture().complete(value);
+        });
+
+        return exchange;
+    }
+
+    /**
+     * Get the amount of calls which did not send a message
+     * because an identical call was in flight.
+     *
+     * @return The coalesced call count.
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+}
@@ -29,6 +29,9 @@ public class CallExchange {
     /** The function which was called. */
     private final RemoteFunction function;
 
+    /** The scheduled timeout, null if none. */
+    private volatile HashedWheelTimer.Entry timeout;
+
     public CallExchange(long callId, RemoteFunction function) {
         this.callId = callId;
         this.function = function;
@@ -46,4 +49,23 @@ public class CallExchange {
         return function;
     }
 
+    public HashedWheelTimer.Entry getTimeout() {
+        return timeout;
+    }
+
+    public CallExchange setTimeout(HashedWheelTimer.Entry timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    /**
+     * Cancel the scheduled timeout of this exchange, if any.
+     */
+    public void cancelTimeout() {
+        HashedWheelTimer.Entry entry = timeout;
+        if (entry != null) {
+            entry.cancel();
+        }
+    }
+
 }
@@ -0,0 +1,148 @@
+package slatepowered.reco.rpc.function;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A lock-free table of in-flight call exchanges by call ID.
+ *
+ * Call IDs are expected to be sequential in their low 32 bits, so
+ * each exchange usually lands in the slot indexed by its sequence
+ * and lookups hit the first slot probed. Slots are claimed with a
+ * CAS and freed by replacing the exchange with a tombstone. If no
+ * slot is free within a few probes, because calls which are a full
+ * table old are still in flight, the exchange is put into an
+ * overflow map instead.
+ */
+public class CallExchangeTable {
+
+    // the maximum amount of slots probed
+    static final int MAX_PROBE = 16;
+
+    // marks a freed slot
+    static final CallExchange TOMBSTONE = new CallExchange(0, null);
+
+    // the slots, the length is a power of two
+    final AtomicReferenceArray<CallExchange> slots;
+    final int mask;
+
+    // exchanges which did not fit in the slots
+    final ConcurrentHashMap<Long, CallExchange> overflow = new ConcurrentHashMap<>();
+
+    // the amount of exchanges in the table
+    final AtomicInteger size = new AtomicInteger();
+
+    public CallExchangeTable(int capacity) {
+        int length = 1;
+        while (length < capacity)
+            length <<= 1;
+
+        this.slots = new AtomicReferenceArray<>(length);
+        this.mask = length - 1;
+    }
+
+    public CallExchangeTable() {
+        this(1 << 16);
+    }
+
+    /**
+     * Put the given exchange into this table by its call ID.
+     * No exchange with the same ID may be present.
+     *
+     * @param exchange The exchange.
+     */
+    public void put(CallExchange exchange) {
+        final long id = exchange.getCallId();
+        size.incrementAndGet();
+        for (int i = 0, slot = (int) id & mask; i < MAX_PROBE; i++, slot = (slot + 1) & mask) {
+            CallExchange current = slots.get(slot);
+            if ((current == null || current == TOMBSTONE) && slots.compareAndSet(slot, current, exchange)) {
+                return;
+            }
+        }
+
+        overflow.put(id, exchange);
+    }
+
+    /**
+     * Get the exchange with the given call ID.
+     *
+     * @param id The call ID.
+     * @return The exchange or null if absent.
+     */
+    public CallExchange get(long id) {
+        for (int i = 0, slot = (int) id & mask; i < MAX_PROBE; i++, slot = (slot + 1) & mask) {
+            CallExchange current = slots.get(slot);
+            if (current == null)
+                break;
+            if (current != TOMBSTONE && current.getCallId() == id)
+                return current;
+        }
+
+        return overflow.isEmpty() ? null : overflow.get(id);
+    }
+
+    /**
+     * Remove the exchange with the given call ID.
+     *
+     * @param id The call ID.
+     * @return The removed exchange or null if absent.
+     */
+    public CallExchange remove(long id) {
+        for (int i = 0, slot = (int) id & mask; i < MAX_PROBE; i++, slot = (slot + 1) & mask) {
+            CallExchange current = slots.get(slot);
+            if (current == null)
+                break;
+            if (current != TOMBSTONE && current.getCallId() == id) {
+                if (!slots.compareAndSet(slot, current, TOMBSTONE))
+                    return null; // removed concurrently
+                size.decrementAndGet();
+                return current;
+            }
+        }
+
+        CallExchange removed = overflow.isEmpty() ? null : overflow.remove(id);
+        if (removed != null)
+            size.decrementAndGet();
+        return removed;
+    }
+
+    /**
+     * Remove the given exchange if it is still in this table.
+     *
+     * @param exchange The exchange.
+     * @return Whether it was removed.
+     */
+    public boolean remove(CallExchange exchange) {
+        final long id = exchange.getCallId();
+        for (int i = 0, slot = (int) id & mask; i < MAX_PROBE; i++, slot = (slot + 1) & mask) {
+            CallExchange current = slots.get(slot);
+            if (current == null)
+                break;
+            if (current == exchange) {
+                if (!slots.compareAndSet(slot, exchange, TOMBSTONE))
+                    return false;
+                size.decrementAndGet();
+                return true;
+            }
+        }
+
+        if (!overflow.isEmpty() && overflow.remove(id, exchange)) {
+            size.decrementAndGet();
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Get the amount of exchanges in this table.
+     *
+     * @return The size.
+     */
+    public int size() {
+        return size.get();
+    }
+
+}
@@ -0,0 +1,18 @@
+package slatepowered.reco.rpc.function;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Coalesces concurrent calls to the given method with equal
+ * arguments on the same channel into one call, of which the
+ * response is passed to every caller. Only to be used on
+ * idempotent methods.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Coalesce {
+
+}
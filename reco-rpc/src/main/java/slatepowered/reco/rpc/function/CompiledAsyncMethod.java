@@ -19,6 +19,10 @@ public class CompiledAsyncMethod extends CompiledMethod {
         this.syncMethod = syncMethod;
     }
 
+    public CompiledMethod getSyncMethod() {
+        return syncMethod;
+    }
+
     @Override
     public CallExchange proxyCallExchange(RPCManager manager, Channel channel, Object instance, Object[] args) throws Throwable {
         return syncMethod.proxyCallExchange(manager, channel, instance, args);
@@ -0,0 +1,213 @@
+package slatepowered.reco.rpc.function;
+
+import java.util.Queue;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Limits the amount of concurrent executions of a remote
+ * function, queueing a bounded amount of calls beyond that.
+ */
+public class FunctionBulkhead {
+
+    /**
+     * A call waiting for a permit.
+     */
+    static final class Queued {
+        final Supplier<? extends CompletionStage<?>> task;
+        final Consumer<RejectedExecutionException> onRejected;
+
+        Queued(Supplier<? extends CompletionStage<?>> task, Consumer<RejectedExecutionException> onRejected) {
+            this.task = task;
+            this.onRejected = onRejected;
+        }
+    }
+
+    /* Limits */
+    final int maxConcurrent;
+    final int maxQueued;
+
+    // the amount of running calls
+    final AtomicInteger active = new AtomicInteger();
+
+    // the calls waiting for a permit
+    final Queue<Queued> queue = new ConcurrentLinkedQueue<>();
+    final AtomicInteger queued = new AtomicInteger();
+
+    // the amount of rejected calls
+    final AtomicLong rejectedCount = new AtomicLong();
+
+    public FunctionBulkhead(int maxConcurrent, int maxQueued) {
+        if (maxConcurrent <= 0)
+            throw new IllegalArgumentException("Max concurrency must be positive");
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = Math.max(0, maxQueued);
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    public int getQueuedCount() {
+        return queued.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Run the given task on the given executor once a permit is
+     * available, or reject it if the queue is full as well.
+     *
+     * @param task The task.
+     * @param executor The executor.
+     * @return False if the task was rejected.
+     */
+    public boolean submit(Runnable task, Executor executor) {
+        return submitAsync(() -> {
+            task.run();
+            return null;
+        }, executor);
+    }
+
+    /**
+     * Run the given asynchronous task on the given executor once a
+     * permit is available, or reject it if the queue is full as well.
+     * The permit is held until the stage returned by the task completes.
+     *
+     * @param task The task, which may return null if it completed.
+     * @param executor The executor.
+     * @return False if the task was rejected.
+     */
+    public boolean submitAsync(Supplier<? extends CompletionStage<?>> task, Executor executor) {
+        return submitAsync(task, null, executor);
+    }
+
+    /**
+     * Run the given asynchronous task on the given executor once a
+     * permit is available, or reject it if the queue is full as well.
+     * The permit is held until the stage returned by the task completes.
+     *
+     * If the executor rejects the task when it is started straight
+     * away, the exception is thrown. If it rejects the task once it
+     * leaves the queue, the permit is passed on and the exception is
+     * given to the rejection handler instead.
+     *
+     * @param task The task, which may return null if it completed.
+     * @param onRejected The handler for queued tasks the executor rejected, may be null.
+     * @param executor The executor.
+     * @return False if the task was rejected.
+     */
+    public boolean submitAsync(Supplier<? extends CompletionStage<?>> task,
+                               Consumer<RejectedExecutionException> onRejected,
+                               Executor executor) {
+        if (tryAcquire()) {
+            try {
+                executor.execute(() -> runAndContinue(task, executor));
+            } catch (RuntimeException e) {
+                // pass the permit on, a call may have been
+                // queued while it was held
+                release(executor);
+                throw e;
+            }
+
+            return true;
+        }
+
+        // reserve a place in the queue
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            rejectedCount.incrementAndGet();
+            return false;
+        }
+
+        queue.add(new Queued(task, onRejected));
+
+        // all permits may have been released
+        // before the task was queued
+        if (tryAcquire()) {
+            runNext(executor);
+        }
+
+        return true;
+    }
+
+    // tries to take a permit
+    private boolean tryAcquire() {
+        for (;;) {
+            int current = active.get();
+            if (current >= maxConcurrent)
+                return false;
+            if (active.compareAndSet(current, current + 1))
+                return true;
+        }
+    }
+
+    // runs the task and passes the permit
+    // on once it has completed
+    private void runAndContinue(Supplier<? extends CompletionStage<?>> task, Executor executor) {
+        CompletionStage<?> completion = null;
+        try {
+            completion = task.get();
+        } finally {
+            if (completion == null) {
+                runNext(executor);
+            } else {
+                completion.whenComplete((v, t) -> runNext(executor));
+            }
+        }
+    }
+
+    // runs the next queued task while holding a permit,
+    // or releases the permit if none are queued
+    private void runNext(Executor executor) {
+        for (;;) {
+            Queued next = queue.poll();
+            if (next != null) {
+                queued.decrementAndGet();
+                try {
+                    executor.execute(() -> runAndContinue(next.task, executor));
+                    return;
+                } catch (RejectedExecutionException e) {
+                    // fail the task and pass the permit on
+                    rejectedCount.incrementAndGet();
+                    if (next.onRejected != null)
+                        next.onRejected.accept(e);
+                    continue;
+                }
+            }
+
+            active.decrementAndGet();
+
+            // a task may have been queued
+            // before the permit was released
+            if (queue.isEmpty() || !tryAcquire())
+                return;
+        }
+    }
+
+    // releases a permit which was not used, running
+    // a task queued meanwhile with a permit if possible
+    private void release(Executor executor) {
+        active.decrementAndGet();
+        if (!queue.isEmpty() && tryAcquire()) {
+            runNext(executor);
+        }
+    }
+
+}
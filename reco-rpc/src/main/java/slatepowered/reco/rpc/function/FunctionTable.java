@@ -0,0 +1,140 @@
+package slatepowered.reco.rpc.function;
+
+/**
+ * An open addressing table of remote functions by their numeric
+ * ID, used to resolve inbound calls without hashing the name.
+ *
+ * The arrays are copied on registration, so lookups never lock.
+ * An ID shared by functions with different names is marked as
+ * ambiguous and does not resolve to any function. A caller only
+ * knows the functions it has compiled itself though, so calls carry
+ * a checksum of the name as well, which inbound calls are resolved
+ * with to not invoke a different function sharing the ID.
+ */
+public class FunctionTable {
+
+    // marks an ID shared by multiple functions
+    static final RemoteFunction AMBIGUOUS = new RemoteFunction("<ambiguous>", new Class<?>[0], void.class);
+
+    /**
+     * An immutable snapshot of the table.
+     */
+    static final class Table {
+        final int[] ids;
+        final RemoteFunction[] functions;
+        final int size;
+
+        Table(int[] ids, RemoteFunction[] functions, int size) {
+            this.ids = ids;
+            this.functions = functions;
+            this.size = size;
+        }
+
+        // finds the slot of the given ID, or the
+        // empty slot it would be inserted at
+        int slot(int id) {
+            final int mask = ids.length - 1;
+            int h = id * 0x9E3779B9;
+            for (int i = (h ^ (h >>> 16)) & mask; ; i = (i + 1) & mask) {
+                if (functions[i] == null || ids[i] == id)
+                    return i;
+            }
+        }
+    }
+
+    // the current snapshot, only replaced
+    // while holding the lock
+    volatile Table table = new Table(new int[16], new RemoteFunction[16], 0);
+
+    /**
+     * Get the function with the given ID.
+     *
+     * @param id The function ID.
+     * @return The function or null if absent or ambiguous.
+     */
+    public RemoteFunction get(int id) {
+        final Table t = table;
+        RemoteFunction function = t.functions[t.slot(id)];
+        return function == AMBIGUOUS ? null : function;
+    }
+
+    /**
+     * Get the function with the given ID, verifying it by the
+     * checksum of its name, so a call to a function which is
+     * not registered does not resolve to one sharing its ID.
+     *
+     * @param id The function ID.
+     * @param checksum The checksum of the function name.
+     * @return The function or null if absent, ambiguous or mismatched.
+     */
+    public RemoteFunction get(int id, int checksum) {
+        RemoteFunction function = get(id);
+        return function != null && function.getChecksum() == checksum ? function : null;
+    }
+
+    /**
+     * Check whether the given ID is shared by multiple
+     * functions with different names.
+     *
+     * @param id The function ID.
+     * @return Whether the ID is ambiguous.
+     */
+    public boolean isAmbiguous(int id) {
+        final Table t = table;
+        return t.functions[t.slot(id)] == AMBIGUOUS;
+    }
+
+    /**
+     * Get the amount of IDs in this table.
+     *
+     * @return The size.
+     */
+    public int size() {
+        return table.size;
+    }
+
+    /**
+     * Register the given function by its ID, replacing
+     * any function with the same name.
+     *
+     * @param function The function.
+     * @return False if the ID is shared with a different function.
+     */
+    public synchronized boolean put(RemoteFunction function) {
+        Table old = table;
+
+        // copy the table, doubling it when over half full
+        int capacity = old.ids.length;
+        if ((old.size + 1) * 2 > capacity)
+            capacity *= 2;
+        Table t = new Table(new int[capacity], new RemoteFunction[capacity], old.size);
+        for (int i = 0; i < old.ids.length; i++) {
+            if (old.functions[i] != null) {
+                int slot = t.slot(old.ids[i]);
+                t.ids[slot] = old.ids[i];
+                t.functions[slot] = old.functions[i];
+            }
+        }
+
+        // insert the function
+        final int id = function.getId();
+        int slot = t.slot(id);
+        RemoteFunction existing = t.functions[slot];
+        boolean unique = true;
+        int size = t.size;
+        if (existing == null) {
+            t.ids[slot] = id;
+            t.functions[slot] = function;
+            size++;
+        } else if (existing != AMBIGUOUS && existing.getName().equals(function.getName())) {
+            t.functions[slot] = function;
+        } else {
+            t.functions[slot] = AMBIGUOUS;
+            unique = false;
+        }
+
+        table = new Table(t.ids, t.functions, size);
+        return unique;
+    }
+
+}
@@ -0,0 +1,278 @@
+package slatepowered.reco.rpc.function;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.logging.Logger;
+
+/**
+ * A timer which expires tasks in ticks of a fixed duration
+ * using a wheel of buckets, so scheduling and cancelling are
+ * O(1) regardless of the amount of pending tasks.
+ *
+ * All buckets are only touched by the single worker thread,
+ * scheduled and cancelled tasks are handed to it through
+ * queues. Expired tasks are run on the worker thread, so they
+ * should be short.
+ */
+public class HashedWheelTimer {
+
+    // logger
+    static final Logger LOGGER = Logger.getLogger("HashedWheelTimer");
+
+    /* Task states */
+    static final int STATE_PENDING = 0;
+    static final int STATE_CANCELLED = 1;
+    static final int STATE_EXPIRED = 2;
+
+    /**
+     * A scheduled task.
+     */
+    public static final class Entry {
+        static final AtomicIntegerFieldUpdater<Entry> STATE =
+                AtomicIntegerFieldUpdater.newUpdater(Entry.class, "state");
+
+        final HashedWheelTimer timer;
+        final Runnable task;
+
+        // the tick at which this task expires
+        final long deadlineTick;
+
+        // the amount of wheel rotations left until
+        // it expires, only used by the worker
+        long remainingRounds;
+
+        // the bucket list, only used by the worker
+        Bucket bucket;
+        Entry prev;
+        Entry next;
+
+        volatile int state;
+
+        Entry(HashedWheelTimer timer, Runnable task, long deadlineTick) {
+            this.timer = timer;
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /**
+         * Cancel this task if it has not expired yet.
+         *
+         * @return Whether it was cancelled.
+         */
+        public boolean cancel() {
+            if (!STATE.compareAndSet(this, STATE_PENDING, STATE_CANCELLED))
+                return false;
+            timer.cancelledEntries.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state == STATE_CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state == STATE_EXPIRED;
+        }
+    }
+
+    /**
+     * A doubly linked list of entries in one slot of the wheel.
+     */
+    static final class Bucket {
+        Entry head;
+        Entry tail;
+
+        void add(Entry entry) {
+            entry.bucket = this;
+            if (head == null) {
+                head = tail = entry;
+            } else {
+                tail.next = entry;
+                entry.prev = tail;
+                tail = entry;
+            }
+        }
+
+        void remove(Entry entry) {
+            if (entry.prev != null) entry.prev.next = entry.next;
+            else head = entry.next;
+            if (entry.next != null) entry.next.prev = entry.prev;
+            else tail = entry.prev;
+            entry.prev = entry.next = null;
+            entry.bucket = null;
+        }
+
+        // expires all entries in this bucket which are
+        // due in the current rotation
+        void expire() {
+            Entry entry = head;
+            while (entry != null) {
+                Entry next = entry.next;
+                if (entry.remainingRounds <= 0) {
+                    remove(entry);
+                    if (Entry.STATE.compareAndSet(entry, STATE_PENDING, STATE_EXPIRED)) {
+                        try {
+                            entry.task.run();
+                        } catch (Throwable t) {
+                            LOGGER.warning("Error while running expired task");
+                            t.printStackTrace();
+                        }
+                    }
+                } else {
+                    entry.remainingRounds--;
+                }
+
+                entry = next;
+            }
+        }
+    }
+
+    ////////////////////////////////////////
+
+    // the duration of one tick in nanoseconds
+    final long tickNanos;
+
+    // the wheel, its length is a power of two
+    final Bucket[] wheel;
+    final int mask;
+
+    /* Hand-off queues */
+    final Queue<Entry> newEntries = new ConcurrentLinkedQueue<>();
+    final Queue<Entry> cancelledEntries = new ConcurrentLinkedQueue<>();
+
+    // the time the worker started at
+    volatile long startTime;
+
+    // the worker thread, started lazily
+    volatile Thread worker;
+
+    // whether this timer was stopped
+    volatile boolean stopped;
+
+    public HashedWheelTimer(long tickDuration, TimeUnit unit, int wheelSize) {
+        if (tickDuration <= 0)
+            throw new IllegalArgumentException("Tick duration must be positive");
+        int size = 1;
+        while (size < wheelSize)
+            size <<= 1;
+
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.wheel = new Bucket[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++)
+            wheel[i] = new Bucket();
+    }
+
+    public HashedWheelTimer() {
+        this(10, TimeUnit.MILLISECONDS, 512);
+    }
+
+    /**
+     * Schedule the given task to run once the given delay has
+     * passed, rounded up to the next tick.
+     *
+     * @param task The task.
+     * @param delay The delay.
+     * @param unit The delay unit.
+     * @return The scheduled entry.
+     */
+    public Entry schedule(Runnable task, long delay, TimeUnit unit) {
+        if (stopped)
+            throw new IllegalStateException("Timer has been stopped");
+        start();
+
+        long deadline = System.nanoTime() - startTime + unit.toNanos(delay);
+        Entry entry = new Entry(this, task, (deadline + tickNanos - 1) / tickNanos);
+        newEntries.add(entry);
+        return entry;
+    }
+
+    /**
+     * Get the amount of pending tasks which have not yet
+     * been moved onto the wheel by the worker.
+     *
+     * @return The amount.
+     */
+    public int getQueuedCount() {
+        return newEntries.size();
+    }
+
+    /**
+     * Stop the worker thread, pending tasks never expire.
+     */
+    public void stop() {
+        stopped = true;
+        Thread thread = worker;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    // starts the worker thread if needed
+    private void start() {
+        if (worker != null)
+            return;
+
+        synchronized (this) {
+            if (worker != null)
+                return;
+
+            startTime = System.nanoTime();
+            Thread thread = new Thread(this::run, "HashedWheelTimer-Worker");
+            thread.setDaemon(true);
+            worker = thread;
+            thread.start();
+        }
+    }
+
+    // the worker loop
+    private void run() {
+        long tick = 0;
+        while (!stopped) {
+            // wait for the next tick
+            long sleepNanos = (tick + 1) * tickNanos - (System.nanoTime() - startTime);
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    if (stopped)
+                        return;
+                }
+
+                continue;
+            }
+
+            tick++;
+            processCancelled();
+            transferNew(tick);
+            wheel[(int) (tick & mask)].expire();
+        }
+    }
+
+    // removes cancelled entries from their buckets
+    private void processCancelled() {
+        Entry entry;
+        while ((entry = cancelledEntries.poll()) != null) {
+            if (entry.bucket != null) {
+                entry.bucket.remove(entry);
+            }
+        }
+    }
+
+    // moves newly scheduled entries onto the wheel
+    private void transferNew(long currentTick) {
+        Entry entry;
+        while ((entry = newEntries.poll()) != null) {
+            if (entry.state != STATE_PENDING)
+                continue;
+
+            // entries already due expire in the current tick
+            long ticks = Math.max(entry.deadlineTick, currentTick);
+            entry.remainingRounds = (ticks - currentTick) / wheel.length;
+            wheel[(int) (ticks & mask)].add(entry);
+        }
+    }
+
+}
@@ -0,0 +1,231 @@
+package slatepowered.reco.rpc.function;
+
+import slatepowered.reco.Channel;
+import slatepowered.reco.Message;
+import slatepowered.reco.rpc.CallTimeoutException;
+import slatepowered.reco.rpc.RemoteException;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Receives the items of a streamed call result.
+ *
+ * Items are requested from the remote in windows, more items are
+ * requested once half of the window has been consumed, so at most
+ * one window of items is buffered. Closing the stream before it
+ * is done cancels it on the remote.
+ *
+ * Messages are applied in the order they were sent, messages
+ * received early are held back until the ones before them arrive.
+ *
+ * @param <T> The item type.
+ */
+@SuppressWarnings("unchecked")
+public class InboundStream<T> implements Iterator<T>, AutoCloseable {
+
+    // the remote channel
+    final Channel channel;
+
+    // the call exchange ID
+    final long callId;
+
+    // the amount of items requested at once
+    final int window;
+
+    // the time to wait for items in milliseconds, 0 for no limit
+    final long timeoutMillis;
+
+    // called once the stream is done or closed
+    final Runnable onClose;
+
+    /* State, guarded by this */
+    final ArrayDeque<Object> items = new ArrayDeque<>();
+    int outstanding;
+    boolean done;
+    boolean closed;
+    Object error;
+
+    // the messages received before the ones preceding them
+    final HashMap<Long, MCallStreamItem> early = new HashMap<>();
+    long nextSequence;
+
+    // the time the items were last read at and
+    // the amount of threads waiting for items
+    long readAt = System.nanoTime();
+    int waiting;
+
+    public InboundStream(Channel channel, long callId, int window, long timeoutMillis, Runnable onClose) {
+        this.channel = channel;
+        this.callId = callId;
+        this.window = window;
+        this.timeoutMillis = timeoutMillis;
+        this.onClose = onClose;
+    }
+
+    public long getCallId() {
+        return callId;
+    }
+
+    public synchronized boolean isClosed() {
+        return done || closed;
+    }
+
+    /**
+     * Called when a message of items is received.
+     *
+     * @param message The message.
+     */
+    public void receive(MCallStreamItem message) {
+        boolean ended = false;
+        synchronized (this) {
+            if (message.getSequence() != nextSequence) {
+                if (message.getSequence() > nextSequence)
+                    early.put(message.getSequence(), message);
+                return;
+            }
+
+            // apply the message and the held back ones following it
+            for (MCallStreamItem next = message; next != null; next = early.remove(nextSequence)) {
+                nextSequence++;
+                Object[] received = next.getItems();
+                if (received != null) {
+                    Collections.addAll(items, received);
+                    outstanding -= received.length;
+                }
+
+                ended |= next.isDone() && !done;
+                done |= next.isDone();
+                if (next.getError() != null)
+                    error = next.getError();
+            }
+
+            notifyAll();
+        }
+
+        if (ended) {
+            onClose.run();
+        }
+    }
+
+    /**
+     * Request more items if less than half of the window
+     * is buffered or outstanding.
+     */
+    public void request() {
+        int amount;
+        synchronized (this) {
+            int pending = items.size() + outstanding;
+            if (done || closed || pending > window / 2)
+                return;
+            amount = window - pending;
+            outstanding += amount;
+        }
+
+        channel.send(new Message<>(MCallStreamDemand.NAME).payload(new MCallStreamDemand(callId, amount)));
+    }
+
+    /**
+     * Close the stream if it was not read for the given time,
+     * which happens when it was dropped without being closed.
+     * Reading it afterwards fails.
+     *
+     * @param now The current time in nanoseconds.
+     * @param idleNanos The idle timeout in nanoseconds.
+     * @return Whether the stream was closed.
+     */
+    public boolean expireIfIdle(long now, long idleNanos) {
+        synchronized (this) {
+            if (done || closed || waiting > 0 || now - readAt < idleNanos)
+                return false;
+            error = "Stream closed after not being read for " + (idleNanos / 1_000_000) + "ms";
+        }
+
+        close();
+        return true;
+    }
+
+    @Override
+    public boolean hasNext() {
+        synchronized (this) {
+            readAt = System.nanoTime();
+        }
+
+        request();
+
+        synchronized (this) {
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            while (items.isEmpty() && !done && !closed) {
+                waiting++;
+                try {
+                    if (timeoutMillis <= 0) {
+                        wait();
+                    } else {
+                        long remaining = deadline - System.currentTimeMillis();
+                        if (remaining <= 0)
+                            throw new CallTimeoutException("No stream items received for callId(" + callId + ") in " + timeoutMillis + "ms");
+                        wait(remaining);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RemoteException(e);
+                } finally {
+                    waiting--;
+                }
+            }
+
+            if (!items.isEmpty())
+                return true;
+            if (error instanceof Throwable)
+                throw new RemoteException((Throwable) error);
+            if (error != null)
+                throw new RemoteException(String.valueOf(error));
+            return false;
+        }
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        synchronized (this) {
+            return (T) items.poll();
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed)
+                return;
+            closed = true;
+            items.clear();
+            notifyAll();
+            if (done)
+                return;
+        }
+
+        // cancel the stream on the remote
+        channel.send(new Message<>(MCallStreamDemand.NAME).payload(new MCallStreamDemand(callId, -1)));
+        onClose.run();
+    }
+
+    /**
+     * Get a sequential stream of the items,
+     * which closes this when closed.
+     *
+     * @return The stream.
+     */
+    public Stream<T> toStream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED), false)
+                .onClose(this::close);
+    }
+
+}
@@ -0,0 +1,17 @@
+package slatepowered.reco.rpc.function;
+
+import lombok.*;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class MCallBatch {
+
+    public static final String NAME = "rpcbatch";
+
+    /**
+     * The batched calls.
+     */
+    MCallRemote[] calls;
+
+}
@@ -0,0 +1,18 @@
+package slatepowered.reco.rpc.function;
+
+import lombok.*;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class MCallBatchResponse {
+
+    public static final String NAME = "rpcbatchres";
+
+    /**
+     * The responses to the calls of a batch
+     * which were not one way, in any order.
+     */
+    MCallResponse[] responses;
+
+}
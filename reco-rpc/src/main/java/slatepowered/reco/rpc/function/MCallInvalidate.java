@@ -0,0 +1,27 @@
+package slatepowered.reco.rpc.function;
+
+import lombok.*;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class MCallInvalidate {
+
+    /**
+     * The name of the function.
+     */
+    String name;
+
+    /**
+     * Whether to invalidate all cached results.
+     */
+    boolean all;
+
+    /**
+     * The arguments of the result to invalidate.
+     */
+    Object[] args;
+
+    public static final String NAME = "rpcinv";
+
+}
@@ -15,7 +15,20 @@ public class MCallRemote {
     long callId;
 
     /**
-     * The name of the remote function.
+     * The numeric ID of the remote function,
+     * 0 if the function is called by name.
+     */
+    int functionId;
+
+    /**
+     * The checksum of the function name, verifying
+     * that the ID identifies the called function.
+     */
+    int functionChecksum;
+
+    /**
+     * The name of the remote function, only sent when
+     * the ID is ambiguous or not set.
      */
     String name;
 
@@ -24,4 +37,9 @@ public class MCallRemote {
      */
     Object[] args;
 
+    /**
+     * Whether the caller does not await a response.
+     */
+    boolean oneWay;
+
 }
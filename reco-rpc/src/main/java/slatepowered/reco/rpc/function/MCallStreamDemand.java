@@ -0,0 +1,23 @@
+package slatepowered.reco.rpc.function;
+
+import lombok.*;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class MCallStreamDemand {
+
+    /**
+     * The call exchange ID.
+     */
+    long callId;
+
+    /**
+     * The amount of additional items which may be
+     * sent, negative to cancel the stream.
+     */
+    int credit;
+
+    public static final String NAME = "rpcsdemand";
+
+}
@@ -0,0 +1,38 @@
+package slatepowered.reco.rpc.function;
+
+import lombok.*;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class MCallStreamItem {
+
+    /**
+     * The call exchange ID.
+     */
+    long callId;
+
+    /**
+     * The position of this message in the stream,
+     * 0 for the message opening it.
+     */
+    long sequence;
+
+    /**
+     * The next items of the stream.
+     */
+    Object[] items;
+
+    /**
+     * Whether this is the last message of the stream.
+     */
+    boolean done;
+
+    /**
+     * The error which ended the stream, null if none.
+     */
+    Object error;
+
+    public static final String NAME = "rpcsitem";
+
+}
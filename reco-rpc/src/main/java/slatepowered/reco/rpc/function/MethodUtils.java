@@ -78,6 +78,31 @@ public class MethodUtils {
         return handle;
     }
 
+    /**
+     * Create an invoker for the given method bound to the given
+     * instance, which takes the arguments as an array and returns
+     * the boxed result, so it has the type {@code (Object[])Object}
+     * and can be called with {@link MethodHandle#invokeExact(Object...)}.
+     *
+     * Unlike reflective invocation, exceptions thrown by the method
+     * are thrown by the invoker directly.
+     *
+     * @param instance The instance to invoke the method on.
+     * @param method The method, which must be accessible.
+     * @return The invoker.
+     */
+    public static MethodHandle createSpreadInvoker(Object instance, Method method) {
+        try {
+            MethodHandle handle = MethodHandles.lookup().unreflect(method).bindTo(instance);
+            return handle
+                    .asType(handle.type().generic())
+                    .asSpreader(Object[].class, method.getParameterCount());
+        } catch (Exception e) {
+            Throwables.sneakyThrow(e);
+            throw new AssertionError();
+        }
+    }
+
     /**
      * Find the implMethod implementing the given base implMethod
      * in the given class if present.
@@ -0,0 +1,17 @@
+package slatepowered.reco.rpc.function;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the given void method as fire-and-forget, calls are
+ * sent without awaiting a response and the remote does not
+ * respond, so failures are never reported to the caller.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface OneWay {
+
+}
@@ -0,0 +1,188 @@
+package slatepowered.reco.rpc.function;
+
+import slatepowered.reco.Channel;
+import slatepowered.reco.Message;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.logging.Logger;
+
+/**
+ * Sends the items of a streamed call result to the caller,
+ * as far as the caller has granted credit for.
+ *
+ * The stream is opened with an empty message which completes the
+ * call on the caller, after which items are sent in chunks while
+ * credit is available. Messages are numbered so the caller can
+ * apply them in order.
+ */
+public class OutboundStream {
+
+    // logger
+    static final Logger LOGGER = Logger.getLogger("OutboundStream");
+
+    // the caller channel
+    final Channel channel;
+
+    // the call exchange ID
+    final long callId;
+
+    // the items to send and the resource to close once done
+    final Iterator<?> iterator;
+    final AutoCloseable resource;
+
+    // the maximum amount of items per message
+    final int chunkSize;
+
+    // the executor to produce items on, null to run inline
+    final Executor executor;
+
+    // called once the stream is closed
+    final Runnable onClose;
+
+    /* State, guarded by this */
+    int credit;
+    boolean closed;
+    long sequence;
+
+    // the time demand was last received at
+    long demandedAt = System.nanoTime();
+
+    public OutboundStream(Channel channel, long callId, Iterator<?> iterator, AutoCloseable resource,
+                          int chunkSize, Executor executor, Runnable onClose) {
+        this.channel = channel;
+        this.callId = callId;
+        this.iterator = iterator;
+        this.resource = resource;
+        this.chunkSize = chunkSize;
+        this.executor = executor;
+        this.onClose = onClose;
+    }
+
+    public Channel getChannel() {
+        return channel;
+    }
+
+    public long getCallId() {
+        return callId;
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Open the stream, completing the call on the caller.
+     */
+    public synchronized void open() {
+        boolean done;
+        Object error = null;
+        try {
+            done = !iterator.hasNext();
+        } catch (Throwable t) {
+            done = true;
+            error = t;
+        }
+
+        send(new Object[0], done, error);
+        if (done) {
+            close();
+        }
+    }
+
+    /**
+     * Allow the given amount of additional items to be sent.
+     *
+     * @param amount The amount of items.
+     */
+    public void grant(int amount) {
+        synchronized (this) {
+            if (closed)
+                return;
+            credit += amount;
+            demandedAt = System.nanoTime();
+        }
+
+        if (executor != null) {
+            executor.execute(this::pump);
+        } else {
+            pump();
+        }
+    }
+
+    /**
+     * Stop sending items, called when the caller
+     * cancelled the stream.
+     */
+    public synchronized void cancel() {
+        close();
+    }
+
+    /**
+     * Close the stream if all granted items were sent and no
+     * demand was received for the given time, which happens when
+     * the caller is gone or dropped the stream without closing it.
+     *
+     * @param now The current time in nanoseconds.
+     * @param idleNanos The idle timeout in nanoseconds.
+     * @return Whether the stream was closed.
+     */
+    public synchronized boolean expireIfIdle(long now, long idleNanos) {
+        if (closed || credit > 0 || now - demandedAt < idleNanos)
+            return false;
+
+        send(new Object[0], true, "Stream closed after no demand for " + (idleNanos / 1_000_000) + "ms");
+        close();
+        return true;
+    }
+
+    // sends chunks while credit is available
+    private synchronized void pump() {
+        while (credit > 0 && !closed) {
+            int count = Math.min(credit, chunkSize);
+            List<Object> items = new ArrayList<>(count);
+            boolean done;
+            Object error = null;
+            try {
+                while (items.size() < count && iterator.hasNext())
+                    items.add(iterator.next());
+                done = !iterator.hasNext();
+            } catch (Throwable t) {
+                done = true;
+                error = t;
+            }
+
+            credit -= items.size();
+            send(items.toArray(), done, error);
+            if (done) {
+                close();
+            }
+        }
+    }
+
+    // sends a message of items to the caller
+    private void send(Object[] items, boolean done, Object error) {
+        channel.send(new Message<>(MCallStreamItem.NAME).payload(new MCallStreamItem(callId, sequence++, items, done, error)));
+    }
+
+    // closes the stream and the resource
+    private void close() {
+        if (closed)
+            return;
+        closed = true;
+
+        if (resource != null) {
+            try {
+                resource.close();
+            } catch (Throwable t) {
+                LOGGER.warning("Failed to close stream resource of callId(" + callId + ")");
+                t.printStackTrace();
+            }
+        }
+
+        onClose.run();
+    }
+
+}
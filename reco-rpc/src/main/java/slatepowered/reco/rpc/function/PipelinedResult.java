@@ -0,0 +1,20 @@
+package slatepowered.reco.rpc.function;
+
+import lombok.*;
+
+/**
+ * A reference to the result of an earlier call in the same
+ * pipelined batch, passed as an argument. The receiver replaces
+ * it with the result once the referenced call has completed.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+public class PipelinedResult {
+
+    /**
+     * The index of the referenced call in the batch.
+     */
+    int index;
+
+}
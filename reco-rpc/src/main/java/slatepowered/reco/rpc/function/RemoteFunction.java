@@ -1,14 +1,55 @@
 package slatepowered.reco.rpc.function;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.zip.CRC32;
 
 public class RemoteFunction {
 
+    /**
+     * Compute the stable numeric ID of a function from its name,
+     * as the 32 bit FNV-1a hash of the UTF-8 encoded name. The
+     * ID is never 0, which is reserved for calls by name.
+     *
+     * @param name The function name.
+     * @return The ID.
+     */
+    public static int computeId(String name) {
+        int hash = 0x811C9DC5;
+        for (byte b : name.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x01000193;
+        }
+
+        return hash != 0 ? hash : 1;
+    }
+
+    /**
+     * Compute the checksum sent along with the ID of a function,
+     * as the CRC-32 of the UTF-8 encoded name. It is independent of
+     * the ID, so a receiver can tell a function with a colliding ID
+     * apart from the one which was called.
+     *
+     * @param name The function name.
+     * @return The checksum.
+     */
+    public static int computeChecksum(String name) {
+        CRC32 crc = new CRC32();
+        crc.update(name.getBytes(StandardCharsets.UTF_8));
+        return (int) crc.getValue();
+    }
+
     /** The name of the function. */
     private final String name;
 
+    /** The numeric ID of the function. */
+    private final int id;
+
+    /** The checksum verifying the ID. */
+    private final int checksum;
+
     /** The argument types. */
     private final Class<?>[] argTypes;
 
@@ -18,11 +59,31 @@ public class RemoteFunction {
     /** The handler. */
     private FunctionHandler handler;
 
+    /** The call timeout in milliseconds, 0 for none and -1 for the default. */
+    private long timeoutMillis = -1;
+
+    /** Whether calls are sent without awaiting a response. */
+    private boolean oneWay;
+
+    /** Whether the result is streamed in chunks. */
+    private boolean streaming;
+
+    /** The bulkhead limiting inbound calls, null if unlimited. */
+    private FunctionBulkhead bulkhead;
+
+    /** The cache of call results on the calling side, null if not cached. */
+    private ResultCache resultCache;
+
+    /** The coalescer of identical concurrent calls, null if not coalesced. */
+    private CallCoalescer coalescer;
+
     /** All security groups allowed. */
     private Set<String> allowedSecurityGroups;
 
     public RemoteFunction(String name, Class<?>[] argTypes, Class<?> returnType) {
         this.name = name;
+        this.id = computeId(name);
+        this.checksum = computeChecksum(name);
         this.argTypes = argTypes;
         this.returnType = returnType;
     }
@@ -36,6 +97,79 @@ public class RemoteFunction {
         return this;
     }
 
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public RemoteFunction setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+        return this;
+    }
+
+    public boolean isOneWay() {
+        return oneWay;
+    }
+
+    public RemoteFunction setOneWay(boolean oneWay) {
+        this.oneWay = oneWay;
+        return this;
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    public RemoteFunction setStreaming(boolean streaming) {
+        this.streaming = streaming;
+        return this;
+    }
+
+    public FunctionBulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    public RemoteFunction setBulkhead(FunctionBulkhead bulkhead) {
+        this.bulkhead = bulkhead;
+        return this;
+    }
+
+    /**
+     * Limit the concurrent executions of inbound calls.
+     *
+     * @param maxConcurrent The maximum amount of running calls.
+     * @param maxQueued The maximum amount of calls waiting to run.
+     * @return This.
+     */
+    public RemoteFunction setBulkhead(int maxConcurrent, int maxQueued) {
+        return setBulkhead(new FunctionBulkhead(maxConcurrent, maxQueued));
+    }
+
+    public ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    public RemoteFunction setResultCache(ResultCache resultCache) {
+        this.resultCache = resultCache;
+        return this;
+    }
+
+    public CallCoalescer getCoalescer() {
+        return coalescer;
+    }
+
+    /**
+     * Set whether concurrent calls with equal arguments on
+     * the same channel are coalesced into one call.
+     *
+     * @param coalescing Whether to coalesce calls.
+     * @return This.
+     */
+    public RemoteFunction setCoalescing(boolean coalescing) {
+        if (!coalescing) this.coalescer = null;
+        else if (this.coalescer == null) this.coalescer = new CallCoalescer(this);
+        return this;
+    }
+
     public Set<String> getAllowedSecurityGroups() {
         return allowedSecurityGroups == null ? Collections.emptySet() : allowedSecurityGroups;
     }
@@ -49,6 +183,14 @@ public class RemoteFunction {
         return name;
     }
 
+    public int getId() {
+        return id;
+    }
+
+    public int getChecksum() {
+        return checksum;
+    }
+
     public Class<?>[] getArgTypes() {
         return argTypes;
     }
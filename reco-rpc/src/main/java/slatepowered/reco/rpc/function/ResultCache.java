@@ -0,0 +1,258 @@
+package slatepowered.reco.rpc.function;
+
+import slatepowered.reco.Channel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of the results of calls to a remote function,
+ * keyed by the channel or channel group called and the arguments.
+ *
+ * Entries expire after the time to live. When the cache is full
+ * an entry is evicted approximately least recently used, by
+ * sampling a few entries at random and evicting the one accessed
+ * longest ago, so hits never lock.
+ */
+public class ResultCache {
+
+    /** Returned by {@link #get(Object[])} if no result is cached. */
+    public static final Object MISS = new Object();
+
+    // the amount of entries sampled per eviction
+    static final int EVICTION_SAMPLES = 8;
+
+    // the empty arguments
+    static final Object[] NO_ARGS = new Object[0];
+
+    /**
+     * The channel and arguments of a call, the
+     * arguments are compared deeply.
+     */
+    static final class Key {
+        final Channel channel;
+        final Object[] args;
+        final int hash;
+
+        Key(Channel channel, Object[] args) {
+            this.channel = channel;
+            this.args = args;
+            this.hash = System.identityHashCode(channel) * 31 + Arrays.deepHashCode(args);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return hash == key.hash && channel == key.channel && Arrays.deepEquals(args, key.args);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * A cached result.
+     */
+    static final class Entry {
+        final Key key;
+        final Object value;
+        final long expiresAt;
+
+        // the time this entry was last read
+        volatile long accessedAt;
+
+        // the position in the sampled entries,
+        // guarded by the cache
+        int index;
+
+        Entry(Key key, Object value, long expiresAt, long accessedAt) {
+            this.key = key;
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.accessedAt = accessedAt;
+        }
+    }
+
+    // the maximum amount of entries
+    final int maxSize;
+
+    // the time to live of entries in nanoseconds, 0 for none
+    final long ttlNanos;
+
+    // the cached results
+    final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    // the cached results by position, so eviction can sample
+    // them at random, only modified while synchronized
+    final ArrayList<Entry> sampled = new ArrayList<>();
+
+    // incremented on every invalidation, so results of
+    // calls started before it are not cached
+    final AtomicLong generation = new AtomicLong();
+
+    /* Statistics */
+    final AtomicLong hitCount = new AtomicLong();
+    final AtomicLong missCount = new AtomicLong();
+
+    public ResultCache(int maxSize, long ttlNanos) {
+        if (maxSize <= 0)
+            throw new IllegalArgumentException("Maximum size must be positive, got " + maxSize);
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlNanos;
+    }
+
+    // gets the key for the given channel and arguments
+    static Key key(Channel channel, Object[] args) {
+        return new Key(channel, args != null ? args : NO_ARGS);
+    }
+
+    /**
+     * Get the cached result for the given arguments
+     * of a call on the given channel.
+     *
+     * @param channel The channel or channel group.
+     * @param args The arguments.
+     * @return The result or {@link #MISS} if absent or expired.
+     */
+    public Object get(Channel channel, Object[] args) {
+        Entry entry = entries.get(key(channel, args));
+        long now = System.nanoTime();
+        if (entry == null || (ttlNanos > 0 && now - entry.expiresAt >= 0)) {
+            if (entry != null)
+                remove(entry);
+            missCount.incrementAndGet();
+            return MISS;
+        }
+
+        entry.accessedAt = now;
+        hitCount.incrementAndGet();
+        return entry.value;
+    }
+
+    /**
+     * Get the current generation, to be passed to
+     * {@link #put(Channel, Object[], Object, long)} once the result
+     * of a call started now is received.
+     *
+     * @return The generation.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Cache the result for the given arguments of a call on the given
+     * channel, unless the cache was invalidated since the given generation.
+     *
+     * @param channel The channel or channel group.
+     * @param args The arguments.
+     * @param value The result.
+     * @param generation The generation when the call was started.
+     */
+    public synchronized void put(Channel channel, Object[] args, Object value, long generation) {
+        if (generation != this.generation.get())
+            return;
+
+        // copy the arguments so later changes
+        // to the array do not affect the key
+        Key key = key(channel, args != null ? args.clone() : null);
+        long now = System.nanoTime();
+        Entry entry = new Entry(key, value, now + ttlNanos, now);
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            entry.index = previous.index;
+            sampled.set(entry.index, entry);
+        } else {
+            entry.index = sampled.size();
+            sampled.add(entry);
+        }
+
+        if (sampled.size() > maxSize) {
+            evict(now);
+        }
+    }
+
+    // removes the given entry if still cached, moving
+    // the last sampled entry into its position
+    private synchronized void remove(Entry entry) {
+        if (!entries.remove(entry.key, entry))
+            return;
+
+        Entry last = sampled.remove(sampled.size() - 1);
+        if (last != entry) {
+            last.index = entry.index;
+            sampled.set(entry.index, last);
+        }
+    }
+
+    // evicts entries until the cache fits, preferring
+    // expired entries over the least recently used
+    private void evict(long now) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (sampled.size() > maxSize) {
+            // sample all entries of small caches
+            final int size = sampled.size();
+            final boolean all = size <= EVICTION_SAMPLES;
+            Entry victim = null;
+            for (int i = 0; i < (all ? size : EVICTION_SAMPLES); i++) {
+                Entry candidate = sampled.get(all ? i : random.nextInt(size));
+                if (ttlNanos > 0 && now - candidate.expiresAt >= 0) {
+                    victim = candidate;
+                    break;
+                }
+
+                if (victim == null || candidate.accessedAt - victim.accessedAt < 0) {
+                    victim = candidate;
+                }
+            }
+
+            remove(victim);
+        }
+    }
+
+    /**
+     * Remove the cached results for the given arguments
+     * on all channels.
+     *
+     * @param args The arguments.
+     */
+    public synchronized void invalidate(Object[] args) {
+        generation.incrementAndGet();
+        Object[] key = args != null ? args : NO_ARGS;
+        for (int i = sampled.size() - 1; i >= 0; i--) {
+            Entry entry = sampled.get(i);
+            if (Arrays.deepEquals(key, entry.key.args)) {
+                remove(entry);
+            }
+        }
+    }
+
+    /**
+     * Remove all cached results.
+     */
+    public synchronized void invalidateAll() {
+        generation.incrementAndGet();
+        entries.clear();
+        sampled.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+}
@@ -0,0 +1,23 @@
+package slatepowered.reco.rpc.function;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sets the time after which calls to the given method, or
+ * all methods of the given interface, fail with a
+ * {@link slatepowered.reco.rpc.CallTimeoutException}.
+ * A value of 0 disables the timeout.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.METHOD, ElementType.TYPE })
+public @interface Timeout {
+
+    long value();
+
+    TimeUnit unit() default TimeUnit.MILLISECONDS;
+
+}
@@ -0,0 +1,132 @@
+package test.slatepowered.reco;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import slatepowered.reco.local.LocalNetwork;
+import slatepowered.reco.local.LocalProvider;
+import slatepowered.reco.rpc.RPCManager;
+import slatepowered.reco.rpc.RemoteAPI;
+import slatepowered.reco.rpc.RemoteException;
+import slatepowered.reco.rpc.function.Allow;
+import slatepowered.reco.rpc.function.Bulkhead;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class AsyncHandlerTest {
+
+    /**
+     * The test API.
+     */
+    public interface API extends RemoteAPI {
+        @Allow
+        String fetch(String key);
+
+        default CompletableFuture<String> fetchAsync(String key) {
+            return null;
+        }
+
+        @Allow
+        @Bulkhead(maxConcurrent = 1)
+        String limited(String key);
+
+        default CompletableFuture<String> limitedAsync(String key) {
+            return null;
+        }
+    }
+
+    /**
+     * Implements the API asynchronously, completing
+     * the futures when told to.
+     */
+    static class AsyncImpl implements API {
+        final List<CompletableFuture<String>> pending = new ArrayList<>();
+        final List<String> keys = new ArrayList<>();
+
+        @Override
+        public String fetch(String key) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public synchronized CompletableFuture<String> fetchAsync(String key) {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            pending.add(future);
+            keys.add(key);
+            return future;
+        }
+
+        @Override
+        public String limited(String key) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<String> limitedAsync(String key) {
+            return fetchAsync(key);
+        }
+
+        synchronized void completeAll() {
+            for (int i = 0; i < pending.size(); i++) {
+                if (keys.get(i).equals("fail")) pending.get(i).completeExceptionally(new IllegalStateException("failed"));
+                else pending.get(i).complete(keys.get(i).toUpperCase());
+            }
+
+            pending.clear();
+            keys.clear();
+        }
+    }
+
+    @Test
+    void test_AsyncHandlers() throws Exception {
+        LocalNetwork network = new LocalNetwork("async-test");
+        LocalProvider providerA = new LocalProvider("a", network);
+        LocalProvider providerB = new LocalProvider("b", network);
+        RPCManager rpcA = new RPCManager(providerA);
+        RPCManager rpcB = new RPCManager(providerB);
+
+        AsyncImpl impl = rpcA.register(new AsyncImpl());
+        API remoteAPI = rpcB.bindRemote(providerB.channel("a"), API.class);
+
+        // calls are handled inline without blocking the thread
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++)
+            futures.add(remoteAPI.fetchAsync("key" + i));
+        CompletableFuture<String> failing = remoteAPI.fetchAsync("fail");
+        for (CompletableFuture<String> future : futures)
+            Assertions.assertFalse(future.isDone());
+
+        impl.completeAll();
+        for (int i = 0; i < 100; i++)
+            Assertions.assertEquals("KEY" + i, futures.get(i).get(5, TimeUnit.SECONDS));
+
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> failing.get(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(e.getCause() instanceof RemoteException);
+        Assertions.assertTrue(e.getCause().getCause() instanceof IllegalStateException);
+    }
+
+    @Test
+    void test_BulkheadHeldUntilCompletion() throws Exception {
+        LocalNetwork network = new LocalNetwork("async-test");
+        LocalProvider providerA = new LocalProvider("a", network);
+        LocalProvider providerB = new LocalProvider("b", network);
+        RPCManager rpcA = new RPCManager(providerA);
+        RPCManager rpcB = new RPCManager(providerB);
+
+        AsyncImpl impl = rpcA.register(new AsyncImpl());
+        API remoteAPI = rpcB.bindRemote(providerB.channel("a"), API.class);
+
+        CompletableFuture<String> first = remoteAPI.limitedAsync("a");
+        Assertions.assertTrue(remoteAPI.limitedAsync("b").isCompletedExceptionally());
+
+        impl.completeAll();
+        Assertions.assertEquals("A", first.get(5, TimeUnit.SECONDS));
+        CompletableFuture<String> third = remoteAPI.limitedAsync("c");
+        impl.completeAll();
+        Assertions.assertEquals("C", third.get(5, TimeUnit.SECONDS));
+    }
+
+}
@@ -0,0 +1,164 @@
+package test.slatepowered.reco;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import slatepowered.reco.local.LocalNetwork;
+import slatepowered.reco.local.LocalProvider;
+import slatepowered.reco.rpc.RPCManager;
+import slatepowered.reco.rpc.RemoteAPI;
+import slatepowered.reco.rpc.RemoteException;
+import slatepowered.reco.rpc.function.Allow;
+import slatepowered.reco.rpc.function.Bulkhead;
+import slatepowered.reco.rpc.function.FunctionBulkhead;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BulkheadTest {
+
+    /**
+     * The test API.
+     */
+    public interface API extends RemoteAPI {
+        @Allow
+        @Bulkhead(maxConcurrent = 1, maxQueued = 1)
+        String slow(String s);
+
+        default CompletableFuture<String> slowAsync(String s) {
+            return null;
+        }
+    }
+
+    @Test
+    void test_FunctionBulkhead() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            FunctionBulkhead bulkhead = new FunctionBulkhead(2, 1000);
+            AtomicInteger running = new AtomicInteger();
+            AtomicInteger maxRunning = new AtomicInteger();
+            CountDownLatch done = new CountDownLatch(500);
+            for (int i = 0; i < 500; i++) {
+                Assertions.assertTrue(bulkhead.submit(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    Thread.yield();
+                    running.decrementAndGet();
+                    done.countDown();
+                }, executor));
+            }
+
+            Assertions.assertTrue(done.await(5, TimeUnit.SECONDS));
+            Assertions.assertTrue(maxRunning.get() <= 2);
+            Assertions.assertEquals(0, bulkhead.getQueuedCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void test_RejectedQueuedTaskReleasesPermit() throws Exception {
+        // runs the first task and rejects all others
+        AtomicInteger executed = new AtomicInteger();
+        Executor executor = task -> {
+            if (executed.getAndIncrement() > 0)
+                throw new RejectedExecutionException("saturated");
+            task.run();
+        };
+
+        FunctionBulkhead bulkhead = new FunctionBulkhead(1, 1);
+        CompletableFuture<Void> first = new CompletableFuture<>();
+        CompletableFuture<RejectedExecutionException> rejected = new CompletableFuture<>();
+        Assertions.assertTrue(bulkhead.submitAsync(() -> first, executor));
+        Assertions.assertTrue(bulkhead.submitAsync(() -> null, rejected::complete, executor));
+        Assertions.assertEquals(1, bulkhead.getQueuedCount());
+
+        // the queued task is failed once the permit is passed on
+        first.complete(null);
+        Assertions.assertTrue(rejected.isDone());
+        Assertions.assertEquals(0, bulkhead.getActiveCount());
+        Assertions.assertEquals(0, bulkhead.getQueuedCount());
+        Assertions.assertEquals(1, bulkhead.getRejectedCount());
+    }
+
+    @Test
+    void test_RejectedTaskRunsQueuedTask() {
+        FunctionBulkhead bulkhead = new FunctionBulkhead(1, 1);
+        AtomicInteger executed = new AtomicInteger();
+        AtomicInteger queuedRuns = new AtomicInteger();
+
+        // rejects the first task, after a second task was queued
+        // while the first one held the permit
+        Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable task) {
+                if (executed.getAndIncrement() == 0) {
+                    Assertions.assertTrue(bulkhead.submit(queuedRuns::incrementAndGet, this));
+                    Assertions.assertEquals(1, bulkhead.getQueuedCount());
+                    throw new RejectedExecutionException("saturated");
+                }
+
+                task.run();
+            }
+        };
+
+        Assertions.assertThrows(RejectedExecutionException.class, () -> bulkhead.submit(() -> { }, executor));
+        Assertions.assertEquals(1, queuedRuns.get());
+        Assertions.assertEquals(0, bulkhead.getActiveCount());
+        Assertions.assertEquals(0, bulkhead.getQueuedCount());
+    }
+
+    @Test
+    void test_SaturatedCallsFail() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        LocalNetwork network = new LocalNetwork("bulkhead-test");
+        LocalProvider providerA = new LocalProvider("a", network);
+        LocalProvider providerB = new LocalProvider("b", network);
+        RPCManager rpcA = new RPCManager(providerA).setCallExecutor(executor);
+        RPCManager rpcB = new RPCManager(providerB);
+
+        CountDownLatch release = new CountDownLatch(1);
+        rpcA.register(new API() {
+            @Override
+            public String slow(String s) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ignored) { }
+                return s;
+            }
+        });
+
+        try {
+            API remoteAPI = rpcB.bindRemote(providerB.channel("a"), API.class);
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++)
+                futures.add(remoteAPI.slowAsync("call" + i));
+
+            // one call runs, one is queued and the rest fail immediately
+            Assertions.assertFalse(futures.get(0).isDone());
+            Assertions.assertFalse(futures.get(1).isDone());
+            for (int i = 2; i < 4; i++) {
+                CompletableFuture<String> future = futures.get(i);
+                Assertions.assertTrue(future.isCompletedExceptionally());
+                future.handle((v, e) -> {
+                    Assertions.assertTrue(e instanceof RemoteException);
+                    return null;
+                });
+            }
+
+            release.countDown();
+            Assertions.assertEquals("call0", futures.get(0).get(5, TimeUnit.SECONDS));
+            Assertions.assertEquals("call1", futures.get(1).get(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+}
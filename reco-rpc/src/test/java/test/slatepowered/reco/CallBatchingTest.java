@@ -0,0 +1,172 @@
+package test.slatepowered.reco;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import slatepowered.reco.Channel;
+import slatepowered.reco.ChannelListener;
+import slatepowered.reco.Message;
+import slatepowered.reco.local.LocalNetwork;
+import slatepowered.reco.local.LocalProvider;
+import slatepowered.reco.rpc.RPCManager;
+import slatepowered.reco.rpc.RemoteAPI;
+import slatepowered.reco.rpc.RemoteException;
+import slatepowered.reco.rpc.function.Allow;
+import slatepowered.reco.rpc.function.MCallBatch;
+import slatepowered.reco.rpc.function.MCallBatchResponse;
+import slatepowered.reco.rpc.function.MCallRemote;
+import slatepowered.reco.rpc.function.MCallResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CallBatchingTest {
+
+    /**
+     * The test API.
+     */
+    public interface API extends RemoteAPI {
+        @Allow
+        int square(int x);
+
+        default CompletableFuture<Integer> squareAsync(int x) {
+            return null;
+        }
+    }
+
+    @Test
+    void test_BatchedCalls() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        LocalNetwork network = new LocalNetwork("batch-test");
+        LocalProvider providerA = new LocalProvider("a", network);
+        LocalProvider providerB = new LocalProvider("b", network);
+        RPCManager rpcA = new RPCManager(providerA).setCallExecutor(executor);
+        RPCManager rpcB = new RPCManager(providerB).setCallBatching(16, 50_000);
+
+        rpcA.register(new API() {
+            @Override
+            public int square(int x) {
+                if (x < 0)
+                    throw new IllegalArgumentException("negative");
+                return x * x;
+            }
+        });
+
+        AtomicInteger batches = new AtomicInteger();
+        AtomicInteger plainCalls = new AtomicInteger();
+        AtomicInteger batchResponses = new AtomicInteger();
+        AtomicInteger plainResponses = new AtomicInteger();
+        providerA.listen(MCallBatch.NAME).on().then(message -> batches.incrementAndGet());
+        providerA.listen(MCallRemote.NAME).on().then(message -> plainCalls.incrementAndGet());
+        providerB.listen(MCallBatchResponse.NAME).on().then(message -> batchResponses.incrementAndGet());
+        providerB.listen(MCallResponse.NAME).on().then(message -> plainResponses.incrementAndGet());
+
+        try {
+            API remoteAPI = rpcB.bindRemote(providerB.channel("a"), API.class);
+            List<CompletableFuture<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 64; i++)
+                futures.add(remoteAPI.squareAsync(i));
+            for (int i = 0; i < 64; i++)
+                Assertions.assertEquals(i * i, futures.get(i).get(5, TimeUnit.SECONDS));
+
+            // one message and response per 16 calls
+            Assertions.assertEquals(4, batches.get());
+            Assertions.assertEquals(4, batchResponses.get());
+            Assertions.assertEquals(0, plainCalls.get());
+            Assertions.assertEquals(0, plainResponses.get());
+
+            // partial batches are sent after the window
+            CompletableFuture<Integer> a = remoteAPI.squareAsync(3);
+            CompletableFuture<Integer> b = remoteAPI.squareAsync(-1);
+            Assertions.assertEquals(9, a.get(5, TimeUnit.SECONDS));
+            ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> b.get(5, TimeUnit.SECONDS));
+            Assertions.assertTrue(e.getCause() instanceof RemoteException);
+            Assertions.assertEquals(5, batches.get());
+
+            // single calls are sent as is, the counting listener
+            // may run after the response was received
+            Assertions.assertEquals(16, remoteAPI.square(4));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (plainCalls.get() < 1 && System.currentTimeMillis() < deadline)
+                Thread.sleep(1);
+            Assertions.assertEquals(1, plainCalls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void test_FailedBatchesFailCalls() throws Exception {
+        LocalProvider provider = new LocalProvider("batch-failure-test");
+        RPCManager rpc = new RPCManager(provider).setCallBatching(4, 1000);
+
+        // a channel which can not send
+        Channel broken = new Channel() {
+            @Override
+            public String remote() {
+                return "broken";
+            }
+
+            @Override
+            public void send(Message<?> message) {
+                throw new IllegalStateException("connection lost");
+            }
+
+            @Override
+            public void publish(Message<?> message) {
+                send(message);
+            }
+
+            @Override
+            public ChannelListener listen() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public ChannelListener listen(String name) {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        API remoteAPI = rpc.bindRemote(broken, API.class);
+
+        // both full batches and batches sent after the window fail their calls
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++)
+            futures.add(remoteAPI.squareAsync(i));
+        for (CompletableFuture<Integer> future : futures) {
+            ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+            Assertions.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        Assertions.assertEquals(0, rpc.getOutgoingCallCount());
+    }
+
+    @Test
+    void test_WindowFlushNotOnTimerThread() throws Exception {
+        LocalNetwork network = new LocalNetwork("batch-thread-test");
+        LocalProvider providerA = new LocalProvider("a", network);
+        LocalProvider providerB = new LocalProvider("b", network);
+        RPCManager rpcA = new RPCManager(providerA);
+        RPCManager rpcB = new RPCManager(providerB).setCallBatching(16, 1000);
+
+        CompletableFuture<String> handlerThread = new CompletableFuture<>();
+        rpcA.register(new API() {
+            @Override
+            public int square(int x) {
+                handlerThread.complete(Thread.currentThread().getName());
+                return x * x;
+            }
+        });
+
+        // the handler runs inline on the thread sending the batch
+        API remoteAPI = rpcB.bindRemote(providerB.channel("a"), API.class);
+        Assertions.assertEquals(4, remoteAPI.squareAsync(2).get(5, TimeUnit.SECONDS));
+        Assertions.assertNotEquals("CallBatcher-Window", handlerThread.get(5, TimeUnit.SECONDS));
+    }
+
+}
@@ -0,0 +1,83 @@
+package test.slatepowered.reco;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import slatepowered.reco.rpc.function.CallExchange;
+import slatepowered.reco.rpc.function.CallExchangeTable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class CallExchangeTableTest {
+
+    @Test
+    void test_PutGetRemove() {
+        CallExchangeTable table = new CallExchangeTable(16);
+        CallExchange a = new CallExchange((7L << 32) | 1, null);
+        CallExchange b = new CallExchange((7L << 32) | 17, null); // same slot as a
+
+        table.put(a);
+        table.put(b);
+        Assertions.assertSame(a, table.get(a.getCallId()));
+        Assertions.assertSame(b, table.get(b.getCallId()));
+        Assertions.assertEquals(2, table.size());
+
+        Assertions.assertSame(a, table.remove(a.getCallId()));
+        Assertions.assertNull(table.remove(a.getCallId()));
+        Assertions.assertSame(b, table.get(b.getCallId()));
+        Assertions.assertFalse(table.remove(a));
+        Assertions.assertTrue(table.remove(b));
+        Assertions.assertEquals(0, table.size());
+    }
+
+    @Test
+    void test_Overflow() {
+        // more in-flight exchanges than slots
+        CallExchangeTable table = new CallExchangeTable(16);
+        List<CallExchange> exchanges = new ArrayList<>();
+        for (long i = 1; i <= 100; i++) {
+            CallExchange exchange = new CallExchange(i, null);
+            exchanges.add(exchange);
+            table.put(exchange);
+        }
+
+        Assertions.assertEquals(100, table.size());
+        for (CallExchange exchange : exchanges)
+            Assertions.assertSame(exchange, table.remove(exchange.getCallId()));
+        Assertions.assertEquals(0, table.size());
+    }
+
+    @Test
+    void test_Concurrent() throws Exception {
+        CallExchangeTable table = new CallExchangeTable(1024);
+        AtomicLong sequence = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> errors = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 50_000; i++) {
+                        CallExchange exchange = new CallExchange(sequence.incrementAndGet(), null);
+                        table.put(exchange);
+                        Assertions.assertSame(exchange, table.get(exchange.getCallId()));
+                        Assertions.assertSame(exchange, table.remove(exchange.getCallId()));
+                    }
+                } catch (Throwable e) {
+                    synchronized (errors) {
+                        errors.add(e);
+                    }
+                }
+            });
+
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (Thread thread : threads)
+            thread.join();
+        Assertions.assertEquals(0, errors.size(), () -> errors.get(0).toString());
+        Assertions.assertEquals(0, table.size());
+    }
+
+}
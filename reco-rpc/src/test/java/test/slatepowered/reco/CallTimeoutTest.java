@@ -0,0 +1,83 @@
+package test.slatepowered.reco;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import slatepowered.reco.local.LocalNetwork;
+import slatepowered.reco.local.LocalProvider;
+import slatepowered.reco.rpc.CallTimeoutException;
+import slatepowered.reco.rpc.RPCManager;
+import slatepowered.reco.rpc.RemoteAPI;
+import slatepowered.reco.rpc.function.Allow;
+import slatepowered.reco.rpc.function.HashedWheelTimer;
+import slatepowered.reco.rpc.function.RemoteFunction;
+import slatepowered.reco.rpc.function.Timeout;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CallTimeoutTest {
+
+    /**
+     * The test API.
+     */
+    public interface API extends RemoteAPI {
+        @Allow
+        @Timeout(100)
+        String ping(String s);
+
+        default CompletableFuture<String> pingAsync(String s) {
+            return null;
+        }
+    }
+
+    @Test
+    void test_WheelTimer() throws Exception {
+        HashedWheelTimer timer = new HashedWheelTimer(1, TimeUnit.MILLISECONDS, 8);
+        try {
+            // expires across multiple rotations of the wheel
+            CountDownLatch latch = new CountDownLatch(100);
+            AtomicInteger cancelledRuns = new AtomicInteger();
+            for (int i = 0; i < 100; i++) {
+                timer.schedule(latch::countDown, i % 30, TimeUnit.MILLISECONDS);
+                timer.schedule(cancelledRuns::incrementAndGet, 20, TimeUnit.MILLISECONDS).cancel();
+            }
+
+            Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+            Thread.sleep(50);
+            Assertions.assertEquals(0, cancelledRuns.get());
+        } finally {
+            timer.stop();
+        }
+    }
+
+    @Test
+    void test_CallsTimeOut() throws Exception {
+        LocalNetwork network = new LocalNetwork("timeout-test");
+        LocalProvider provider = new LocalProvider("a", network);
+        RPCManager rpc = new RPCManager(provider);
+
+        // calls to a dead node never get a response
+        API remoteAPI = rpc.bindRemote(provider.channel("dead"), API.class);
+        CompletionException e = Assertions.assertThrows(CompletionException.class, () -> remoteAPI.ping("hello"));
+        Assertions.assertTrue(e.getCause() instanceof CallTimeoutException);
+
+        ExecutionException e2 = Assertions.assertThrows(ExecutionException.class,
+                () -> remoteAPI.pingAsync("hello").get(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(e2.getCause() instanceof CallTimeoutException);
+        Assertions.assertEquals(0, rpc.getOutgoingCallCount());
+
+        // per call timeouts override the function timeout
+        RemoteFunction function = rpc.compileInterface(API.class).getMethodMap()
+                .get(API.class.getMethod("ping", String.class)).getFunction();
+        Assertions.assertEquals(100, function.getTimeoutMillis());
+        CompletableFuture<String> future = rpc.callRemote(function, provider.channel("dead"), 0, TimeUnit.MILLISECONDS, new Object[] { "hello" });
+        Thread.sleep(300);
+        Assertions.assertFalse(future.isDone());
+        Assertions.assertEquals(1, rpc.getOutgoingCallCount());
+    }
+
+}
@@ -0,0 +1,89 @@
+package test.slatepowered.reco;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import slatepowered.reco.local.LocalNetwork;
+import slatepowered.reco.local.LocalProvider;
+import slatepowered.reco.rpc.RPCManager;
+import slatepowered.reco.rpc.RemoteAPI;
+import slatepowered.reco.rpc.function.Allow;
+import slatepowered.reco.rpc.function.Coalesce;
+import slatepowered.reco.rpc.function.MCallRemote;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CoalesceTest {
+
+    /**
+     * The test API.
+     */
+    public interface API extends RemoteAPI {
+        @Allow
+        @Coalesce
+        String load(int key);
+
+        default CompletableFuture<String> loadAsync(int key) {
+            return null;
+        }
+    }
+
+    @Test
+    void test_CoalescedCalls() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        LocalNetwork network = new LocalNetwork("coalesce-test");
+        LocalProvider providerA = new LocalProvider("a", network);
+        LocalProvider providerB = new LocalProvider("b", network);
+        RPCManager rpcA = new RPCManager(providerA).setCallExecutor(executor);
+        RPCManager rpcB = new RPCManager(providerB);
+
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        rpcA.register(new API() {
+            @Override
+            public String load(int key) {
+                loads.incrementAndGet();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                return "value " + key;
+            }
+        });
+
+        AtomicInteger calls = new AtomicInteger();
+        providerA.listen(MCallRemote.NAME).on().then(message -> calls.incrementAndGet());
+
+        try {
+            API remoteAPI = rpcB.bindRemote(providerB.channel("a"), API.class);
+
+            // identical calls share one message
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 32; i++)
+                futures.add(remoteAPI.loadAsync(1));
+            CompletableFuture<String> other = remoteAPI.loadAsync(2);
+            Assertions.assertEquals(2, calls.get());
+
+            release.countDown();
+            for (CompletableFuture<String> future : futures)
+                Assertions.assertEquals("value 1", future.get(5, TimeUnit.SECONDS));
+            Assertions.assertEquals("value 2", other.get(5, TimeUnit.SECONDS));
+            Assertions.assertEquals(2, loads.get());
+
+            // completed calls are not joined
+            Assertions.assertEquals("value 1", remoteAPI.load(1));
+            Assertions.assertEquals(3, calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
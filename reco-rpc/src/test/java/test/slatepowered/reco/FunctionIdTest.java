@@ -0,0 +1,114 @@
+package test.slatepowered.reco;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import slatepowered.reco.local.LocalNetwork;
+import slatepowered.reco.local.LocalProvider;
+import slatepowered.reco.rpc.RPCManager;
+import slatepowered.reco.rpc.RemoteAPI;
+import slatepowered.reco.rpc.RemoteException;
+import slatepowered.reco.rpc.function.Allow;
+import slatepowered.reco.rpc.function.FunctionTable;
+import slatepowered.reco.rpc.function.MCallRemote;
+import slatepowered.reco.rpc.function.RemoteFunction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FunctionIdTest {
+
+    /**
+     * The test API.
+     */
+    public interface API extends RemoteAPI {
+        @Allow
+        String greet(String name);
+    }
+
+    @Test
+    void test_StableIds() {
+        // FNV-1a of "a"
+        Assertions.assertEquals(0xE40C292C, RemoteFunction.computeId("a"));
+        Assertions.assertEquals(RemoteFunction.computeId("x.y[int"), new RemoteFunction("x.y[int", new Class<?>[0], void.class).getId());
+    }
+
+    @Test
+    void test_TableCollisions() {
+        // "f6059" and "f264602" share an ID
+        Assertions.assertEquals(RemoteFunction.computeId("f6059"), RemoteFunction.computeId("f264602"));
+
+        FunctionTable table = new FunctionTable();
+        RemoteFunction a = new RemoteFunction("f6059", new Class<?>[0], void.class);
+        RemoteFunction b = new RemoteFunction("f264602", new Class<?>[0], void.class);
+        Assertions.assertTrue(table.put(a));
+        Assertions.assertSame(a, table.get(a.getId()));
+        Assertions.assertFalse(table.put(b));
+        Assertions.assertTrue(table.isAmbiguous(a.getId()));
+        Assertions.assertNull(table.get(a.getId()));
+
+        // grows past the initial capacity
+        for (int i = 0; i < 100; i++)
+            Assertions.assertTrue(table.put(new RemoteFunction("g" + i, new Class<?>[0], void.class)));
+        for (int i = 0; i < 100; i++)
+            Assertions.assertEquals("g" + i, table.get(RemoteFunction.computeId("g" + i)).getName());
+        Assertions.assertEquals(101, table.size());
+    }
+
+    @Test
+    void test_CallsById() {
+        LocalNetwork network = new LocalNetwork("function-id-test");
+        LocalProvider providerA = new LocalProvider("a", network);
+        LocalProvider providerB = new LocalProvider("b", network);
+        RPCManager rpcA = new RPCManager(providerA);
+        RPCManager rpcB = new RPCManager(providerB);
+
+        rpcA.register(new API() {
+            @Override
+            public String greet(String name) {
+                return "Hello " + name;
+            }
+        });
+
+        List<MCallRemote> calls = new ArrayList<>();
+        providerA.listen(MCallRemote.NAME).on().then(message -> calls.add((MCallRemote) message.payload()));
+
+        API remoteAPI = rpcB.bindRemote(providerB.channel("a"), API.class);
+        Assertions.assertEquals("Hello reco", remoteAPI.greet("reco"));
+
+        // only the ID is sent
+        Assertions.assertEquals(1, calls.size());
+        Assertions.assertNull(calls.get(0).getName());
+        int functionId = calls.get(0).getFunctionId();
+        Assertions.assertNotNull(rpcA.getFunction(functionId));
+        Assertions.assertEquals(rpcB.getFunction(functionId).getName(), rpcA.getFunction(functionId).getName());
+    }
+
+    @Test
+    void test_CollidingIdNotInvoked() throws Exception {
+        LocalNetwork network = new LocalNetwork("function-collision-test");
+        LocalProvider providerA = new LocalProvider("a", network);
+        LocalProvider providerB = new LocalProvider("b", network);
+        RPCManager rpcA = new RPCManager(providerA);
+        RPCManager rpcB = new RPCManager(providerB);
+
+        // node A only has a function sharing the ID of the called one
+        AtomicInteger invoked = new AtomicInteger();
+        rpcA.register(new RemoteFunction("f6059", new Class<?>[0], String.class)
+                .setHandler((manager, callInfo, args) -> "f6059 " + invoked.incrementAndGet()));
+        RemoteFunction called = new RemoteFunction("f264602", new Class<?>[0], String.class);
+        rpcB.register(called);
+        Assertions.assertEquals(rpcA.getFunction("f6059").getId(), called.getId());
+        Assertions.assertNotEquals(rpcA.getFunction("f6059").getChecksum(), called.getChecksum());
+
+        CompletableFuture<Object> response = rpcB.callExchange(called, providerB.channel("a")).getResponseFuture();
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> response.get(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(e.getCause() instanceof RemoteException);
+        Assertions.assertTrue(e.getCause().getMessage().contains("unknown function"), e.getCause().getMessage());
+        Assertions.assertEquals(0, invoked.get());
+    }
+
+}
@@ -0,0 +1,98 @@
+package test.slatepowered.reco;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import slatepowered.reco.local.LocalNetwork;
+import slatepowered.reco.local.LocalProvider;
+import slatepowered.reco.rpc.Local;
+import slatepowered.reco.rpc.RPCManager;
+import slatepowered.reco.rpc.RemoteAPI;
+import slatepowered.reco.rpc.function.Allow;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class GeneratedProxyTest {
+
+    /**
+     * The test API.
+     */
+    public interface API extends RemoteAPI {
+        @Allow
+        long add(int a, long b);
+
+        @Allow
+        double scale(double d, float f);
+
+        @Allow
+        void hit();
+
+        @Allow
+        String[] split(String s, char c);
+
+        default CompletableFuture<Long> addAsync(int a, long b) {
+            return null;
+        }
+
+        @Local
+        default long addTwice(int a, long b) {
+            return add(a, add(a, b));
+        }
+    }
+
+    @Test
+    void test_GeneratedProxy() {
+        LocalNetwork network = new LocalNetwork("proxy-test");
+        LocalProvider providerA = new LocalProvider("a", network);
+        LocalProvider providerB = new LocalProvider("b", network);
+        RPCManager rpcA = new RPCManager(providerA);
+        RPCManager rpcB = new RPCManager(providerB);
+
+        AtomicInteger hits = new AtomicInteger();
+        rpcA.register(new API() {
+            @Override public long add(int a, long b) { return a + b; }
+            @Override public double scale(double d, float f) { return d * f; }
+            @Override public void hit() { hits.incrementAndGet(); }
+            @Override public String[] split(String s, char c) { return s.split(String.valueOf(c)); }
+        });
+
+        API remoteAPI = rpcB.bindRemote(providerB.channel("a"), API.class);
+        Assertions.assertFalse(Proxy.isProxyClass(remoteAPI.getClass()));
+
+        Assertions.assertEquals(5L, remoteAPI.add(2, 3L));
+        Assertions.assertEquals(3.0, remoteAPI.scale(1.5, 2f));
+        remoteAPI.hit();
+        Assertions.assertEquals(1, hits.get());
+        Assertions.assertArrayEquals(new String[] { "a", "b" }, remoteAPI.split("a,b", ','));
+        Assertions.assertEquals(7L, remoteAPI.addAsync(3, 4L).join());
+
+        // default methods are called directly
+        Assertions.assertEquals(5L, remoteAPI.addTwice(1, 3L));
+
+        // object methods are not remote
+        Assertions.assertEquals(remoteAPI, remoteAPI);
+        Assertions.assertNotNull(remoteAPI.toString());
+    }
+
+    @Test
+    void test_ReflectionFallback() {
+        LocalNetwork network = new LocalNetwork("proxy-test");
+        LocalProvider providerA = new LocalProvider("a", network);
+        LocalProvider providerB = new LocalProvider("b", network);
+        RPCManager rpcA = new RPCManager(providerA);
+        RPCManager rpcB = new RPCManager(providerB).setGenerateProxies(false);
+
+        rpcA.register(new API() {
+            @Override public long add(int a, long b) { return a + b; }
+            @Override public double scale(double d, float f) { return d * f; }
+            @Override public void hit() { }
+            @Override public String[] split(String s, char c) { return s.split(String.valueOf(c)); }
+        });
+
+        API remoteAPI = rpcB.bindRemote(providerB.channel("a"), API.class);
+        Assertions.assertTrue(Proxy.isProxyClass(remoteAPI.getClass()));
+        Assertions.assertEquals(5L, remoteAPI.add(2, 3L));
+    }
+
+}
@@ -0,0 +1,55 @@
+package test.slatepowered.reco;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import slatepowered.reco.local.LocalNetwork;
+import slatepowered.reco.local.LocalProvider;
+import slatepowered.reco.rpc.RPCManager;
+import slatepowered.reco.rpc.RemoteAPI;
+import slatepowered.reco.rpc.RemoteException;
+import slatepowered.reco.rpc.function.Allow;
+
+import java.util.concurrent.CompletionException;
+
+public class HandlerInvokerTest {
+
+    /**
+     * The test API.
+     */
+    public interface API extends RemoteAPI {
+        @Allow
+        int count();
+
+        @Allow
+        String join(String a, int b, boolean c);
+
+        @Allow
+        void fail(String message);
+    }
+
+    @Test
+    void test_Invokers() {
+        LocalNetwork network = new LocalNetwork("invoker-test");
+        LocalProvider providerA = new LocalProvider("a", network);
+        LocalProvider providerB = new LocalProvider("b", network);
+        RPCManager rpcA = new RPCManager(providerA);
+        RPCManager rpcB = new RPCManager(providerB);
+
+        rpcA.register(new API() {
+            @Override public int count() { return 42; }
+            @Override public String join(String a, int b, boolean c) { return a + b + c; }
+            @Override public void fail(String message) { throw new IllegalStateException(message); }
+        });
+
+        API remoteAPI = rpcB.bindRemote(providerB.channel("a"), API.class);
+        Assertions.assertEquals(42, remoteAPI.count());
+        Assertions.assertEquals("x1true", remoteAPI.join("x", 1, true));
+
+        // the exception thrown by the handler is not wrapped
+        CompletionException e = Assertions.assertThrows(CompletionException.class, () -> remoteAPI.fail("boom"));
+        Assertions.assertTrue(e.getCause() instanceof RemoteException);
+        Assertions.assertTrue(e.getCause().getCause() instanceof IllegalStateException);
+        Assertions.assertEquals("boom", e.getCause().getCause().getMessage());
+    }
+
+}
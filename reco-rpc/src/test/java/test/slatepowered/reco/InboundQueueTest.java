@@ -0,0 +1,113 @@
+package test.slatepowered.reco;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import slatepowered.reco.ReceivedMessage;
+import slatepowered.reco.dispatch.DispatchStrategy;
+import slatepowered.reco.dispatch.InboundQueue;
+import slatepowered.reco.dispatch.OverflowPolicy;
+import slatepowered.reco.local.LocalNetwork;
+import slatepowered.reco.local.LocalProvider;
+import slatepowered.reco.rpc.RPCManager;
+import slatepowered.reco.rpc.RemoteAPI;
+import slatepowered.reco.rpc.RemoteException;
+import slatepowered.reco.rpc.function.Allow;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class InboundQueueTest {
+
+    /**
+     * The test API.
+     */
+    public interface SlowAPI extends RemoteAPI {
+        @Allow
+        String slow(String s);
+
+        default CompletableFuture<String> slowAsync(String s) {
+            return null;
+        }
+    }
+
+    @Test
+    void test_OverflowPolicies() {
+        InboundQueue dropOldest = new InboundQueue(2, OverflowPolicy.DROP_OLDEST);
+        dropOldest.offer(new ReceivedMessage<>("1"));
+        dropOldest.offer(new ReceivedMessage<>("2"));
+        Assertions.assertTrue(dropOldest.offer(new ReceivedMessage<>("3")));
+        Assertions.assertEquals("2", dropOldest.poll().getName());
+        Assertions.assertEquals(1, dropOldest.getDroppedCount());
+
+        InboundQueue dropNewest = new InboundQueue(1, OverflowPolicy.DROP_NEWEST);
+        dropNewest.offer(new ReceivedMessage<>("1"));
+        Assertions.assertFalse(dropNewest.offer(new ReceivedMessage<>("2")));
+        Assertions.assertEquals("1", dropNewest.poll().getName());
+        Assertions.assertEquals(1, dropNewest.getDroppedCount());
+    }
+
+    @Test
+    void test_RejectedCallsFail() throws Exception {
+        DispatchStrategy strategy = DispatchStrategy.sharedPool(1);
+        LocalNetwork network = new LocalNetwork("queue-test");
+        LocalProvider providerA = new LocalProvider("a", network);
+        LocalProvider providerB = new LocalProvider("b", network);
+        providerA.dispatchStrategy(strategy).inboundQueue(1, OverflowPolicy.REJECT);
+        RPCManager rpcA = new RPCManager(providerA);
+        RPCManager rpcB = new RPCManager(providerB);
+
+        CountDownLatch release = new CountDownLatch(1);
+        rpcA.register(new SlowAPI() {
+            @Override
+            public String slow(String s) {
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ignored) { }
+                return s;
+            }
+        });
+
+        try {
+            SlowAPI remoteAPI = rpcB.bindRemote(providerB.channel("a"), SlowAPI.class);
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 5; i++)
+                futures.add(remoteAPI.slowAsync("call" + i));
+
+            // one call is running and at most one is queued
+            int rejected = 0;
+            for (CompletableFuture<String> future : futures) {
+                try {
+                    future.get(50, TimeUnit.MILLISECONDS);
+                } catch (ExecutionException e) {
+                    Assertions.assertTrue(e.getCause() instanceof RemoteException);
+                    rejected++;
+                } catch (TimeoutException ignored) { }
+            }
+
+            Assertions.assertTrue(rejected >= 3, "Expected at least 3 rejected calls, got " + rejected);
+            Assertions.assertEquals(rejected, providerA.getInboundQueues().values().iterator().next().getRejectedCount());
+
+            // the accepted calls complete once released
+            release.countDown();
+            int completed = 0;
+            for (CompletableFuture<String> future : futures) {
+                if (!future.isCompletedExceptionally()) {
+                    future.get(5, TimeUnit.SECONDS);
+                    completed++;
+                }
+            }
+
+            Assertions.assertEquals(5, rejected + completed);
+            Assertions.assertEquals(0, providerA.getInboundQueueDepth());
+        } finally {
+            release.countDown();
+            strategy.close();
+        }
+    }
+
+}
@@ -0,0 +1,164 @@
+package test.slatepowered.reco;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import slatepowered.reco.ChannelGroup;
+import slatepowered.reco.local.LocalNetwork;
+import slatepowered.reco.local.LocalProvider;
+import slatepowered.reco.rpc.RPCManager;
+import slatepowered.reco.rpc.RemoteAPI;
+import slatepowered.reco.rpc.function.Allow;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LoadBalancingTest {
+
+    /**
+     * The test API.
+     */
+    public interface API extends RemoteAPI {
+        @Allow
+        String name();
+
+        default CompletableFuture<String> nameAsync() {
+            return null;
+        }
+    }
+
+    // registers a replica which takes the given time per call
+    static void replica(LocalNetwork network, String name, long delayMillis, AtomicInteger calls) {
+        new RPCManager(new LocalProvider(name, network)).register(new API() {
+            @Override
+            public String name() {
+                calls.incrementAndGet();
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                return name;
+            }
+        });
+    }
+
+    @Test
+    void test_BalancedCalls() throws Exception {
+        LocalNetwork network = new LocalNetwork("balance-test");
+        AtomicInteger fastCallsA = new AtomicInteger();
+        AtomicInteger fastCallsB = new AtomicInteger();
+        AtomicInteger slowCalls = new AtomicInteger();
+        replica(network, "a1", 0, fastCallsA);
+        replica(network, "a2", 0, fastCallsB);
+        replica(network, "a3", 20, slowCalls);
+
+        LocalProvider provider = new LocalProvider("b", network);
+        RPCManager rpc = new RPCManager(provider);
+        ChannelGroup group = new ChannelGroup("a", provider.channel("a1"), provider.channel("a2"), provider.channel("a3"));
+        API remoteAPI = rpc.bindRemote(group, API.class);
+
+        // warm up the replicas outside of the group, so the
+        // first latency samples are not skewed by class loading
+        for (ChannelGroup.Member member : group.getMembers())
+            rpc.bindRemote(member.getChannel(), API.class).name();
+        fastCallsA.set(0);
+        fastCallsB.set(0);
+        slowCalls.set(0);
+
+        for (int i = 0; i < 100; i++)
+            Assertions.assertTrue(remoteAPI.name().startsWith("a"));
+
+        // the slow replica is avoided once measured
+        Assertions.assertEquals(100, fastCallsA.get() + fastCallsB.get() + slowCalls.get());
+        Assertions.assertTrue(slowCalls.get() < 10, "slow replica received " + slowCalls.get() + " calls");
+        Assertions.assertTrue(fastCallsA.get() > 0 && fastCallsB.get() > 0);
+        assertIdle(group);
+    }
+
+    // asserts no member of the groups has an exchange in flight, the
+    // members are released by completion callbacks which may still
+    // be running when the caller observes the result
+    static void assertIdle(ChannelGroup... groups) throws InterruptedException {
+        for (ChannelGroup group : groups) {
+            for (ChannelGroup.Member member : group.getMembers()) {
+                long deadline = System.currentTimeMillis() + 1000;
+                while (member.getInFlight() != 0 && System.currentTimeMillis() < deadline)
+                    Thread.sleep(1);
+                Assertions.assertEquals(0, member.getInFlight(), member.toString());
+            }
+        }
+    }
+
+    @Test
+    void test_HungAndFailingReplicas() throws Exception {
+        LocalNetwork network = new LocalNetwork("balance-failure-test");
+        AtomicInteger fastCalls = new AtomicInteger();
+        AtomicInteger hungCalls = new AtomicInteger();
+        AtomicInteger failingCalls = new AtomicInteger();
+        replica(network, "a1", 0, fastCalls);
+        replica(network, "a2", 0, fastCalls);
+
+        // a new replica which never responds
+        ExecutorService executor = Executors.newCachedThreadPool();
+        CountDownLatch release = new CountDownLatch(1);
+        new RPCManager(new LocalProvider("a3", network)).setCallExecutor(executor).register(new API() {
+            @Override
+            public String name() {
+                hungCalls.incrementAndGet();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                return "a3";
+            }
+        });
+
+        // a replica which fails every call immediately
+        new RPCManager(new LocalProvider("a4", network)).register(new API() {
+            @Override
+            public String name() {
+                failingCalls.incrementAndGet();
+                throw new IllegalStateException("broken replica");
+            }
+        });
+
+        LocalProvider provider = new LocalProvider("b", network);
+        RPCManager rpc = new RPCManager(provider);
+        ChannelGroup hungGroup = new ChannelGroup("a", provider.channel("a1"), provider.channel("a2"), provider.channel("a3"));
+        ChannelGroup failingGroup = new ChannelGroup("a", provider.channel("a1"), provider.channel("a2"), provider.channel("a4"));
+        API hungAPI = rpc.bindRemote(hungGroup, API.class);
+        API failingAPI = rpc.bindRemote(failingGroup, API.class);
+
+        try {
+            // the hung replica is only probed once
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 100; i++)
+                futures.add(hungAPI.nameAsync());
+            Assertions.assertTrue(hungCalls.get() <= 1, "hung replica received " + hungCalls.get() + " calls");
+            Assertions.assertEquals(100, fastCalls.get() + hungCalls.get());
+
+            // the failing replica is avoided once measured
+            for (int i = 0; i < 100; i++)
+                futures.add(failingAPI.nameAsync().exceptionally(t -> null));
+            Assertions.assertTrue(failingCalls.get() < 5, "failing replica received " + failingCalls.get() + " calls");
+
+            release.countDown();
+            for (CompletableFuture<String> future : futures)
+                future.get(5, TimeUnit.SECONDS);
+            assertIdle(hungGroup, failingGroup);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+}
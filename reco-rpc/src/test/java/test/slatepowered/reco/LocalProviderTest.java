@@ -0,0 +1,105 @@
+package test.slatepowered.reco;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import slatepowered.reco.Message;
+import slatepowered.reco.local.LocalNetwork;
+import slatepowered.reco.local.LocalProvider;
+import slatepowered.reco.rpc.RPCManager;
+import slatepowered.reco.rpc.RemoteAPI;
+import slatepowered.reco.rpc.function.Allow;
+import slatepowered.reco.serializer.KryoSerializer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class LocalProviderTest {
+
+    /**
+     * The test API.
+     */
+    public interface API extends RemoteAPI {
+        @Allow
+        List<String> echo(List<String> list);
+
+        default CompletableFuture<List<String>> echoAsync(List<String> list) {
+            return null;
+        }
+    }
+
+    @Test
+    void test_LocalRPC() {
+        LocalNetwork network = new LocalNetwork("test");
+        LocalProvider providerA = new LocalProvider("a", network);
+        LocalProvider providerB = new LocalProvider("b", network);
+        RPCManager rpcA = new RPCManager(providerA);
+        RPCManager rpcB = new RPCManager(providerB);
+
+        rpcA.register(new API() {
+            @Override
+            public List<String> echo(List<String> list) {
+                return list;
+            }
+        });
+
+        List<String> list = new ArrayList<>();
+        list.add("Hello");
+
+        // payloads are shared by default
+        API remoteAPI = rpcB.bindRemote(providerB.channel("a"), API.class);
+        Assertions.assertSame(list, remoteAPI.echo(list));
+        Assertions.assertSame(list, remoteAPI.echoAsync(list).join());
+    }
+
+    @Test
+    void test_CopyOnSend() {
+        LocalNetwork network = new LocalNetwork("test");
+        LocalProvider providerA = new LocalProvider("a", network).copyOnSend(KryoSerializer.standard());
+        LocalProvider providerB = new LocalProvider("b", network).copyOnSend(KryoSerializer.standard());
+        RPCManager rpcA = new RPCManager(providerA);
+        RPCManager rpcB = new RPCManager(providerB);
+
+        rpcA.register(new API() {
+            @Override
+            public List<String> echo(List<String> list) {
+                return list;
+            }
+        });
+
+        List<String> list = new ArrayList<>();
+        list.add("Hello");
+
+        API remoteAPI = rpcB.bindRemote(providerB.channel("a"), API.class);
+        List<String> result = remoteAPI.echo(list);
+        Assertions.assertNotSame(list, result);
+        Assertions.assertEquals(list, result);
+    }
+
+    @Test
+    void test_PublishAndAux() {
+        LocalNetwork network = new LocalNetwork("test");
+        LocalProvider providerA = new LocalProvider("a", network);
+        LocalProvider providerB = new LocalProvider("b", network);
+        LocalProvider providerC = new LocalProvider("c", network);
+
+        List<String> received = new ArrayList<>();
+        providerB.listen("msg").<String>on().then(message -> received.add("b:" + message.getDomain() + ":" + message.payload()));
+        providerC.listen("msg").<String>on().then(message -> received.add("c:" + message.getDomain() + ":" + message.payload()));
+
+        // publish reaches every other node
+        providerA.publish(new Message<>("msg", "x"));
+        Assertions.assertEquals(2, received.size());
+
+        // aux only reaches nodes listening on the aux channel
+        received.clear();
+        providerC.auxChannel("group");
+        providerA.auxChannel("group").send(new Message<>("msg", "y"));
+        Assertions.assertEquals(1, received.size());
+        Assertions.assertEquals("c:AUX:y", received.get(0));
+
+        providerC.close();
+        Assertions.assertNull(network.getProvider("c"));
+    }
+
+}
@@ -0,0 +1,78 @@
+package test.slatepowered.reco;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import slatepowered.reco.local.LocalNetwork;
+import slatepowered.reco.local.LocalProvider;
+import slatepowered.reco.rpc.RPCManager;
+import slatepowered.reco.rpc.RemoteAPI;
+import slatepowered.reco.rpc.function.Allow;
+import slatepowered.reco.rpc.function.MCallResponse;
+import slatepowered.reco.rpc.function.OneWay;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class OneWayTest {
+
+    /**
+     * The test API.
+     */
+    public interface API extends RemoteAPI {
+        @Allow
+        @OneWay
+        void notify(String event);
+
+        @Allow
+        @OneWay
+        void fail(String event);
+    }
+
+    /**
+     * An invalid API.
+     */
+    public interface InvalidAPI extends RemoteAPI {
+        @OneWay
+        String get();
+    }
+
+    @Test
+    void test_OneWayCalls() {
+        LocalNetwork network = new LocalNetwork("one-way-test");
+        LocalProvider providerA = new LocalProvider("a", network);
+        LocalProvider providerB = new LocalProvider("b", network);
+        RPCManager rpcA = new RPCManager(providerA);
+        RPCManager rpcB = new RPCManager(providerB);
+
+        List<String> events = new ArrayList<>();
+        rpcA.register(new API() {
+            @Override public void notify(String event) { events.add(event); }
+            @Override public void fail(String event) { throw new IllegalStateException(event); }
+        });
+
+        AtomicInteger responses = new AtomicInteger();
+        providerB.listen(MCallResponse.NAME).on().then(message -> responses.incrementAndGet());
+
+        API remoteAPI = rpcB.bindRemote(providerB.channel("a"), API.class);
+        remoteAPI.notify("a");
+        remoteAPI.notify("b");
+        remoteAPI.fail("c");
+
+        // no exchanges or responses
+        Assertions.assertEquals(2, events.size());
+        Assertions.assertEquals(0, rpcB.getOutgoingCallCount());
+        Assertions.assertEquals(0, responses.get());
+
+        // calls to dead nodes return immediately
+        rpcB.bindRemote(providerB.channel("dead"), API.class).notify("d");
+        Assertions.assertEquals(0, rpcB.getOutgoingCallCount());
+    }
+
+    @Test
+    void test_InvalidOneWay() {
+        RPCManager rpc = new RPCManager(new LocalProvider("a", new LocalNetwork("one-way-test")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> rpc.compileInterface(InvalidAPI.class));
+    }
+
+}
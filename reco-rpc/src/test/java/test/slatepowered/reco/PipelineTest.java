@@ -0,0 +1,99 @@
+package test.slatepowered.reco;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import slatepowered.reco.local.LocalNetwork;
+import slatepowered.reco.local.LocalProvider;
+import slatepowered.reco.rpc.CallPipeline;
+import slatepowered.reco.rpc.RPCManager;
+import slatepowered.reco.rpc.RemoteAPI;
+import slatepowered.reco.rpc.RemoteException;
+import slatepowered.reco.rpc.function.Allow;
+import slatepowered.reco.rpc.function.CompiledSyncMethod;
+import slatepowered.reco.rpc.function.MCallBatch;
+import slatepowered.reco.rpc.function.MCallBatchResponse;
+import slatepowered.reco.rpc.function.MCallRemote;
+import slatepowered.reco.rpc.function.RemoteFunction;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PipelineTest {
+
+    /**
+     * The test API.
+     */
+    public interface API extends RemoteAPI {
+        @Allow
+        int userId(String name);
+
+        @Allow
+        String orders(int userId);
+    }
+
+    // gets the client side function for the given method
+    static RemoteFunction function(RPCManager manager, String name, Class<?>... argTypes) throws Exception {
+        Method method = API.class.getMethod(name, argTypes);
+        return ((CompiledSyncMethod) manager.compileMethod(manager.compileInterface(API.class), method)).getFunction();
+    }
+
+    @Test
+    void test_PipelinedCalls() throws Exception {
+        LocalNetwork network = new LocalNetwork("pipeline-test");
+        LocalProvider providerA = new LocalProvider("a", network);
+        LocalProvider providerB = new LocalProvider("b", network);
+        RPCManager rpcA = new RPCManager(providerA);
+        RPCManager rpcB = new RPCManager(providerB);
+
+        rpcA.register(new API() {
+            @Override
+            public int userId(String name) {
+                if (name.isEmpty())
+                    throw new IllegalArgumentException("empty name");
+                return name.length();
+            }
+
+            @Override
+            public String orders(int userId) {
+                return "orders of " + userId;
+            }
+        });
+
+        AtomicInteger batches = new AtomicInteger();
+        AtomicInteger plainCalls = new AtomicInteger();
+        AtomicInteger batchResponses = new AtomicInteger();
+        providerA.listen(MCallBatch.NAME).on().then(message -> batches.incrementAndGet());
+        providerA.listen(MCallRemote.NAME).on().then(message -> plainCalls.incrementAndGet());
+        providerB.listen(MCallBatchResponse.NAME).on().then(message -> batchResponses.incrementAndGet());
+
+        RemoteFunction userId = function(rpcB, "userId", String.class);
+        RemoteFunction orders = function(rpcB, "orders", int.class);
+
+        // the chain is sent and answered at once
+        CallPipeline pipeline = rpcB.pipeline(providerB.channel("a"));
+        CallPipeline.Step user = pipeline.call(userId, "alice");
+        CallPipeline.Step userOrders = pipeline.call(orders, user.result());
+        pipeline.send();
+        Assertions.assertEquals("orders of 5", userOrders.<String>future().get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(5, (int) user.<Integer>future().get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, batches.get());
+        Assertions.assertEquals(1, batchResponses.get());
+        Assertions.assertEquals(0, plainCalls.get());
+
+        // failures propagate to dependent calls
+        CallPipeline failing = rpcB.pipeline(providerB.channel("a"));
+        CallPipeline.Step failedUser = failing.call(userId, "");
+        CallPipeline.Step failedOrders = failing.call(orders, failedUser.result());
+        failing.send();
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> failedOrders.future().get(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(e.getCause() instanceof RemoteException);
+        Assertions.assertThrows(ExecutionException.class, () -> failedUser.future().get(5, TimeUnit.SECONDS));
+
+        // only earlier calls can be referenced
+        CallPipeline invalid = rpcB.pipeline(providerB.channel("a"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> invalid.call(orders, user.result()));
+    }
+
+}
@@ -0,0 +1,136 @@
+package test.slatepowered.reco;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import slatepowered.reco.Channel;
+import slatepowered.reco.local.LocalNetwork;
+import slatepowered.reco.local.LocalProvider;
+import slatepowered.reco.rpc.RPCManager;
+import slatepowered.reco.rpc.RemoteAPI;
+import slatepowered.reco.rpc.function.Allow;
+import slatepowered.reco.rpc.function.Cached;
+import slatepowered.reco.rpc.function.ResultCache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ResultCacheTest {
+
+    /**
+     * The test API.
+     */
+    public interface API extends RemoteAPI {
+        @Allow
+        @Cached(ttl = 1, unit = TimeUnit.MINUTES)
+        String lookup(int key);
+
+        default CompletableFuture<String> lookupAsync(int key) {
+            return null;
+        }
+
+        @Allow
+        @Cached(ttl = 50)
+        int shortLived(int key);
+    }
+
+    @Test
+    void test_CachedCalls() throws Exception {
+        LocalNetwork network = new LocalNetwork("cache-test");
+        LocalProvider providerA = new LocalProvider("a", network);
+        LocalProvider providerB = new LocalProvider("b", network);
+        RPCManager rpcA = new RPCManager(providerA);
+        RPCManager rpcB = new RPCManager(providerB);
+
+        AtomicInteger lookups = new AtomicInteger();
+        AtomicInteger shortLookups = new AtomicInteger();
+        rpcA.register(new API() {
+            @Override
+            public String lookup(int key) {
+                lookups.incrementAndGet();
+                return "value " + key;
+            }
+
+            @Override
+            public int shortLived(int key) {
+                return shortLookups.incrementAndGet();
+            }
+        });
+
+        API remoteAPI = rpcB.bindRemote(providerB.channel("a"), API.class);
+
+        // repeated calls are served from the cache
+        Assertions.assertEquals("value 1", remoteAPI.lookup(1));
+        Assertions.assertEquals("value 1", remoteAPI.lookup(1));
+        Assertions.assertEquals("value 1", remoteAPI.lookupAsync(1).get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(1, lookups.get());
+        Assertions.assertEquals("value 2", remoteAPI.lookup(2));
+        Assertions.assertEquals(2, lookups.get());
+
+        // the remote invalidates single and all results
+        rpcA.invalidateCache(API.class, "lookup", 1);
+        Assertions.assertEquals("value 1", remoteAPI.lookup(1));
+        Assertions.assertEquals("value 2", remoteAPI.lookup(2));
+        Assertions.assertEquals(3, lookups.get());
+        rpcA.invalidateCache(API.class, "lookup");
+        Assertions.assertEquals("value 2", remoteAPI.lookup(2));
+        Assertions.assertEquals(4, lookups.get());
+
+        // results expire after the time to live
+        Assertions.assertEquals(1, remoteAPI.shortLived(1));
+        Assertions.assertEquals(1, remoteAPI.shortLived(1));
+        Thread.sleep(100);
+        Assertions.assertEquals(2, remoteAPI.shortLived(1));
+    }
+
+    @Test
+    void test_Eviction() {
+        LocalProvider provider = new LocalProvider("cache-eviction-test");
+        Channel channel = provider.channel("a");
+        ResultCache cache = new ResultCache(4, 0);
+        for (int i = 0; i < 4; i++)
+            cache.put(channel, new Object[] { i }, i, cache.generation());
+
+        // the entries read recently survive
+        for (int i = 1; i < 4; i++)
+            Assertions.assertEquals(i, cache.get(channel, new Object[] { i }));
+        cache.put(channel, new Object[] { 4 }, 4, cache.generation());
+        Assertions.assertEquals(4, cache.size());
+        Assertions.assertSame(ResultCache.MISS, cache.get(channel, new Object[] { 0 }));
+
+        // results of calls started before an invalidation are dropped
+        long generation = cache.generation();
+        cache.invalidate(new Object[] { 1 });
+        cache.put(channel, new Object[] { 1 }, 1, generation);
+        Assertions.assertSame(ResultCache.MISS, cache.get(channel, new Object[] { 1 }));
+
+        // large caches stay bounded and keep the recently read entries
+        ResultCache large = new ResultCache(64, 0);
+        for (int i = 0; i < 1000; i++) {
+            large.put(channel, new Object[] { i }, i, large.generation());
+            Assertions.assertEquals(0, large.get(channel, new Object[] { 0 }));
+        }
+        Assertions.assertEquals(64, large.size());
+    }
+
+    @Test
+    void test_KeyedByChannel() {
+        LocalProvider provider = new LocalProvider("cache-channel-test");
+        Channel channelA = provider.channel("a");
+        Channel channelB = provider.channel("b");
+        ResultCache cache = new ResultCache(16, 0);
+
+        // results of different remotes are kept apart
+        cache.put(channelA, new Object[] { 1 }, "from a", cache.generation());
+        Assertions.assertEquals("from a", cache.get(channelA, new Object[] { 1 }));
+        Assertions.assertSame(ResultCache.MISS, cache.get(channelB, new Object[] { 1 }));
+        cache.put(channelB, new Object[] { 1 }, "from b", cache.generation());
+        Assertions.assertEquals("from a", cache.get(channelA, new Object[] { 1 }));
+        Assertions.assertEquals("from b", cache.get(channelB, new Object[] { 1 }));
+
+        // invalidation applies to all channels
+        cache.invalidate(new Object[] { 1 });
+        Assertions.assertEquals(0, cache.size());
+    }
+
+}
@@ -0,0 +1,187 @@
+package test.slatepowered.reco;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import slatepowered.reco.local.LocalNetwork;
+import slatepowered.reco.local.LocalProvider;
+import slatepowered.reco.rpc.RPCManager;
+import slatepowered.reco.rpc.RemoteAPI;
+import slatepowered.reco.rpc.RemoteException;
+import slatepowered.reco.rpc.function.Allow;
+import slatepowered.reco.rpc.function.InboundStream;
+import slatepowered.reco.rpc.function.MCallStreamItem;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+public class StreamingTest {
+
+    /**
+     * The test API.
+     */
+    public interface API extends RemoteAPI {
+        @Allow
+        Iterator<Integer> range(int count);
+
+        @Allow
+        Stream<String> names(int count);
+    }
+
+    @Test
+    void test_StreamedResults() throws Exception {
+        LocalNetwork network = new LocalNetwork("stream-test");
+        LocalProvider providerA = new LocalProvider("a", network);
+        LocalProvider providerB = new LocalProvider("b", network);
+        RPCManager rpcA = new RPCManager(providerA).setStreaming(16, 4);
+        RPCManager rpcB = new RPCManager(providerB).setStreaming(16, 4);
+
+        AtomicInteger produced = new AtomicInteger();
+        AtomicBoolean closed = new AtomicBoolean();
+        rpcA.register(new API() {
+            @Override
+            public Iterator<Integer> range(int count) {
+                if (count < 0)
+                    throw new IllegalArgumentException("negative count");
+                return IntStream.range(0, count).peek(i -> produced.incrementAndGet()).map(i -> {
+                    if (i == 1000)
+                        throw new IllegalStateException("failed at 1000");
+                    return i;
+                }).iterator();
+            }
+
+            @Override
+            public Stream<String> names(int count) {
+                return IntStream.range(0, count).mapToObj(i -> "name " + i).onClose(() -> closed.set(true));
+            }
+        });
+
+        AtomicInteger itemMessages = new AtomicInteger();
+        providerB.listen(MCallStreamItem.NAME).on().then(message -> itemMessages.incrementAndGet());
+
+        API remoteAPI = rpcB.bindRemote(providerB.channel("a"), API.class);
+
+        // all items are received in chunks
+        Iterator<Integer> iterator = remoteAPI.range(100);
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertTrue(iterator.hasNext());
+            Assertions.assertEquals(i, (int) iterator.next());
+        }
+        Assertions.assertFalse(iterator.hasNext());
+        Assertions.assertEquals(26, itemMessages.get());
+
+        // the stream is closed on the remote once done
+        List<String> names = remoteAPI.names(10).collect(Collectors.toList());
+        Assertions.assertEquals(10, names.size());
+        Assertions.assertEquals("name 9", names.get(9));
+        Assertions.assertTrue(closed.get());
+
+        // only requested items are produced
+        closed.set(false);
+        produced.set(0);
+        try (Stream<String> stream = remoteAPI.names(1_000_000)) {
+            Assertions.assertEquals("name 0", stream.findFirst().get());
+        }
+        Assertions.assertTrue(closed.get());
+        produced.set(0);
+        Iterator<Integer> partial = remoteAPI.range(1_000_000);
+        partial.next();
+        Assertions.assertTrue(produced.get() <= 17);
+
+        // errors end the stream after the items before them
+        Iterator<Integer> failing = remoteAPI.range(2000);
+        for (int i = 0; i < 1000; i++)
+            failing.next();
+        Assertions.assertThrows(RemoteException.class, failing::hasNext);
+
+        // errors before the stream is opened fail the call
+        CompletionException e = Assertions.assertThrows(CompletionException.class, () -> remoteAPI.range(-1));
+        Assertions.assertTrue(e.getCause() instanceof RemoteException);
+    }
+
+    @Test
+    void test_OutOfOrderItems() {
+        LocalNetwork network = new LocalNetwork("stream-order-test");
+        LocalProvider providerA = new LocalProvider("a", network);
+        new LocalProvider("b", network);
+        InboundStream<Integer> stream = new InboundStream<>(providerA.channel("b"), 1, 16, 1000, () -> { });
+
+        // messages are held back until the ones before them arrive
+        stream.receive(new MCallStreamItem(1, 2, new Object[] { 3 }, true, null));
+        stream.receive(new MCallStreamItem(1, 1, new Object[] { 1, 2 }, false, null));
+        Assertions.assertFalse(stream.isClosed());
+        stream.receive(new MCallStreamItem(1, 0, new Object[0], false, null));
+        Assertions.assertTrue(stream.isClosed());
+
+        List<Integer> items = new ArrayList<>();
+        stream.forEachRemaining(items::add);
+        Assertions.assertEquals(3, items.size());
+        for (int i = 0; i < 3; i++)
+            Assertions.assertEquals(i + 1, (int) items.get(i));
+    }
+
+    @Test
+    void test_IdleStreamsClosed() throws Exception {
+        LocalNetwork network = new LocalNetwork("stream-idle-test");
+        LocalProvider providerA = new LocalProvider("a", network);
+        LocalProvider providerB = new LocalProvider("b", network);
+        LocalProvider providerC = new LocalProvider("c", network);
+        LocalProvider providerD = new LocalProvider("d", network);
+
+        // the sender closes streams the caller stopped granting credit to
+        AtomicBoolean closedA = new AtomicBoolean();
+        registerNames(new RPCManager(providerA).setStreaming(16, 4).setStreamIdleTimeout(100, TimeUnit.MILLISECONDS), closedA);
+        API remoteA = new RPCManager(providerB).setStreaming(16, 4).setStreamIdleTimeout(0, TimeUnit.MILLISECONDS)
+                .bindRemote(providerB.channel("a"), API.class);
+        Iterator<String> stalled = remoteA.names(1_000_000).iterator();
+        Assertions.assertEquals("name 0", stalled.next());
+        awaitTrue(closedA);
+        for (int i = 1; i < 16; i++)
+            Assertions.assertEquals("name " + i, stalled.next());
+        Assertions.assertThrows(RemoteException.class, stalled::hasNext);
+
+        // the caller cancels streams which are not read
+        AtomicBoolean closedC = new AtomicBoolean();
+        registerNames(new RPCManager(providerC).setStreamIdleTimeout(0, TimeUnit.MILLISECONDS), closedC);
+        API remoteC = new RPCManager(providerD).setStreamIdleTimeout(100, TimeUnit.MILLISECONDS)
+                .bindRemote(providerD.channel("c"), API.class);
+        Iterator<String> dropped = remoteC.names(1_000_000).iterator();
+        Assertions.assertEquals("name 0", dropped.next());
+        awaitTrue(closedC);
+        Assertions.assertThrows(RemoteException.class, () -> {
+            while (dropped.hasNext()) dropped.next();
+        });
+    }
+
+    // registers an API streaming names, setting the
+    // given flag once the stream of names is closed
+    private static void registerNames(RPCManager manager, AtomicBoolean closed) {
+        manager.register(new API() {
+            @Override
+            public Iterator<Integer> range(int count) {
+                return IntStream.range(0, count).iterator();
+            }
+
+            @Override
+            public Stream<String> names(int count) {
+                return IntStream.range(0, count).mapToObj(i -> "name " + i).onClose(() -> closed.set(true));
+            }
+        });
+    }
+
+    // waits up to 5 seconds for the given flag to be set
+    private static void awaitTrue(AtomicBoolean flag) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!flag.get() && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        Assertions.assertTrue(flag.get());
+    }
+
+}
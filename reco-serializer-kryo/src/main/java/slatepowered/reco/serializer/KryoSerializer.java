@@ -2,7 +2,10 @@ package slatepowered.reco.serializer;
 
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.SerializerFactory;
+import com.esotericsoftware.kryo.io.ByteBufferInput;
+import com.esotericsoftware.kryo.io.ByteBufferOutput;
 import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.KryoBufferOverflowException;
 import com.esotericsoftware.kryo.io.Output;
 import com.esotericsoftware.kryo.serializers.FieldSerializer;
 import com.esotericsoftware.kryo.util.DefaultInstantiatorStrategy;
@@ -10,8 +13,11 @@ import org.objenesis.instantiator.ObjectInstantiator;
 import org.objenesis.instantiator.basic.ConstructorInstantiator;
 import org.objenesis.strategy.InstantiatorStrategy;
 import slatepowered.reco.Serializer;
+import slatepowered.reco.buffer.GrowableBuffer;
 
 import java.io.*;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.util.function.Supplier;
 
 public class KryoSerializer implements Serializer {
@@ -37,21 +43,100 @@ public class KryoSerializer implements Serializer {
      */
     private final ThreadLocal<Kryo> kryoLocal;
 
+    /**
+     * The reusable Kryo inputs and outputs per thread.
+     */
+    private final ThreadLocal<Input> inputLocal = ThreadLocal.withInitial(() -> new Input(4096));
+    private final ThreadLocal<Output> outputLocal = ThreadLocal.withInitial(() -> new Output(4096, -1));
+    private final ThreadLocal<Output> bufferOutputLocal = ThreadLocal.withInitial(() -> new Output(EMPTY, -1));
+    private final ThreadLocal<Input> arrayInputLocal = ThreadLocal.withInitial(Input::new);
+    private final ThreadLocal<ByteBufferInput> byteBufferInputLocal = ThreadLocal.withInitial(ByteBufferInput::new);
+    private final ThreadLocal<ByteBufferOutput> byteBufferOutputLocal = ThreadLocal.withInitial(ByteBufferOutput::new);
+
+    // the empty array set on the buffer output
+    // after writing, to not retain the buffer
+    private static final byte[] EMPTY = new byte[0];
+    private static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocate(0);
+
     KryoSerializer(Supplier<Kryo> kryo) {
         kryoLocal = ThreadLocal.withInitial(kryo);
     }
 
     @Override
     public Object read(InputStream stream) throws IOException {
-        Input input = new Input(stream);
-        return kryoLocal.get().readClassAndObject(input);
+        Input input = inputLocal.get();
+        input.setInputStream(stream);
+        try {
+            return kryoLocal.get().readClassAndObject(input);
+        } finally {
+            input.setInputStream(null);
+        }
+    }
+
+    @Override
+    public Object read(byte[] bytes, int offset, int length) throws IOException {
+        Input input = arrayInputLocal.get();
+        input.setBuffer(bytes, offset, length);
+        try {
+            return kryoLocal.get().readClassAndObject(input);
+        } finally {
+            input.setBuffer(EMPTY);
+        }
+    }
+
+    @Override
+    public Object read(ByteBuffer buffer) throws IOException {
+        // the input keeps the position of the buffer in sync
+        ByteBufferInput input = byteBufferInputLocal.get();
+        input.setBuffer(buffer);
+        try {
+            return kryoLocal.get().readClassAndObject(input);
+        } finally {
+            input.setBuffer(EMPTY_BUFFER);
+        }
     }
 
     @Override
     public void write(OutputStream stream, Object object) throws IOException {
-        Output output = new Output(stream);
-        kryoLocal.get().writeClassAndObject(output, object);
-        output.flush();
+        Output output = outputLocal.get();
+        output.setOutputStream(stream);
+        try {
+            kryoLocal.get().writeClassAndObject(output, object);
+            output.flush();
+        } finally {
+            output.setOutputStream(null);
+        }
+    }
+
+    @Override
+    public void write(GrowableBuffer buffer, Object object) throws IOException {
+        // write straight into the backing array, the
+        // output replaces the array when it has to grow
+        Output output = bufferOutputLocal.get();
+        output.setBuffer(buffer.array(), -1);
+        output.setPosition(buffer.length());
+        try {
+            kryoLocal.get().writeClassAndObject(output, object);
+            buffer.set(output.getBuffer(), output.position());
+        } finally {
+            output.setBuffer(EMPTY, -1);
+        }
+    }
+
+    @Override
+    public void write(ByteBuffer buffer, Object object) throws IOException {
+        // the output keeps the position of the buffer in sync
+        ByteBufferOutput output = byteBufferOutputLocal.get();
+        output.setBuffer(buffer, buffer.capacity());
+        int start = buffer.position();
+        try {
+            kryoLocal.get().writeClassAndObject(output, object);
+        } catch (KryoBufferOverflowException e) {
+            buffer.position(start);
+            throw new BufferOverflowException();
+        } finally {
+            output.setBuffer(EMPTY_BUFFER, 0);
+        }
     }
 
 }
@@ -0,0 +1,52 @@
+package test.slatepowered.reco;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import slatepowered.reco.buffer.GrowableBuffer;
+import slatepowered.reco.serializer.KryoSerializer;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+public class KryoSerializerTest {
+
+    @Test
+    void test_ArrayRange() throws Exception {
+        KryoSerializer serializer = KryoSerializer.standard();
+        List<String> list = new ArrayList<>();
+        list.add("a");
+        list.add("b");
+
+        // write after a prefix and read from the offset
+        GrowableBuffer buffer = new GrowableBuffer(1);
+        buffer.writeInt(0xCAFEBABE);
+        serializer.write(buffer, list);
+
+        Assertions.assertEquals(list, serializer.read(buffer.array(), 4, buffer.length() - 4));
+    }
+
+    @Test
+    void test_ByteBuffers() throws Exception {
+        KryoSerializer serializer = KryoSerializer.standard();
+
+        for (ByteBuffer buffer : new ByteBuffer[] { ByteBuffer.allocate(64), ByteBuffer.allocateDirect(64) }) {
+            buffer.position(3);
+            serializer.write(buffer, "hello");
+            serializer.write(buffer, 42);
+            int end = buffer.position();
+
+            buffer.flip().position(3);
+            Assertions.assertEquals("hello", serializer.read(buffer));
+            Assertions.assertEquals(42, serializer.read(buffer));
+            Assertions.assertEquals(end, buffer.position());
+        }
+
+        // the position is kept when the buffer is too small
+        ByteBuffer small = ByteBuffer.allocate(4);
+        Assertions.assertThrows(BufferOverflowException.class, () -> serializer.write(small, "too long to fit"));
+        Assertions.assertEquals(0, small.position());
+    }
+
+}